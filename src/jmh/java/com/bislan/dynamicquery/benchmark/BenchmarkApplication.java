@@ -0,0 +1,34 @@
+package com.bislan.dynamicquery.benchmark;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.stereotype.Repository;
+
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.DynamicQuerydslPredicateExecutor;
+
+/**
+ * A minimal application over an embedded H2 database, configured by {@code benchmark.properties}.
+ */
+@SpringBootApplication
+public class BenchmarkApplication {
+
+    @Repository
+    public static class PurchaseOrderRepository implements DynamicQuerydslPredicateExecutor<PurchaseOrder> {
+
+        @PersistenceContext
+        private EntityManager entityManager;
+
+        @Override
+        public EntityManager getEntityManager() {
+            return entityManager;
+        }
+
+        @Override
+        public Class<PurchaseOrder> getEntityClass() {
+            return PurchaseOrder.class;
+        }
+    }
+}
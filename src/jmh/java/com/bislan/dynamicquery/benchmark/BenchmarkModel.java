@@ -0,0 +1,261 @@
+package com.bislan.dynamicquery.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+
+/**
+ * The entities the benchmarks query: orders with a customer and lines, lines with a product and products with a
+ * category, so that filters can reach three associations deep.
+ */
+public class BenchmarkModel {
+
+    public enum Status {
+        NEW, PAID, SHIPPED, CANCELLED
+    }
+
+    @Embeddable
+    public static class Address {
+        private String city;
+        private String country;
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        public void setCountry(String country) {
+            this.country = country;
+        }
+    }
+
+    @Entity(name = "Category")
+    public static class Category {
+        @Id
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Entity(name = "Product")
+    public static class Product {
+        @Id
+        private Long id;
+        private String name;
+        private BigDecimal price;
+        @ManyToOne(fetch = FetchType.LAZY)
+        private Category category;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public void setPrice(BigDecimal price) {
+            this.price = price;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        public void setCategory(Category category) {
+            this.category = category;
+        }
+    }
+
+    @Entity(name = "Customer")
+    public static class Customer {
+        @Id
+        private Long id;
+        private String name;
+        @Embedded
+        private Address address;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+
+    @Entity(name = "PurchaseOrder")
+    public static class PurchaseOrder {
+        @Id
+        private Long id;
+        private String code;
+        @Enumerated(EnumType.STRING)
+        private Status status;
+        private Integer amount;
+        private LocalDate created;
+        @ManyToOne(fetch = FetchType.LAZY)
+        private Customer customer;
+        @OneToMany(mappedBy = "order")
+        private List<OrderLine> lines = new ArrayList<>();
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public Integer getAmount() {
+            return amount;
+        }
+
+        public void setAmount(Integer amount) {
+            this.amount = amount;
+        }
+
+        public LocalDate getCreated() {
+            return created;
+        }
+
+        public void setCreated(LocalDate created) {
+            this.created = created;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(Customer customer) {
+            this.customer = customer;
+        }
+
+        public List<OrderLine> getLines() {
+            return lines;
+        }
+
+        public void setLines(List<OrderLine> lines) {
+            this.lines = lines;
+        }
+    }
+
+    @Entity(name = "OrderLine")
+    public static class OrderLine {
+        @Id
+        private Long id;
+        private Integer qty;
+        @ManyToOne(fetch = FetchType.LAZY)
+        private PurchaseOrder order;
+        @ManyToOne(fetch = FetchType.LAZY)
+        private Product product;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Integer getQty() {
+            return qty;
+        }
+
+        public void setQty(Integer qty) {
+            this.qty = qty;
+        }
+
+        public PurchaseOrder getOrder() {
+            return order;
+        }
+
+        public void setOrder(PurchaseOrder order) {
+            this.order = order;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public void setProduct(Product product) {
+            this.product = product;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.bislan.dynamicquery.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bislan.dynamicquery.benchmark.BenchmarkApplication.PurchaseOrderRepository;
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.Address;
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.Category;
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.Customer;
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.OrderLine;
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.Product;
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.PurchaseOrder;
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.Status;
+import com.bislan.dynamicquery.library.DynamicQueryHints;
+import com.bislan.dynamicquery.library.QueryParameters;
+import com.bislan.dynamicquery.library.sql.NativeQueryExecutor;
+import com.bislan.dynamicquery.library.sql.SqlMetamodel;
+
+/**
+ * {@code findAll} end to end against an embedded H2 database holding a generated dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark {
+
+    private static final int CUSTOMERS = 200;
+    private static final int CATEGORIES = 10;
+    private static final int PRODUCTS = 100;
+
+    @Param
+    private QueryShape shape;
+
+    @Param({ "10000" })
+    private int orders;
+
+    private ConfigurableApplicationContext context;
+    private PurchaseOrderRepository repository;
+    private TransactionTemplate transaction;
+    private QueryParameters parameters;
+    private QueryParameters fieldParameters;
+    private NativeQueryExecutor<PurchaseOrder> nativeExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .properties("spring.config.name=benchmark")
+                .run();
+        repository = context.getBean(PurchaseOrderRepository.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transaction.executeWithoutResult(status -> generate(repository.getEntityManager()));
+        transaction.setReadOnly(true);
+        parameters = new QueryParameters(shape.getParameters());
+        final Map<String, String> fields = new HashMap<>(shape.getParameters());
+        fields.put(QueryParameters.FieldsKey, "id,code,amount,customer.name");
+        fieldParameters = new QueryParameters(fields);
+        final DataSource dataSource = context.getBean(DataSource.class);
+        nativeExecutor = new NativeQueryExecutor<>(PurchaseOrder.class,
+                SqlMetamodel.of(context.getBean(EntityManagerFactory.class), dataSource), dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PurchaseOrder> findAll() {
+        return transaction.execute(status -> repository.findAll(parameters));
+    }
+
+    @Benchmark
+    public List<PurchaseOrder> findAllReadOnly() {
+        return transaction.execute(status -> repository.findAll(parameters, Map.of(DynamicQueryHints.READ_ONLY, true)));
+    }
+
+    @Benchmark
+    public Page<PurchaseOrder> findAllPaged() {
+        return transaction.execute(status -> repository.findAll(parameters, PageRequest.of(2, 20, Sort.by("id"))));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> findFields() {
+        return transaction.execute(status -> repository.findFields(fieldParameters, Sort.by("id")));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> findFieldsNative() {
+        return transaction.execute(status -> nativeExecutor.findFields(fieldParameters, Sort.by("id")));
+    }
+
+    private void generate(EntityManager entityManager) {
+        for (long i = 1; i <= CATEGORIES; i++) {
+            Category category = new Category();
+            category.setId(i);
+            category.setName("Category" + i);
+            entityManager.persist(category);
+        }
+        for (long i = 1; i <= PRODUCTS; i++) {
+            Product product = new Product();
+            product.setId(i);
+            product.setName("Product" + i);
+            product.setPrice(BigDecimal.valueOf(i * 3));
+            product.setCategory(entityManager.getReference(Category.class, i % CATEGORIES + 1));
+            entityManager.persist(product);
+        }
+        for (long i = 1; i <= CUSTOMERS; i++) {
+            Address address = new Address();
+            address.setCity("City" + i % 20);
+            address.setCountry("Country" + i % 5);
+            Customer customer = new Customer();
+            customer.setId(i);
+            customer.setName("Customer" + i);
+            customer.setAddress(address);
+            entityManager.persist(customer);
+        }
+        long lineId = 1;
+        for (long i = 1; i <= orders; i++) {
+            PurchaseOrder order = new PurchaseOrder();
+            order.setId(i);
+            order.setCode("C" + i);
+            order.setStatus(Status.values()[(int) (i % Status.values().length)]);
+            order.setAmount((int) (i % 1000));
+            order.setCreated(LocalDate.of(2024, 1, 1).plusDays(i % 365));
+            order.setCustomer(entityManager.getReference(Customer.class, i % CUSTOMERS + 1));
+            entityManager.persist(order);
+            for (int j = 0; j < i % 4 + 1; j++) {
+                OrderLine line = new OrderLine();
+                line.setId(lineId++);
+                line.setQty(j + 1);
+                line.setOrder(order);
+                line.setProduct(entityManager.getReference(Product.class, (i + j) % PRODUCTS + 1));
+                entityManager.persist(line);
+            }
+            if (i % 500 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+}
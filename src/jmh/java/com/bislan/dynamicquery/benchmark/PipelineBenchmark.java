@@ -0,0 +1,106 @@
+package com.bislan.dynamicquery.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bislan.dynamicquery.benchmark.BenchmarkModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.JoinsData;
+import com.bislan.dynamicquery.library.QueryParameters;
+import com.bislan.dynamicquery.library.QueryPlan;
+import com.bislan.dynamicquery.library.QuerydslPredicateBuilder;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.ExpressionFactory;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+
+/**
+ * The in-memory stages of a query: parsing the parameters, building the predicate and serializing the JPQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param
+    private QueryShape shape;
+
+    private Map<String, String> parameters;
+    private QueryMetadata metadata;
+
+    @Setup
+    public void setUp() {
+        parameters = shape.getParameters();
+        metadata = createQuery(new QuerydslPredicateBuilder<>(PurchaseOrder.class, new QueryParameters(parameters)))
+                .getMetadata();
+    }
+
+    @Benchmark
+    public ExpressionEntries parse() {
+        return ExpressionFactory.createFromParams(PurchaseOrder.class, parameters);
+    }
+
+    @Benchmark
+    public Predicate build() {
+        return new QuerydslPredicateBuilder<>(PurchaseOrder.class, new QueryParameters(parameters)).toPredicate();
+    }
+
+    @Benchmark
+    public QueryPlan plan() {
+        return new QuerydslPredicateBuilder<>(PurchaseOrder.class, new QueryParameters(parameters)).toQueryPlan();
+    }
+
+    @Benchmark
+    public String serialize() {
+        JPQLSerializer serializer = new JPQLSerializer(JPQLTemplates.DEFAULT);
+        serializer.serialize(metadata, false, null);
+        return serializer.toString();
+    }
+
+    @Benchmark
+    public String pipeline() {
+        JPAQuery<PurchaseOrder> query =
+                createQuery(new QuerydslPredicateBuilder<>(PurchaseOrder.class, new QueryParameters(parameters)));
+        JPQLSerializer serializer = new JPQLSerializer(JPQLTemplates.DEFAULT);
+        serializer.serialize(query.getMetadata(), false, null);
+        return serializer.toString();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static JPAQuery<PurchaseOrder> createQuery(QuerydslPredicateBuilder<PurchaseOrder> builder) {
+        EntityPath<PurchaseOrder> root =
+                (EntityPath<PurchaseOrder>) EntityMetadataRegistry.get(PurchaseOrder.class).getEntityPath();
+        JPAQuery<PurchaseOrder> query = new JPAQuery<>();
+        query.select(root).from(root);
+        Predicate predicate = builder.toPredicate();
+        for (JoinsData joins : builder.getJoins()) {
+            if (joins.getRelationType() == RelationType.COLLECTION) {
+                query.join((CollectionExpression) joins.getExpr(), joins.getAlias());
+            } else if (joins.getRelationType() == RelationType.SINGLE) {
+                query.join((EntityPath) joins.getExpr(), joins.getAlias());
+            }
+        }
+        return query.where(predicate);
+    }
+}
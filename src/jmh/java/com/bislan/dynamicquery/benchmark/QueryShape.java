@@ -0,0 +1,30 @@
+package com.bislan.dynamicquery.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * The filter shapes the benchmarks run, from a few flat properties to large {@code in} lists.
+ */
+public enum QueryShape {
+
+    FLAT("status", "eq(PAID)", "amount", "gt(100)", "code", "starts_with(C1)"),
+    DEEP("customer.address.city", "eq(City3)", "lines.product.category.name", "eq(Category5)", "amount", "lt(900)"),
+    COLLECTION("lines.qty", "gt(2)", "lines.product.name", "string_contains_ic(product1)", "status", "ne(CANCELLED)"),
+    LARGE_IN("id", "in(" + LongStream.rangeClosed(1, 5000).mapToObj(Long::toString).collect(Collectors.joining(",")) + ")",
+            "status", "in(NEW,PAID,SHIPPED)");
+
+    private final Map<String, String> parameters = new LinkedHashMap<>();
+
+    QueryShape(String... keysAndValues) {
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            parameters.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+    }
+
+    public Map<String, String> getParameters() {
+        return new LinkedHashMap<>(parameters);
+    }
+}
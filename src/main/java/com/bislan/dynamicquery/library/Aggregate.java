@@ -0,0 +1,94 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * An aggregate of a {@link DynamicQuerydslPredicateExecutor#findGroups grouped query}, e.g. {@code sum(amount)}. Its
+ * name keys its value in the result rows.
+ */
+public class Aggregate {
+
+    private final AggregateFunction function;
+    private final String property;
+
+    private Aggregate(AggregateFunction function, String property) {
+        this.function = function;
+        this.property = property;
+    }
+
+    public static Aggregate of(AggregateFunction function, String property) {
+        if (property == null && function != AggregateFunction.COUNT) {
+            throw new RuntimeException("The aggregate " + function + " needs a property");
+        }
+        return new Aggregate(function, property);
+    }
+
+    /**
+     * Counts the root entities of each group.
+     */
+    public static Aggregate count() {
+        return new Aggregate(AggregateFunction.COUNT, null);
+    }
+
+    public static Aggregate count(String property) {
+        return of(AggregateFunction.COUNT, property);
+    }
+
+    public static Aggregate sum(String property) {
+        return of(AggregateFunction.SUM, property);
+    }
+
+    public static Aggregate min(String property) {
+        return of(AggregateFunction.MIN, property);
+    }
+
+    public static Aggregate max(String property) {
+        return of(AggregateFunction.MAX, property);
+    }
+
+    public static Aggregate avg(String property) {
+        return of(AggregateFunction.AVG, property);
+    }
+
+    public AggregateFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * The aggregated property, {@code null} for a count of the root entities.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * {@code count} for a count of the root entities, {@code function(property)} otherwise.
+     */
+    public String getName() {
+        final String name = function.name().toLowerCase(Locale.ROOT);
+        return property == null ? name : name + "(" + property + ")";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Aggregate)) {
+            return false;
+        }
+        final Aggregate other = (Aggregate) o;
+        return function == other.function && Objects.equals(property, other.property);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(function, property);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,15 @@
+package com.bislan.dynamicquery.library;
+
+/**
+ * The functions of an {@link Aggregate}.
+ */
+public enum AggregateFunction {
+    /**
+     * The number of root entities, or of non-null values of a property.
+     */
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+}
@@ -0,0 +1,230 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.util.StringUtils;
+
+import com.bislan.dynamicquery.library.expression.EntityMetadata;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.SubQueryExpressionImpl;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+
+/**
+ * Translates the groupings and aggregates of {@link DynamicQuerydslPredicateExecutor#findGroups} and computes
+ * {@link Facet facets} from grouped counts. A grouping is a property path, e.g. {@code customer.name}, or one of
+ * {@code year(p)}, {@code month(p)}, {@code day(p)} and {@code yearMonth(p)} of a date property, the latter as
+ * {@code year * 100 + month}.
+ */
+class Aggregations {
+
+    /**
+     * The most value combinations a query counting several facets at once may return unless
+     * {@link DynamicQueryHints#GROUP_LIMIT} sets another; beyond, each facet is counted by a query of its own, so that
+     * facets of many values do not multiply into a huge result.
+     */
+    static final int MAX_COMBINED_GROUPS = 1_000;
+
+    private static final Map<String, Operator> GROUP_FUNCTIONS = Map.of(
+            "year", Ops.DateTimeOps.YEAR,
+            "month", Ops.DateTimeOps.MONTH,
+            "day", Ops.DateTimeOps.DAY_OF_MONTH,
+            "yearMonth", Ops.DateTimeOps.YEAR_MONTH);
+
+    private Aggregations() {
+    }
+
+    /**
+     * The property a grouping is computed from.
+     */
+    static String propertyOf(String group) {
+        final int open = group.indexOf('(');
+        if (open < 0 || !group.endsWith(")")) {
+            return group.trim();
+        }
+        return group.substring(open + 1, group.length() - 1).trim();
+    }
+
+    static Expression<?> group(PathResolver resolver, String group) {
+        final Expression<?> path = resolver.resolve(propertyOf(group), true);
+        final int open = group.indexOf('(');
+        if (open < 0) {
+            return path;
+        }
+        final Operator function = GROUP_FUNCTIONS.get(group.substring(0, open).trim());
+        if (function == null) {
+            throw new RuntimeException("Unknown grouping: " + group);
+        }
+        return Expressions.numberOperation(Integer.class, function, path);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static OrderSpecifier<?> ascending(Expression<?> group) {
+        return new OrderSpecifier(Order.ASC, group);
+    }
+
+    /**
+     * @param distinct whether the joins may repeat a root entity, so that only distinct roots are counted
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Expression<?> aggregate(PathResolver resolver, EntityPath<?> root, Aggregate aggregate, boolean distinct) {
+        if (aggregate.getProperty() == null) {
+            return Expressions.numberOperation(Long.class, distinct ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG, root);
+        }
+        final Expression<?> path = resolver.resolve(aggregate.getProperty());
+        switch (aggregate.getFunction()) {
+            case COUNT:
+                return Expressions.numberOperation(Long.class, Ops.AggOps.COUNT_AGG, path);
+            case SUM:
+                return Expressions.numberOperation((Class) path.getType(), Ops.AggOps.SUM_AGG, path);
+            case MIN:
+                return Expressions.operation(path.getType(), Ops.AggOps.MIN_AGG, path);
+            case MAX:
+                return Expressions.operation(path.getType(), Ops.AggOps.MAX_AGG, path);
+            case AVG:
+                return Expressions.numberOperation(Double.class, Ops.AggOps.AVG_AGG, path);
+            default:
+                throw new RuntimeException("Unsupported aggregate: " + aggregate);
+        }
+    }
+
+    /**
+     * Whether an aggregate adds up a root as often as the joins repeat it: any aggregate of a property but its
+     * minimum and maximum.
+     */
+    static boolean countsRepeatedRoots(List<Aggregate> aggregates) {
+        return aggregates.stream().anyMatch(aggregate -> aggregate.getProperty() != null
+                && aggregate.getFunction() != AggregateFunction.MIN && aggregate.getFunction() != AggregateFunction.MAX);
+    }
+
+    /**
+     * Restricts the query to the roots the filtered query matches, {@code root in (select root ...)}, so that each of
+     * them is aggregated once however its filters were joined.
+     */
+    static <T> JPAQuery<T> overMatchingRoots(JPAQuery<T> query, JPAQuery<T> filtered, EntityPath<T> root) {
+        final QueryMetadata metadata = filtered.getMetadata().clone();
+        metadata.setProjection(root);
+        metadata.clearOrderBy();
+        query.where(Expressions.predicate(Ops.IN, root, new SubQueryExpressionImpl<>(root.getType(), metadata)));
+        setParams(query, metadata);
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void setParams(JPAQuery<?> query, QueryMetadata metadata) {
+        metadata.getParams().forEach((param, value) -> query.set((ParamExpression<Object>) param, value));
+    }
+
+    /**
+     * Counts the values of the facets. Facets with the same effective filter share one query grouped by all of them,
+     * whose counts are summed up per facet, since every root entity falls into exactly one group, unless the
+     * combinations of their values exceed {@link #MAX_COMBINED_GROUPS}. Facets on a collection, which may put a root
+     * into several groups, are counted on their own.
+     */
+    static Map<String, Map<Object, Long>> facets(DynamicQuerydslPredicateExecutor<?> executor, QueryParameters params,
+            List<Facet> facets, Map<String, Object> hints) {
+        final Map<Map<String, String>, List<Facet>> passes = new LinkedHashMap<>();
+        final List<Facet> separate = new ArrayList<>();
+        for (Facet facet : facets) {
+            if (traversesCollection(executor.getEntityClass(), propertyOf(facet.getGroup()))) {
+                separate.add(facet);
+            } else {
+                passes.computeIfAbsent(filterOf(params, facet), filter -> new ArrayList<>()).add(facet);
+            }
+        }
+        final Map<String, Map<Object, Long>> counts = new LinkedHashMap<>();
+        final long maxCombinedGroups = DynamicQueryHints.getLong(hints, DynamicQueryHints.GROUP_LIMIT, MAX_COMBINED_GROUPS);
+        passes.forEach((filter, combined) -> {
+            if (combined.size() == 1 || !countFacets(executor, filter, combined, hints, maxCombinedGroups, counts)) {
+                combined.forEach(facet -> countFacets(executor, filter, List.of(facet), hints, Long.MAX_VALUE, counts));
+            }
+        });
+        separate.forEach(facet -> countFacets(executor, filterOf(params, facet), List.of(facet), hints, Long.MAX_VALUE, counts));
+        final Map<String, Map<Object, Long>> ordered = new LinkedHashMap<>();
+        facets.forEach(facet -> ordered.put(facet.getGroup(), counts.get(facet.getGroup())));
+        return ordered;
+    }
+
+    /**
+     * @return {@code false}, counting nothing, when the facets have more than the given number of value combinations
+     */
+    private static boolean countFacets(DynamicQuerydslPredicateExecutor<?> executor, Map<String, String> filter,
+            List<Facet> facets, Map<String, Object> hints, long maxGroups, Map<String, Map<Object, Long>> counts) {
+        final Aggregate count = Aggregate.count();
+        final List<String> groups = facets.stream().map(Facet::getGroup).collect(Collectors.toList());
+        final Map<String, Object> groupHints = new HashMap<>(hints);
+        if (maxGroups < Long.MAX_VALUE) {
+            groupHints.put(DynamicQueryHints.GROUP_LIMIT, maxGroups + 1);
+        } else {
+            groupHints.remove(DynamicQueryHints.GROUP_LIMIT);
+        }
+        final List<Map<String, Object>> rows = executor.findGroups(new QueryParameters(filter), groups, List.of(count), groupHints);
+        if (rows.size() > maxGroups) {
+            return false;
+        }
+        for (Facet facet : facets) {
+            final Map<Object, Long> values = new LinkedHashMap<>();
+            for (Map<String, Object> row : rows) {
+                values.merge(row.get(facet.getGroup()), (Long) row.get(count.getName()), Long::sum);
+            }
+            counts.put(facet.getGroup(), top(values, facet.getLimit()));
+        }
+        return true;
+    }
+
+    private static Map<String, String> filterOf(QueryParameters params, Facet facet) {
+        final Map<String, String> filter = new LinkedHashMap<>(params.getParameters());
+        // the projection and fetch keys do not change the counts
+        filter.remove(QueryParameters.FieldsKey);
+        filter.remove(QueryParameters.FetchKey);
+        if (facet.isExcludeOwnFilter()) {
+            final String property = propertyOf(facet.getGroup());
+            filter.keySet().removeIf(key -> key.trim().equals(property));
+        }
+        return filter;
+    }
+
+    private static Map<Object, Long> top(Map<Object, Long> values, int limit) {
+        if (values.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<Object, Long> top = new LinkedHashMap<>();
+        values.entrySet().stream()
+                .sorted(Map.Entry.<Object, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    private static boolean traversesCollection(Class<?> entityType, String propertyPath) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(entityType);
+        for (String part : StringUtils.tokenizeToStringArray(propertyPath, ".")) {
+            final PropertyMetadata property = metadata.getProperty(part);
+            if (property == null || property.getRelationType() == null) {
+                return false;
+            }
+            if (property.getRelationType() == RelationType.COLLECTION) {
+                return true;
+            }
+            metadata = EntityMetadataRegistry.get(property.getTargetType());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,248 @@
+package com.bislan.dynamicquery.library;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+/**
+ * The queries of a {@link DynamicQuerydslPredicateExecutor} as {@link CompletableFuture}s. Every query runs on the
+ * executor with its own entity manager and resource-local transaction, so the entities it returns are detached. That
+ * transaction is rolled back and loads the entities read-only, so it may be routed to a read replica and coalesced
+ * like a read-only transaction. The content and the count of a page run in parallel.
+ * <p>
+ * Cancelling a future, or its timeout expiring, cancels the JDBC statement that is running for it.
+ */
+public class AsyncQueryExecutor<T> {
+
+    private final DynamicQuerydslPredicateExecutor<T> delegate;
+    private final Executor executor;
+    private final Duration timeout;
+
+    private AsyncQueryExecutor(DynamicQuerydslPredicateExecutor<T> delegate, Executor executor, Duration timeout) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs the queries on virtual threads when the JVM has them, on a cached pool of daemon threads otherwise.
+     */
+    public static <T> AsyncQueryExecutor<T> of(DynamicQuerydslPredicateExecutor<T> delegate) {
+        return new AsyncQueryExecutor<>(delegate, DefaultExecutor.INSTANCE, null);
+    }
+
+    public AsyncQueryExecutor<T> withExecutor(Executor executor) {
+        return new AsyncQueryExecutor<>(delegate, executor, timeout);
+    }
+
+    /**
+     * The timeout of every single query, passed to the JDBC statement as well.
+     */
+    public AsyncQueryExecutor<T> withTimeout(Duration timeout) {
+        return new AsyncQueryExecutor<>(delegate, executor, timeout);
+    }
+
+    public CompletableFuture<Optional<T>> findOne(QueryParameters params) {
+        return findOne(params, Collections.emptyMap());
+    }
+
+    public CompletableFuture<Optional<T>> findOne(QueryParameters params, Map<String, Object> hints) {
+        final Map<String, Object> queryHints = withTimeout(hints);
+        return submit(executor -> executor.findOne(params, queryHints));
+    }
+
+    public CompletableFuture<List<T>> findAll(QueryParameters params, Sort sort) {
+        return findAll(params, sort, Collections.emptyMap());
+    }
+
+    public CompletableFuture<List<T>> findAll(QueryParameters params, Sort sort, Map<String, Object> hints) {
+        final Map<String, Object> queryHints = withTimeout(hints);
+        return submit(executor -> executor.findAll(params, sort, queryHints));
+    }
+
+    public CompletableFuture<Page<T>> findAll(QueryParameters params, Pageable pageable) {
+        return findAll(params, pageable, Collections.emptyMap());
+    }
+
+    /**
+     * Fetches the content and counts the total at the same time. With {@link CountStrategy#OPTIMIZED} the count is
+     * cancelled when the content shows it is the last page. Bounded and skipped counts run as in the executor.
+     */
+    public CompletableFuture<Page<T>> findAll(QueryParameters params, Pageable pageable, Map<String, Object> hints) {
+        final Map<String, Object> queryHints = withTimeout(hints);
+        final CountStrategy strategy = DynamicQueryHints.getEnum(hints, DynamicQueryHints.COUNT_STRATEGY, CountStrategy.class,
+                delegate.getCountStrategy());
+        if (pageable.isUnpaged() || strategy == CountStrategy.SKIP || strategy == CountStrategy.BOUNDED) {
+            return submit(executor -> executor.findAll(params, pageable, queryHints));
+        }
+        final Map<String, Object> contentHints = new HashMap<>(queryHints);
+        contentHints.put(DynamicQueryHints.COUNT_STRATEGY, CountStrategy.SKIP);
+        final CompletableFuture<Page<T>> content = submit(executor -> executor.findAll(params, pageable, contentHints));
+        final CompletableFuture<Long> total = submit(executor -> executor.count(params, queryHints));
+        final CompletableFuture<Page<T>> page = content.thenCompose(slice -> {
+            if (strategy == CountStrategy.OPTIMIZED && !slice.hasNext()
+                    && (slice.getNumberOfElements() > 0 || pageable.getOffset() == 0)) {
+                total.cancel(true);
+                return CompletableFuture.completedFuture(
+                        new PageImpl<>(slice.getContent(), pageable, pageable.getOffset() + slice.getNumberOfElements()));
+            }
+            return total.thenApply(count -> new PageImpl<>(slice.getContent(), pageable, count));
+        });
+        page.whenComplete((result, error) -> {
+            if (error != null) {
+                content.cancel(true);
+                total.cancel(true);
+            }
+        });
+        return page;
+    }
+
+    public CompletableFuture<Slice<T>> findSlice(QueryParameters params, Pageable pageable) {
+        return findSlice(params, pageable, Collections.emptyMap());
+    }
+
+    public CompletableFuture<Slice<T>> findSlice(QueryParameters params, Pageable pageable, Map<String, Object> hints) {
+        final Map<String, Object> queryHints = withTimeout(hints);
+        return submit(executor -> executor.findSlice(params, pageable, queryHints));
+    }
+
+    public CompletableFuture<Long> count(QueryParameters params) {
+        return count(params, Collections.emptyMap());
+    }
+
+    public CompletableFuture<Long> count(QueryParameters params, Map<String, Object> hints) {
+        final Map<String, Object> queryHints = withTimeout(hints);
+        return submit(executor -> executor.count(params, queryHints));
+    }
+
+    /**
+     * Runs any query of the executor asynchronously, on an entity manager of its own. The timeout of this executor is
+     * applied to the future only; pass it as a hint to reach the statement.
+     */
+    public <R> CompletableFuture<R> submit(Function<DynamicQuerydslPredicateExecutor<T>, R> query) {
+        final QueryTask<R> task = new QueryTask<>();
+        executor.execute(() -> run(task, query));
+        if (timeout != null) {
+            task.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return task;
+    }
+
+    private <R> void run(QueryTask<R> task, Function<DynamicQuerydslPredicateExecutor<T>, R> query) {
+        if (task.isDone()) {
+            return;
+        }
+        final EntityManager entityManager = delegate.getEntityManager().getEntityManagerFactory().createEntityManager();
+        final EntityTransaction transaction = entityManager.getTransaction();
+        R result = null;
+        RuntimeException failure = null;
+        try {
+            task.session = entityManager.unwrap(Session.class);
+            task.session.setDefaultReadOnly(true);
+            transaction.begin();
+            result = query.apply(new EntityManagerBoundExecutor<>(delegate, entityManager));
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            task.session = null;
+            try {
+                // nothing is written, the transaction only scopes the connection
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                entityManager.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        // only completed once the entity manager is closed, so that the caller never shares the entities with a session
+        if (failure != null) {
+            task.completeExceptionally(failure);
+        } else {
+            task.complete(result);
+        }
+    }
+
+    private Map<String, Object> withTimeout(Map<String, Object> hints) {
+        if (timeout == null || hints.containsKey(QueryHints.SPEC_HINT_TIMEOUT)) {
+            return hints;
+        }
+        final Map<String, Object> withTimeout = new HashMap<>(hints);
+        withTimeout.put(QueryHints.SPEC_HINT_TIMEOUT, (int) timeout.toMillis());
+        return withTimeout;
+    }
+
+    /**
+     * A future that cancels the statement of its query when it is cancelled or completed exceptionally, e.g. by its
+     * timeout, while the query runs.
+     */
+    private static class QueryTask<R> extends CompletableFuture<R> {
+        private volatile Session session;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                cancelStatement();
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable ex) {
+            final boolean completed = super.completeExceptionally(ex);
+            if (completed) {
+                cancelStatement();
+            }
+            return completed;
+        }
+
+        private void cancelStatement() {
+            final Session running = session;
+            if (running != null) {
+                running.cancelQuery();
+            }
+        }
+    }
+
+    private static class DefaultExecutor {
+        private static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                // Java 21+, looked up so that the library still runs on Java 17
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                final AtomicInteger count = new AtomicInteger();
+                return Executors.newCachedThreadPool(runnable -> {
+                    final Thread thread = new Thread(runnable, "dynamicquery-async-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * One query of a {@link DynamicQuerydslPredicateExecutor#findBatch(java.util.List) batch}: the parameters with a sort
+ * or a page, and the hints of the call.
+ */
+public class BatchRequest {
+
+    private final QueryParameters params;
+    private final Sort sort;
+    private final Pageable pageable;
+    private final Map<String, Object> hints;
+
+    private BatchRequest(QueryParameters params, Sort sort, Pageable pageable, Map<String, Object> hints) {
+        this.params = params;
+        this.sort = sort;
+        this.pageable = pageable;
+        this.hints = hints;
+    }
+
+    public static BatchRequest of(QueryParameters params) {
+        return of(params, Sort.unsorted());
+    }
+
+    public static BatchRequest of(QueryParameters params, Sort sort) {
+        return new BatchRequest(params, sort, Pageable.unpaged(), Collections.emptyMap());
+    }
+
+    public static BatchRequest of(QueryParameters params, Pageable pageable) {
+        return new BatchRequest(params, pageable.getSort(), pageable, Collections.emptyMap());
+    }
+
+    public BatchRequest withHints(Map<String, Object> hints) {
+        return new BatchRequest(params, sort, pageable, hints);
+    }
+
+    public QueryParameters getParams() {
+        return params;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public Pageable getPageable() {
+        return pageable;
+    }
+
+    public Map<String, Object> getHints() {
+        return hints;
+    }
+}
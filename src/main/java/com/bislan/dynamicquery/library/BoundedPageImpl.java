@@ -0,0 +1,28 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.List;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * A page whose total may have been capped by {@link CountStrategy#BOUNDED}.
+ */
+public class BoundedPageImpl<T> extends PageImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean totalExact;
+
+    public BoundedPageImpl(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    /**
+     * {@code false} when there are more elements than {@link #getTotalElements()}.
+     */
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
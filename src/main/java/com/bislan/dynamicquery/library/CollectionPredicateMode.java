@@ -0,0 +1,15 @@
+package com.bislan.dynamicquery.library;
+
+/**
+ * How filters on collection paths are translated.
+ */
+public enum CollectionPredicateMode {
+    /**
+     * Inner join the collection; the root rows are multiplied by the matching elements.
+     */
+    JOIN,
+    /**
+     * A correlated {@code exists} subquery per collection, holding all the filters on that collection.
+     */
+    EXISTS
+}
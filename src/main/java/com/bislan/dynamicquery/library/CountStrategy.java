@@ -0,0 +1,24 @@
+package com.bislan.dynamicquery.library;
+
+/**
+ * How the total of a paged {@code findAll} is computed.
+ */
+public enum CountStrategy {
+    /**
+     * Always run a count query.
+     */
+    EXACT,
+    /**
+     * Skip the count when the total can be derived from the page itself, e.g. a short first page. Otherwise count
+     * with a query that keeps only the filter joins and drops the ordering.
+     */
+    OPTIMIZED,
+    /**
+     * Like {@link #OPTIMIZED}, but stop counting at the configured count limit.
+     */
+    BOUNDED,
+    /**
+     * Never count: fetch one extra row to know whether there is a next page.
+     */
+    SKIP
+}
@@ -0,0 +1,114 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.Map;
+
+/**
+ * Hints that configure the executor per call. They are passed with the JPA query hints, but are never handed to the
+ * persistence provider.
+ */
+public class DynamicQueryHints {
+
+    public static final String PREFIX = "dynamicquery.";
+
+    /**
+     * A {@link CountStrategy}, or its name.
+     */
+    public static final String COUNT_STRATEGY = PREFIX + "countStrategy";
+
+    /**
+     * The maximum total counted by {@link CountStrategy#BOUNDED}.
+     */
+    public static final String COUNT_LIMIT = PREFIX + "countLimit";
+
+    /**
+     * A {@link CollectionPredicateMode}, or its name.
+     */
+    public static final String COLLECTION_PREDICATE_MODE = PREFIX + "collectionPredicateMode";
+
+    /**
+     * An {@link InListStrategy}, or its name, used for every {@code in} and {@code not_in} filter.
+     */
+    public static final String IN_LIST_STRATEGY = PREFIX + "inListStrategy";
+
+    /**
+     * Associations to load with the results, as a comma separated string or a collection of property paths.
+     */
+    public static final String FETCH = PREFIX + "fetch";
+
+    /**
+     * The JDBC fetch size of streamed queries.
+     */
+    public static final String FETCH_SIZE = PREFIX + "fetchSize";
+
+    /**
+     * Clear the persistence context every n streamed rows instead of detaching each row, or, for {@code forEachBatch},
+     * after the batch that reaches n rows since the last clear instead of detaching each batch.
+     */
+    public static final String CLEAR_INTERVAL = PREFIX + "clearInterval";
+
+    /**
+     * The most groups {@code findGroups} returns, the first ones in the order of the groupings. For
+     * {@code findFacets}, the most value combinations facets counted by one query may have before each is counted on
+     * its own.
+     */
+    public static final String GROUP_LIMIT = PREFIX + "groupLimit";
+
+    /**
+     * {@code true} to load the results read-only: Hibernate keeps no snapshots for dirty checking and, unless the
+     * transaction writes, does not flush before the query. Entities loaded this way are never updated, even if modified.
+     */
+    public static final String READ_ONLY = PREFIX + "readOnly";
+
+    /**
+     * {@code true} to stream through a stateless session, for large results that are only read. Applies to
+     * {@code streamAll} and {@code forEachBatch}; lazy associations of the rows cannot be loaded.
+     */
+    public static final String STATELESS = PREFIX + "stateless";
+
+    /**
+     * {@code false} to bypass the {@link ResultCache} of the executor for this call.
+     */
+    public static final String CACHE = PREFIX + "cache";
+
+    /**
+     * {@code false} to not share the execution of this call through the {@link QueryCoalescer} of the executor.
+     */
+    public static final String COALESCE = PREFIX + "coalesce";
+
+    /**
+     * {@code true} to allow the call on one of the {@link ReadReplicas} of the executor, or the replication lag it
+     * tolerates as a {@link java.time.Duration} or in milliseconds; {@code false} to keep it on the primary.
+     */
+    public static final String REPLICA = PREFIX + "replica";
+
+    private DynamicQueryHints() {
+    }
+
+    static boolean isQueryHint(String key) {
+        return !key.startsWith(PREFIX);
+    }
+
+    static <E extends Enum<E>> E getEnum(Map<String, Object> hints, String key, Class<E> type, E defaultValue) {
+        Object value = hints.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return type.isInstance(value) ? type.cast(value) : Enum.valueOf(type, value.toString().toUpperCase());
+    }
+
+    static boolean getBoolean(Map<String, Object> hints, String key, boolean defaultValue) {
+        Object value = hints.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString());
+    }
+
+    static long getLong(Map<String, Object> hints, String key, long defaultValue) {
+        Object value = hints.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+    }
+}
@@ -1,31 +1,69 @@
 package com.bislan.dynamicquery.library;
 
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceUnitUtil;
 
+import org.hibernate.jpa.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.PredicateRewrite;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+import com.bislan.dynamicquery.library.expression.QueryPolicy;
 import com.bislan.dynamicquery.library.expression.operator.RelationType;
+import com.bislan.dynamicquery.library.metrics.QueryListener;
+import com.bislan.dynamicquery.library.metrics.QueryPhase;
+import com.querydsl.core.NonUniqueResultException;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.CollectionExpression;
 import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
 import com.querydsl.core.types.Predicate;
-import com.querydsl.core.types.dsl.PathBuilder;
-import com.querydsl.core.util.StringUtils;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.jpa.impl.JPAQuery;
 
 public interface DynamicQuerydslPredicateExecutor<T> {
 
     Logger logger = LoggerFactory.getLogger(DynamicQuerydslPredicateExecutor.class);
 
+    /**
+     * The maximum number of ids per query when the entities of a collection fetch are loaded by id.
+     */
+    int FETCH_BATCH_SIZE = 1000;
+
     default Optional<T> findOne(QueryParameters params) {
         return findOne(params, Collections.emptyMap());
     }
@@ -35,15 +73,19 @@ public interface DynamicQuerydslPredicateExecutor<T> {
     }
 
     default Optional<T> findOne(Predicate predicate, Map<String, Object> hints) {
-        JPAQuery<T> query = createQuery(predicate, hints);
-        logQuery(query);
-        return Optional.ofNullable(query.fetchOne());
+        final QueryExecution execution = startExecution();
+        return execution.complete(fetchOne(createQuery(predicate, hints, execution),
+                FetchPlan.of(getEntityClass(), null, hints), hints, execution));
     }
 
     default Optional<T> findOne(QueryParameters params, Map<String, Object> hints) {
-        JPAQuery<T> query = createQuery(params, hints);
-        logQuery(query);
-        return Optional.ofNullable(query.fetchOne());
+        final ReadReplicas.Route route = routeOf(params, false, hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findOne(params, hints));
+        }
+        final QueryExecution execution = startExecution();
+        return execution.complete(fetchOne(createQuery(params, hints, execution),
+                FetchPlan.of(getEntityClass(), params, hints), hints, execution));
     }
 
     default List<T> findAll(QueryParameters params) {
@@ -55,15 +97,13 @@ public interface DynamicQuerydslPredicateExecutor<T> {
     }
 
     default List<T> findAll(Predicate predicate, Map<String, Object> hints) {
-        JPAQuery<T> query = createQuery(predicate, hints);
-        logQuery(query);
-        return query.fetch();
+        final QueryExecution execution = startExecution();
+        return execution.complete(fetchEntities(createQuery(predicate, hints, execution),
+                FetchPlan.of(getEntityClass(), null, hints), hints, execution));
     }
 
     default List<T> findAll(QueryParameters params, Map<String, Object> hints) {
-        JPAQuery<T> query = createQuery(params, hints);
-        logQuery(query);
-        return query.fetch();
+        return findAll(params, Sort.unsorted(), hints);
     }
 
     default List<T> findAll(QueryParameters params, Sort sort) {
@@ -75,15 +115,22 @@ public interface DynamicQuerydslPredicateExecutor<T> {
     }
 
     default List<T> findAll(QueryParameters params, Sort sort, Map<String, Object> hints) {
-        JPAQuery<T> query = QuerydslHelper.applySorting(createQuery(params, hints), sort, getEntityPath());
-        logQuery(query);
-        return query.fetch();
+        final ReadReplicas.Route route = routeOf(params, true, hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findAll(params, sort, hints));
+        }
+        final FetchPlan plan = FetchPlan.of(getEntityClass(), params, hints);
+        return cached(params, "list", sort, null, hints, () -> {
+            final QueryExecution execution = startExecution();
+            JPAQuery<T> query = applySorting(createQuery(params, hints, execution), sort, execution);
+            return execution.complete(fetchEntities(query, plan, hints, execution));
+        }, content -> ResultCache.CachedResult.of(idsOf(content)), cached -> loadCached(cached, plan, hints));
     }
 
     default List<T> findAll(Predicate predicate, Sort sort, Map<String, Object> hints) {
-        JPAQuery<T> query = QuerydslHelper.applySorting(createQuery(predicate, hints), sort, getEntityPath());
-        logQuery(query);
-        return query.fetch();
+        final QueryExecution execution = startExecution();
+        JPAQuery<T> query = applySorting(createQuery(predicate, hints, execution), sort, execution);
+        return execution.complete(fetchEntities(query, FetchPlan.of(getEntityClass(), null, hints), hints, execution));
     }
 
     default Page<T> findAll(QueryParameters params, Pageable pageable) {
@@ -95,24 +142,631 @@ public interface DynamicQuerydslPredicateExecutor<T> {
     }
 
     default Page<T> findAll(QueryParameters params, Pageable pageable, Map<String, Object> hints) {
-        JPAQuery<T> query = createQuery(params, hints);
-        JPAQuery<T> paginatedQuery = QuerydslHelper.applyPagination(createQuery(params, hints), pageable, getEntityPath());
-        logQuery(paginatedQuery);
-        return new PageImpl(paginatedQuery.fetch(), pageable, query.fetchCount());
+        final ReadReplicas.Route route = routeOf(params, pageable.isUnpaged(), hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findAll(params, pageable, hints));
+        }
+        final FetchPlan plan = FetchPlan.of(getEntityClass(), params, hints);
+        return cached(params, "page", Sort.unsorted(), pageable, hints, () -> {
+            final QueryExecution execution = startExecution();
+            return execution.complete(fetchPage(createQuery(params, hints, execution), pageable, hints,
+                    query -> fetchEntities(query, plan, hints, execution), execution));
+        }, page -> ResultCache.CachedResult.ofPage(idsOf(page.getContent()), page.getTotalElements(), isTotalExact(page)),
+                cached -> toPage(loadCached(cached, plan, hints), pageable, cached));
     }
 
     default Page<T> findAll(Predicate predicate, Pageable pageable, Map<String, Object> hints) {
-        JPAQuery<T> query = createQuery(predicate, hints);
-        JPAQuery<T> paginatedQuery = QuerydslHelper.applyPagination(createQuery(predicate, hints), pageable, getEntityPath());
-        logQuery(paginatedQuery);
-        return new PageImpl(paginatedQuery.fetch(), pageable, query.fetchCount());
+        final QueryExecution execution = startExecution();
+        final FetchPlan plan = FetchPlan.of(getEntityClass(), null, hints);
+        return execution.complete(fetchPage(createQuery(predicate, hints, execution), pageable, hints,
+                query -> fetchEntities(query, plan, hints, execution), execution));
+    }
+
+    default long count(QueryParameters params) {
+        return count(params, Collections.emptyMap());
+    }
+
+    /**
+     * Counts the root entities matching the parameters.
+     */
+    default long count(QueryParameters params, Map<String, Object> hints) {
+        final ReadReplicas.Route route = routeOf(params, false, hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.count(params, hints));
+        }
+        final QueryExecution execution = startExecution();
+        return execution.complete(count(createQuery(params, hints, execution), execution), 1);
+    }
+
+    default Slice<T> findSlice(QueryParameters params, Pageable pageable) {
+        return findSlice(params, pageable, Collections.emptyMap());
+    }
+
+    default Slice<T> findSlice(Predicate predicate, Pageable pageable) {
+        return findSlice(predicate, pageable, Collections.emptyMap());
+    }
+
+    default Slice<T> findSlice(QueryParameters params, Pageable pageable, Map<String, Object> hints) {
+        final ReadReplicas.Route route = routeOf(params, pageable.isUnpaged(), hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findSlice(params, pageable, hints));
+        }
+        final FetchPlan plan = FetchPlan.of(getEntityClass(), params, hints);
+        return cached(params, "slice", Sort.unsorted(), pageable, hints, () -> {
+            final QueryExecution execution = startExecution();
+            return execution.complete(fetchSlice(createQuery(params, hints, execution), pageable,
+                    query -> fetchEntities(query, plan, hints, execution), execution));
+        }, slice -> ResultCache.CachedResult.ofSlice(idsOf(slice.getContent()), slice.hasNext()),
+                cached -> new SliceImpl<>(loadCached(cached, plan, hints), pageable, cached.hasNext()));
+    }
+
+    default Slice<T> findSlice(Predicate predicate, Pageable pageable, Map<String, Object> hints) {
+        final QueryExecution execution = startExecution();
+        final FetchPlan plan = FetchPlan.of(getEntityClass(), null, hints);
+        return execution.complete(fetchSlice(createQuery(predicate, hints, execution), pageable,
+                query -> fetchEntities(query, plan, hints, execution), execution));
+    }
+
+    default List<Tuple> findTuples(QueryParameters params, List<String> fields, Sort sort) {
+        return findTuples(params, fields, sort, Collections.emptyMap());
+    }
+
+    /**
+     * Selects only the given properties, e.g. {@code customer.name}, instead of hydrating entities. Associations the
+     * filter joined are reused, others are left joined.
+     */
+    default List<Tuple> findTuples(QueryParameters params, List<String> fields, Sort sort, Map<String, Object> hints) {
+        final ReadReplicas.Route route = routeOf(params, true, hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findTuples(params, fields, sort, hints));
+        }
+        final QueryExecution execution = startExecution();
+        JPAQuery<T> query = createQuery(params, hints, execution);
+        JPAQuery<Tuple> projected = query.select(Projections.tuple(resolveFields(query, fields)));
+        projected = applySorting(projected, sort, execution);
+        return execution.complete(fetch(projected, QueryPhase.EXECUTE, execution));
+    }
+
+    /**
+     * Selects the properties listed by the {@link QueryParameters#FieldsKey} parameter, keyed by property path.
+     */
+    default List<Map<String, Object>> findFields(QueryParameters params, Sort sort) {
+        return findFields(params, sort, Collections.emptyMap());
+    }
+
+    default List<Map<String, Object>> findFields(QueryParameters params, Sort sort, Map<String, Object> hints) {
+        final ReadReplicas.Route route = routeOf(params, true, hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findFields(params, sort, hints));
+        }
+        final List<String> fields = params.getFields();
+        return cached(params, "fields", sort, null, hints, () -> findTuples(params, fields, sort, hints).stream()
+                .map(tuple -> toMap(fields, tuple))
+                .collect(Collectors.toList()), ResultCache.CachedResult::of, cached -> copyRows(cached.getValues()));
+    }
+
+    default Page<Map<String, Object>> findFields(QueryParameters params, Pageable pageable) {
+        return findFields(params, pageable, Collections.emptyMap());
+    }
+
+    default Page<Map<String, Object>> findFields(QueryParameters params, Pageable pageable, Map<String, Object> hints) {
+        final ReadReplicas.Route route = routeOf(params, pageable.isUnpaged(), hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findFields(params, pageable, hints));
+        }
+        final List<String> fields = params.getFields();
+        return cached(params, "fields", Sort.unsorted(), pageable, hints, () -> {
+            final QueryExecution execution = startExecution();
+            JPAQuery<T> query = createQuery(params, hints, execution);
+            // cloned before the fields are resolved, whose left joins would turn the count into a distinct count
+            final JPAQuery<T> countQuery = query.clone();
+            JPAQuery<Tuple> projected = query.select(Projections.tuple(resolveFields(query, fields)));
+            return execution.complete(fetchPage(projected, countQuery, pageable, hints,
+                    q -> fetch(q, QueryPhase.EXECUTE, execution), execution).map(tuple -> toMap(fields, tuple)));
+        }, page -> ResultCache.CachedResult.ofPage(page.getContent(), page.getTotalElements(), isTotalExact(page)),
+                cached -> toPage(copyRows(cached.getValues()), pageable, cached));
+    }
+
+    default <R> List<R> findAll(QueryParameters params, Class<R> type, Sort sort) {
+        return findAll(params, type, sort, Collections.emptyMap());
+    }
+
+    /**
+     * Projects into {@code type} through its constructor. The constructor arguments are the properties listed by the
+     * {@link QueryParameters#FieldsKey} parameter or, if there is none, the components of a record type.
+     */
+    default <R> List<R> findAll(QueryParameters params, Class<R> type, Sort sort, Map<String, Object> hints) {
+        final ReadReplicas.Route route = routeOf(params, true, hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findAll(params, type, sort, hints));
+        }
+        List<String> fields = params.getFields();
+        if (fields.isEmpty() && type.isRecord()) {
+            fields = Stream.of(type.getRecordComponents()).map(RecordComponent::getName).collect(Collectors.toList());
+        }
+        if (fields.isEmpty()) {
+            throw new RuntimeException("No fields to project into " + type.getName());
+        }
+        final QueryExecution execution = startExecution();
+        JPAQuery<T> query = createQuery(params, hints, execution);
+        JPAQuery<R> projected = query.select(Projections.constructor(type, resolveFields(query, fields)));
+        projected = applySorting(projected, sort, execution);
+        return execution.complete(fetch(projected, QueryPhase.EXECUTE, execution));
+    }
+
+    default List<Map<String, Object>> findGroups(QueryParameters params, List<String> groupBy, List<Aggregate> aggregates) {
+        return findGroups(params, groupBy, aggregates, Collections.emptyMap());
+    }
+
+    /**
+     * Groups the matching root entities by the given properties, e.g. {@code status} or {@code yearMonth(created)},
+     * and computes the aggregates of every group. The rows are keyed by grouping and by {@link Aggregate#getName()},
+     * ordered by the groupings. Filters on collections default to {@link CollectionPredicateMode#EXISTS}, so that
+     * every root is aggregated once; only a grouping on a collection repeats a root, once per element. When the
+     * filters are joined, sums, averages and counts of a property aggregate the matching roots through a subquery,
+     * so that the joins do not add a root up more than once.
+     */
+    default List<Map<String, Object>> findGroups(QueryParameters params, List<String> groupBy, List<Aggregate> aggregates,
+            Map<String, Object> hints) {
+        final ReadReplicas.Route route = routeOf(params, false, hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findGroups(params, groupBy, aggregates, hints));
+        }
+        if (aggregates.isEmpty()) {
+            throw new RuntimeException("No aggregates to compute");
+        }
+        getQueryPolicy().checkSorts(getEntityClass(), groupBy.stream().map(Aggregations::propertyOf).collect(Collectors.toList()));
+        Map<String, Object> aggregationHints = hints;
+        if (!hints.containsKey(DynamicQueryHints.COLLECTION_PREDICATE_MODE)) {
+            aggregationHints = new HashMap<>(hints);
+            aggregationHints.put(DynamicQueryHints.COLLECTION_PREDICATE_MODE, CollectionPredicateMode.EXISTS);
+        }
+        final QueryExecution execution = startExecution();
+        JPAQuery<T> query = createQuery(params, aggregationHints, execution);
+        if (query.getMetadata().getJoins().size() > 1 && Aggregations.countsRepeatedRoots(aggregates)) {
+            query = Aggregations.overMatchingRoots(initJPAQuery(aggregationHints), query, getEntityPath());
+        }
+        final PathResolver resolver = new PathResolver(query, getEntityPath());
+        final Expression<?>[] groups = groupBy.stream()
+                .map(group -> Aggregations.group(resolver, group))
+                .toArray(Expression<?>[]::new);
+        final boolean distinct = query.getMetadata().getJoins().size() > 1;
+        final List<String> names = new ArrayList<>(groupBy);
+        final List<Expression<?>> selection = new ArrayList<>(List.of(groups));
+        for (Aggregate aggregate : aggregates) {
+            names.add(aggregate.getName());
+            selection.add(Aggregations.aggregate(resolver, getEntityPath(), aggregate, distinct));
+        }
+        JPAQuery<Tuple> grouped = query.select(Projections.tuple(selection.toArray(Expression<?>[]::new))).groupBy(groups);
+        for (Expression<?> group : groups) {
+            grouped.orderBy(Aggregations.ascending(group));
+        }
+        if (hints.containsKey(DynamicQueryHints.GROUP_LIMIT)) {
+            grouped.limit(DynamicQueryHints.getLong(hints, DynamicQueryHints.GROUP_LIMIT, Long.MAX_VALUE));
+        }
+        return execution.complete(fetch(grouped, QueryPhase.EXECUTE, execution).stream()
+                .map(tuple -> toMap(names, tuple))
+                .collect(Collectors.toList()));
+    }
+
+    default Map<String, Map<Object, Long>> findFacets(QueryParameters params, List<Facet> facets) {
+        return findFacets(params, facets, Collections.emptyMap());
+    }
+
+    /**
+     * Counts the matching root entities per value of every facet, keyed by facet grouping, with the values ordered by
+     * descending count. Facets that share their filter are counted in one grouped query, unless their values have
+     * too many combinations; a facet that {@link Facet#excludingOwnFilter() excludes its own filter} needs a query of
+     * its own when that filter is set.
+     */
+    default Map<String, Map<Object, Long>> findFacets(QueryParameters params, List<Facet> facets, Map<String, Object> hints) {
+        return Aggregations.facets(this, params, facets, hints);
+    }
+
+    private Expression<?>[] resolveFields(JPAQuery<T> query, List<String> fields) {
+        if (fields.isEmpty()) {
+            throw new RuntimeException("No fields to select, use the " + QueryParameters.FieldsKey + " parameter");
+        }
+        final PathResolver resolver = new PathResolver(query, getEntityPath());
+        return fields.stream()
+                .map(resolver::resolve)
+                .toArray(Expression<?>[]::new);
+    }
+
+    private static Map<String, Object> toMap(List<String> fields, Tuple tuple) {
+        final Object[] values = tuple.toArray();
+        final Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            row.put(fields.get(i), values[i]);
+        }
+        return row;
+    }
+
+    /**
+     * Runs the requests as one batch and returns their results in the order of the requests; unpaged requests get a
+     * single page. Identical requests run once, and unpaged {@code eq} and {@code in} lookups on the same property of
+     * the root entity are combined into one query. With a {@link #getBatchExecutor() batch executor} the queries run
+     * concurrently, each on its own entity manager, so their entities are returned detached.
+     */
+    default List<Page<T>> findBatch(List<BatchRequest> requests) {
+        return QueryBatch.execute(this, requests);
+    }
+
+    default Stream<T> streamAll(QueryParameters params, Sort sort) {
+        return streamAll(params, sort, Collections.emptyMap());
+    }
+
+    default Stream<T> streamAll(Predicate predicate, Sort sort) {
+        return streamAll(predicate, sort, Collections.emptyMap());
+    }
+
+    /**
+     * Streams the result from a scrollable cursor instead of materializing it. Rows are detached once consumed, so
+     * they should not be kept around for lazy loading. The stream holds a JDBC connection and must be closed, within
+     * the surrounding transaction.
+     */
+    default Stream<T> streamAll(QueryParameters params, Sort sort, Map<String, Object> hints) {
+        final QueryExecution execution = startExecution();
+        JPAQuery<T> query = applySorting(createQuery(params, hints, execution), sort, execution);
+        return execution.complete(stream(query, hints, execution));
+    }
+
+    default Stream<T> streamAll(Predicate predicate, Sort sort, Map<String, Object> hints) {
+        final QueryExecution execution = startExecution();
+        JPAQuery<T> query = applySorting(createQuery(predicate, hints, execution), sort, execution);
+        return execution.complete(stream(query, hints, execution));
+    }
+
+    default void forEachBatch(QueryParameters params, Sort sort, int batchSize, Consumer<List<T>> consumer) {
+        forEachBatch(params, sort, batchSize, consumer, Collections.emptyMap());
+    }
+
+    default void forEachBatch(Predicate predicate, Sort sort, int batchSize, Consumer<List<T>> consumer) {
+        forEachBatch(predicate, sort, batchSize, consumer, Collections.emptyMap());
+    }
+
+    default void forEachBatch(QueryParameters params, Sort sort, int batchSize, Consumer<List<T>> consumer,
+            Map<String, Object> hints) {
+        final QueryExecution execution = startExecution();
+        JPAQuery<T> query = applySorting(createQuery(params, hints, execution), sort, execution);
+        QueryStreams.forEachBatch(execution.complete(scroll(query, hints, execution)), getEntityManager(), batchSize,
+                (int) DynamicQueryHints.getLong(hints, DynamicQueryHints.CLEAR_INTERVAL, 0), consumer);
+    }
+
+    default void forEachBatch(Predicate predicate, Sort sort, int batchSize, Consumer<List<T>> consumer,
+            Map<String, Object> hints) {
+        final QueryExecution execution = startExecution();
+        JPAQuery<T> query = applySorting(createQuery(predicate, hints, execution), sort, execution);
+        QueryStreams.forEachBatch(execution.complete(scroll(query, hints, execution)), getEntityManager(), batchSize,
+                (int) DynamicQueryHints.getLong(hints, DynamicQueryHints.CLEAR_INTERVAL, 0), consumer);
+    }
+
+    private Stream<T> stream(JPAQuery<T> query, Map<String, Object> hints, QueryExecution execution) {
+        if (DynamicQueryHints.getBoolean(hints, DynamicQueryHints.STATELESS, false)) {
+            // nothing to detach, the rows never enter the persistence context
+            return scroll(query, hints, execution);
+        }
+        final int clearInterval = (int) DynamicQueryHints.getLong(hints, DynamicQueryHints.CLEAR_INTERVAL, 0);
+        return QueryStreams.detaching(scroll(query, hints, execution), getEntityManager(), clearInterval);
+    }
+
+    private Stream<T> scroll(JPAQuery<T> query, Map<String, Object> hints, QueryExecution execution) {
+        final int fetchSize = (int) DynamicQueryHints.getLong(hints, DynamicQueryHints.FETCH_SIZE, getFetchSize());
+        if (!hints.containsKey(QueryHints.HINT_FETCH_SIZE)) {
+            query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+        }
+        if (QuerydslHelper.isUnsatisfiable(query)) {
+            return Stream.empty();
+        }
+        logQuery(query);
+        final long start = execution.tick();
+        final Stream<T> stream = DynamicQueryHints.getBoolean(hints, DynamicQueryHints.STATELESS, false)
+                ? QuerydslHelper.streamStateless(query, getEntityManager(), fetchSize)
+                : query.stream();
+        // only opening the cursor is timed, the rows are read while the stream is consumed
+        execution.record(QueryPhase.EXECUTE, start, -1);
+        return stream;
+    }
+
+    default KeysetSlice<T> findKeyset(QueryParameters params, Sort sort, String cursor, int size) {
+        return findKeyset(params, sort, cursor, size, Collections.emptyMap());
+    }
+
+    default KeysetSlice<T> findKeyset(Predicate predicate, Sort sort, String cursor, int size) {
+        return findKeyset(predicate, sort, cursor, size, Collections.emptyMap());
+    }
+
+    /**
+     * Fetches the window of {@code size} rows that follows (or, for a previous cursor, precedes) the cursor, or the
+     * first window when the cursor is {@code null}. The id is appended to the sort to make the ordering unique.
+     */
+    default KeysetSlice<T> findKeyset(QueryParameters params, Sort sort, String cursor, int size, Map<String, Object> hints) {
+        final ReadReplicas.Route route = routeOf(params, false, hints);
+        if (route != null) {
+            return route.run(this, executor -> executor.findKeyset(params, sort, cursor, size, hints));
+        }
+        final QueryExecution execution = startExecution();
+        KeysetSlice<T> slice = fetchKeyset(createQuery(params, hints, execution), sort, cursor, size,
+                FetchPlan.of(getEntityClass(), params, hints), hints, execution);
+        return execution.complete(slice, slice.getContent().size());
+    }
+
+    default KeysetSlice<T> findKeyset(Predicate predicate, Sort sort, String cursor, int size, Map<String, Object> hints) {
+        final QueryExecution execution = startExecution();
+        KeysetSlice<T> slice = fetchKeyset(createQuery(predicate, hints, execution), sort, cursor, size,
+                FetchPlan.of(getEntityClass(), null, hints), hints, execution);
+        return execution.complete(slice, slice.getContent().size());
     }
 
-    private JPAQuery<T> createQuery(QueryParameters params, Map<String, Object> hints) {
+    private KeysetSlice<T> fetchKeyset(JPAQuery<T> query, Sort sort, String cursor, int size, FetchPlan plan,
+            Map<String, Object> hints, QueryExecution execution) {
+        final EntityPath<T> entityPath = getEntityPath();
+        checkSort(sort, execution);
+        final Sort keysetSort = KeysetPagination.withNullHandling(
+                KeysetPagination.withTieBreaker(sort, EntityMetadataRegistry.get(getEntityClass())), getNullHandling());
+        final boolean backward = KeysetPagination.isBackward(cursor);
+        if (cursor != null) {
+            query.where(KeysetPagination.seekPredicate(new PathResolver(query, entityPath), entityPath.getType(), keysetSort, cursor));
+        }
+        query = QuerydslHelper.applySorting(query, backward ? KeysetPagination.reverse(keysetSort) : keysetSort, entityPath,
+                getNullHandling());
+        query.limit(size + 1L);
+        List<T> content = new ArrayList<>(fetchEntities(query, plan, hints, execution));
+        final boolean more = content.size() > size;
+        if (more) {
+            content = new ArrayList<>(content.subList(0, size));
+        }
+        if (backward) {
+            Collections.reverse(content);
+        }
+        final boolean hasNext = backward || more;
+        final boolean hasPrevious = backward ? more : cursor != null;
+        if (content.isEmpty()) {
+            return new KeysetSlice<>(content, null, null);
+        }
+        return new KeysetSlice<>(content,
+                hasNext ? KeysetPagination.encode(content.get(content.size() - 1), keysetSort, false) : null,
+                hasPrevious ? KeysetPagination.encode(content.get(0), keysetSort, true) : null);
+    }
+
+    private <R> Page<R> fetchPage(JPAQuery<R> query, Pageable pageable, Map<String, Object> hints,
+            Function<JPAQuery<R>, List<R>> fetcher, QueryExecution execution) {
+        // the count query is taken before sorting, so it never carries an order by
+        return fetchPage(query, query.clone(), pageable, hints, fetcher, execution);
+    }
+
+    /**
+     * @param countQuery the query the total is counted with, without the joins only the selection needs
+     */
+    private <R> Page<R> fetchPage(JPAQuery<R> query, JPAQuery<?> countQuery, Pageable pageable, Map<String, Object> hints,
+            Function<JPAQuery<R>, List<R>> fetcher, QueryExecution execution) {
+        final CountStrategy strategy =
+                DynamicQueryHints.getEnum(hints, DynamicQueryHints.COUNT_STRATEGY, CountStrategy.class, getCountStrategy());
+        if (strategy == CountStrategy.SKIP) {
+            Slice<R> slice = fetchSlice(query, pageable, fetcher, execution);
+            if (pageable.isUnpaged()) {
+                return new PageImpl<>(slice.getContent(), pageable, slice.getNumberOfElements());
+            }
+            long total = pageable.getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+            return new BoundedPageImpl<>(slice.getContent(), pageable, total, !slice.hasNext());
+        }
+        checkSort(pageable.getSort(), execution);
+        JPAQuery<R> paginatedQuery = QuerydslHelper.applyPagination(query, pageable, getEntityPath(), getNullHandling());
+        List<R> content = fetcher.apply(paginatedQuery);
+        if (strategy == CountStrategy.EXACT) {
+            return new PageImpl<>(content, pageable, count(countQuery, execution));
+        } else if (strategy == CountStrategy.BOUNDED) {
+            final long limit = DynamicQueryHints.getLong(hints, DynamicQueryHints.COUNT_LIMIT, getCountLimit());
+            final AtomicBoolean exact = new AtomicBoolean(true);
+            Page<R> page = PageableExecutionUtils.getPage(content, pageable, () -> {
+                long total = countBounded(countQuery, limit, execution);
+                exact.set(total <= limit);
+                return Math.min(total, limit);
+            });
+            return new BoundedPageImpl<>(content, pageable, page.getTotalElements(), exact.get());
+        }
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(countQuery, execution));
+    }
+
+    private <R> Slice<R> fetchSlice(JPAQuery<R> query, Pageable pageable, Function<JPAQuery<R>, List<R>> fetcher,
+            QueryExecution execution) {
+        checkSort(pageable.getSort(), execution);
+        JPAQuery<R> paginatedQuery = QuerydslHelper.applySlicePagination(query, pageable, getEntityPath(), getNullHandling());
+        return QuerydslHelper.toSlice(fetcher.apply(paginatedQuery), pageable);
+    }
+
+    private Optional<T> fetchOne(JPAQuery<T> query, FetchPlan plan, Map<String, Object> hints, QueryExecution execution) {
+        final List<T> result = fetchEntities(query.limit(2), plan, hints, execution);
+        if (result.size() > 1) {
+            throw new NonUniqueResultException();
+        }
+        return result.stream().findFirst();
+    }
+
+    /**
+     * Fetches the root entities of the query together with the associations of the fetch plan. To-one associations
+     * are fetch joined into the query. Collections would multiply the rows a limit applies to, so the ids of the page
+     * are selected first and the entities are then loaded by id.
+     */
+    private List<T> fetchEntities(JPAQuery<T> query, FetchPlan plan, Map<String, Object> hints, QueryExecution execution) {
+        if (plan.isEmpty()) {
+            return fetch(query, QueryPhase.EXECUTE, execution);
+        }
+        if (!plan.hasCollections()) {
+            JPAQuery<T> fetchQuery = QuerydslHelper.withFetchJoins(query, getEntityManager(), plan.getAliases());
+            applyHints(fetchQuery, hints);
+            final PathResolver resolver = new PathResolver(fetchQuery, getEntityPath());
+            plan.getPaths().forEach(resolver::fetch);
+            return fetch(fetchQuery, QueryPhase.EXECUTE, execution);
+        }
+        final PropertyMetadata id = EntityMetadataRegistry.get(getEntityClass()).getId();
+        if (id == null) {
+            throw new RuntimeException("Cannot fetch collections of " + getEntityClass().getName() + " without an id");
+        }
+        final Path<?> idPath = Expressions.path(id.getType(), getEntityPath(), id.getName());
+        final List<Object> ids = new ArrayList<>(new LinkedHashSet<>(fetch(query.select(idPath), QueryPhase.EXECUTE, execution)));
+        return loadByIds(ids, plan, hints, execution);
+    }
+
+    /**
+     * Loads the entities with the given ids, in the order of the ids, together with the associations of the plan.
+     */
+    private List<T> loadByIds(List<?> ids, FetchPlan plan, Map<String, Object> hints, QueryExecution execution) {
+        final PropertyMetadata id = EntityMetadataRegistry.get(getEntityClass()).getId();
+        final Path<?> idPath = Expressions.path(id.getType(), getEntityPath(), id.getName());
+        final PersistenceUnitUtil util = getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil();
+        final Map<Object, T> entities = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += FETCH_BATCH_SIZE) {
+            JPAQuery<T> fetchQuery = initJPAQuery(hints).distinct();
+            final PathResolver resolver = new PathResolver(fetchQuery, getEntityPath());
+            plan.getPaths().forEach(resolver::fetch);
+            fetchQuery.where(Expressions.predicate(Ops.IN, idPath,
+                    Expressions.constant(ids.subList(from, Math.min(from + FETCH_BATCH_SIZE, ids.size())))));
+            fetch(fetchQuery, QueryPhase.FETCH, execution).forEach(entity -> entities.put(util.getIdentifier(entity), entity));
+        }
+        return ids.stream().map(entities::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private <Q extends JPAQuery<?>> Q applySorting(Q query, Sort sort, QueryExecution execution) {
+        checkSort(sort, execution);
+        return QuerydslHelper.applySorting(query, sort, getEntityPath(), getNullHandling());
+    }
+
+    private void checkSort(Sort sort, QueryExecution execution) {
+        execution.setSort(sort);
+        getQueryPolicy().checkSorts(getEntityClass(), sort.stream().map(Sort.Order::getProperty).collect(Collectors.toList()));
+    }
+
+    /**
+     * Runs the query through the {@link ResultCache} of the executor, unless there is none, the
+     * {@link DynamicQueryHints#CACHE} hint is {@code false} or the call runs in a transaction that
+     * {@link Transactions#isReadOnly may have written}, whose uncommitted rows no other caller may see and which must
+     * read its own writes. It runs through the {@link QueryCoalescer} when the call {@link #isCoalescable may share}
+     * its execution.
+     */
+    private <R> R cached(QueryParameters params, String kind, Sort sort, Pageable pageable, Map<String, Object> hints,
+            Supplier<R> query, Function<R, ResultCache.CachedResult> toCached, Function<ResultCache.CachedResult, R> fromCached) {
+        final ResultCache cache = getResultCache() != null && DynamicQueryHints.getBoolean(hints, DynamicQueryHints.CACHE, true)
+                && Transactions.isReadOnly(getEntityManager()) ? getResultCache() : null;
+        final QueryCoalescer coalescer = isCoalescable(hints) ? getQueryCoalescer() : null;
+        if (cache == null && coalescer == null) {
+            return query.get();
+        }
+        final ResultCache.Key key = ResultCache.keyOf(getEntityClass(), kind, params, sort, pageable, hints);
+        if (cache == null) {
+            return coalescer.execute(key, query, toCached, fromCached);
+        }
+        final ResultCache.CachedResult cached = cache.get(getEntityClass(), key);
+        if (cached != null) {
+            return fromCached.apply(cached);
+        }
+        final long epoch = cache.getEpoch();
+        final R result = coalescer == null ? query.get() : coalescer.execute(key, query, toCached, fromCached);
+        cache.put(key, toCached.apply(result), ResultCache.typesOf(getEntityClass(), params, sort, pageable), epoch);
+        return result;
+    }
+
+    /**
+     * Whether the call may share the execution of an identical concurrent call. A transaction that wrote may see rows
+     * no other caller can, and a repeatable read transaction must see its own snapshot, so only calls outside of a
+     * transaction or in a {@link Transactions#isReadOnly read-only}, {@link Transactions#isReadCommitted read committed}
+     * one are coalesced.
+     */
+    private boolean isCoalescable(Map<String, Object> hints) {
+        if (getQueryCoalescer() == null || !DynamicQueryHints.getBoolean(hints, DynamicQueryHints.COALESCE, true)) {
+            return false;
+        }
+        return Transactions.isReadOnly(getEntityManager()) && Transactions.isReadCommitted(getEntityManager());
+    }
+
+    private List<T> loadCached(ResultCache.CachedResult cached, FetchPlan plan, Map<String, Object> hints) {
+        final QueryExecution execution = startExecution();
+        return execution.complete(loadByIds(cached.getValues(), plan, hints, execution));
+    }
+
+    private List<Object> idsOf(List<T> entities) {
+        final PersistenceUnitUtil util = getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil();
+        return entities.stream().map(util::getIdentifier).collect(Collectors.toList());
+    }
+
+    private static <R> Page<R> toPage(List<R> content, Pageable pageable, ResultCache.CachedResult cached) {
+        if (cached.isTotalExact()) {
+            return new PageImpl<>(content, pageable, cached.getTotal());
+        }
+        return new BoundedPageImpl<>(content, pageable, cached.getTotal(), false);
+    }
+
+    private static boolean isTotalExact(Page<?> page) {
+        return !(page instanceof BoundedPageImpl) || ((BoundedPageImpl<?>) page).isTotalExact();
+    }
+
+    private static List<Map<String, Object>> copyRows(List<Map<String, Object>> rows) {
+        return rows.stream().map(LinkedHashMap::new).collect(Collectors.toList());
+    }
+
+    private <R> List<R> fetch(JPAQuery<R> query, QueryPhase phase, QueryExecution execution) {
+        if (QuerydslHelper.isUnsatisfiable(query)) {
+            return new ArrayList<>();
+        }
+        logQuery(query);
+        final long start = execution.tick();
+        final List<R> result = query.fetch();
+        execution.record(phase, start, result.size());
+        return result;
+    }
+
+    private long count(JPAQuery<?> query, QueryExecution execution) {
+        if (QuerydslHelper.isUnsatisfiable(query)) {
+            return 0L;
+        }
+        // joins may multiply the root rows, in which case only distinct roots are counted
+        final boolean distinct = query.getMetadata().getJoins().size() > 1;
+        JPAQuery<Long> countQuery = query.select(Expressions.numberOperation(Long.class,
+                distinct ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG, getEntityPath()));
+        logQuery(countQuery);
+        final long start = execution.tick();
+        Long total = countQuery.fetchOne();
+        execution.record(QueryPhase.COUNT, start, 1);
+        return total != null ? total : 0L;
+    }
+
+    private long countBounded(JPAQuery<?> query, long limit, QueryExecution execution) {
+        if (QuerydslHelper.isUnsatisfiable(query)) {
+            return 0L;
+        }
+        final PropertyMetadata id = EntityMetadataRegistry.get(getEntityClass()).getId();
+        if (id == null) {
+            return count(query, execution);
+        }
+        JPAQuery<?> countQuery = query.select(Expressions.path(id.getType(), getEntityPath(), id.getName()))
+                .distinct()
+                .limit(limit + 1);
+        logQuery(countQuery);
+        final long start = execution.tick();
+        final int total = countQuery.fetch().size();
+        execution.record(QueryPhase.COUNT, start, 1);
+        return total;
+    }
+
+    private JPAQuery<T> createQuery(QueryParameters params, Map<String, Object> hints, QueryExecution execution) {
         JPAQuery<T> query = initJPAQuery(hints);
-        QuerydslPredicateBuilder<T> builder = new QuerydslPredicateBuilder<>(getEntityPath().getType(), params);
-        Predicate predicate = builder.toPredicate();
-        for (JoinsData joins : builder.getJoins()) {
+        CollectionPredicateMode collectionMode = DynamicQueryHints.getEnum(hints, DynamicQueryHints.COLLECTION_PREDICATE_MODE,
+                CollectionPredicateMode.class, getCollectionPredicateMode());
+        InListOptions inLists = getInListOptions();
+        InListStrategy listStrategy = DynamicQueryHints.getEnum(hints, DynamicQueryHints.IN_LIST_STRATEGY, InListStrategy.class, null);
+        if (listStrategy != null) {
+            inLists = inLists.with(listStrategy);
+        }
+        QuerydslPredicateBuilder<T> builder = new QuerydslPredicateBuilder<>(getEntityPath().getType(), params, collectionMode,
+                getQueryPolicy(), inLists.forDialect(getEntityManager().getEntityManagerFactory()), getPredicateRewrites());
+        long start = execution.tick();
+        final ExpressionEntries entries = builder.getExpressionEntries();
+        execution.setFilters(entries, () -> QueryPlanCache.shapeOf(getEntityClass(), entries));
+        execution.record(QueryPhase.PARSE, start, entries.getPredicates().size());
+        start = execution.tick();
+        QueryPlan plan = builder.toQueryPlan();
+        Predicate predicate = plan.getPredicate();
+        for (JoinsData joins : plan.getJoins()) {
             if (joins.getRelationType() == RelationType.COLLECTION) {
                 query = query.join((CollectionExpression) joins.getExpr(), joins.getAlias());
             } else if (joins.getRelationType() == RelationType.SINGLE) {
@@ -120,19 +774,18 @@ public interface DynamicQuerydslPredicateExecutor<T> {
             }
         }
         customize(predicate);
-        query = query.where(predicate);
+        query = plan.bind(query.where(predicate), entries);
+        execution.record(QueryPhase.BUILD, start, -1);
         return query;
     }
 
-    private JPAQuery<T> createQuery(Predicate predicate, Map<String, Object> hints) {
+    private JPAQuery<T> createQuery(Predicate predicate, Map<String, Object> hints, QueryExecution execution) {
+        execution.setFilters(null, () -> getEntityClass().getName() + "|predicate");
         JPAQuery<T> query = initJPAQuery(hints);
         customize(predicate);
         if (predicate != null) {
             query = query.where(predicate);
         }
-        for (Map.Entry<String, Object> hint : hints.entrySet()) {
-            query.setHint(hint.getKey(), hint.getValue());
-        }
         return query;
     }
 
@@ -140,26 +793,144 @@ public interface DynamicQuerydslPredicateExecutor<T> {
         JPAQuery<T> query = new JPAQuery<>(getEntityManager());
         EntityPath<T> entityPath = getEntityPath();
         query.select(entityPath).from(entityPath);
+        applyHints(query, hints);
+        return query;
+    }
+
+    private void applyHints(JPAQuery<?> query, Map<String, Object> hints) {
+        if (DynamicQueryHints.getBoolean(hints, DynamicQueryHints.READ_ONLY, isReadOnly())) {
+            query.setHint(QueryHints.HINT_READONLY, true);
+            if (Transactions.isReadOnly(getEntityManager())) {
+                // a writing transaction still flushes, so that the query sees its pending changes
+                query.setFlushMode(FlushModeType.COMMIT);
+            }
+        }
         for (Map.Entry<String, Object> hint : hints.entrySet()) {
-            query.setHint(hint.getKey(), hint.getValue());
+            if (DynamicQueryHints.isQueryHint(hint.getKey())) {
+                query.setHint(hint.getKey(), hint.getValue());
+            }
         }
-        return query;
     }
 
     default Predicate customize(Predicate predicate) {
         return predicate;
     }
 
+    default CountStrategy getCountStrategy() {
+        return CountStrategy.OPTIMIZED;
+    }
+
+    default long getCountLimit() {
+        return 10_000L;
+    }
+
+    default CollectionPredicateMode getCollectionPredicateMode() {
+        return CollectionPredicateMode.JOIN;
+    }
+
+    /**
+     * The rewrites applied to the parsed filters before they are translated. Filters that are known to match nothing
+     * return an empty result without running a query.
+     */
+    default Set<PredicateRewrite> getPredicateRewrites() {
+        return EnumSet.allOf(PredicateRewrite.class);
+    }
+
+    /**
+     * How the values of {@code in} and {@code not_in} filters are bound. The chunk size is capped at the in-list
+     * limit of the dialect.
+     */
+    default InListOptions getInListOptions() {
+        return InListOptions.defaults();
+    }
+
+    /**
+     * Whether queries load their results read-only unless the {@link DynamicQueryHints#READ_ONLY} hint says otherwise.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * Where {@code null} values sort for the orders that do not say, {@link Sort.NullHandling#NATIVE} to leave it to
+     * the database.
+     */
+    default Sort.NullHandling getNullHandling() {
+        return Sort.NullHandling.NATIVE;
+    }
+
+    /**
+     * The JDBC fetch size of streamed queries.
+     */
+    default int getFetchSize() {
+        return 500;
+    }
+
+    /**
+     * The limits the query parameters must stay within, checked before any SQL is run.
+     */
+    default QueryPolicy getQueryPolicy() {
+        return QueryPolicy.unrestricted();
+    }
+
+    /**
+     * The cache of the results of this executor, or {@code null} to not cache them. A cache may be shared between
+     * executors, but must be {@link ResultCache#register registered} with their entity manager factory.
+     */
+    default ResultCache getResultCache() {
+        return null;
+    }
+
+    /**
+     * Lets concurrent identical calls of {@code findAll}, {@code findSlice} and {@code findFields} share one
+     * execution, or {@code null} to run every call on its own.
+     */
+    default QueryCoalescer getQueryCoalescer() {
+        return null;
+    }
+
+    /**
+     * The read replicas calls with {@link QueryParameters} may be routed to, or {@code null} to read the primary only.
+     */
+    default ReadReplicas getReadReplicas() {
+        return null;
+    }
+
+    /**
+     * Runs the queries of a {@link #findBatch(List) batch} concurrently, or {@code null} to run them one after another
+     * on the entity manager of the executor.
+     */
+    default Executor getBatchExecutor() {
+        return null;
+    }
+
+    /**
+     * The listener that receives the timings of the queries. With the default no timings are taken.
+     */
+    default QueryListener getQueryListener() {
+        return QueryListener.NOOP;
+    }
+
     EntityManager getEntityManager();
 
     Class<T> getEntityClass();
 
+    private ReadReplicas.Route routeOf(QueryParameters params, boolean unpaged, Map<String, Object> hints) {
+        final ReadReplicas replicas = getReadReplicas();
+        return replicas == null ? null : replicas.route(this, params, unpaged, hints);
+    }
+
+    private QueryExecution startExecution() {
+        return QueryExecution.start(getQueryListener(), getEntityClass());
+    }
+
+    @SuppressWarnings("unchecked")
     private EntityPath<T> getEntityPath() {
-        Class<T> clazz = getEntityClass();
-        return new PathBuilder<>(clazz, StringUtils.uncapitalize(clazz.getSimpleName()));
+        return (EntityPath<T>) EntityMetadataRegistry.get(getEntityClass(), () -> getEntityManager().getMetamodel())
+                .getEntityPath();
     }
 
-    private void logQuery(JPAQuery<T> query) {
+    private void logQuery(JPAQuery<?> query) {
         if (logger.isDebugEnabled()) {
             logger.debug(query.toString());
         }
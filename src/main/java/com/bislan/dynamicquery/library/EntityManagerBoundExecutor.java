@@ -0,0 +1,113 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.data.domain.Sort;
+
+import com.bislan.dynamicquery.library.expression.PredicateRewrite;
+import com.bislan.dynamicquery.library.expression.QueryPolicy;
+import com.bislan.dynamicquery.library.metrics.QueryListener;
+import com.querydsl.core.types.Predicate;
+
+/**
+ * The configuration of an executor on another entity manager, for queries that run on other threads than the one the
+ * entity manager of the executor is bound to.
+ */
+class EntityManagerBoundExecutor<T> implements DynamicQuerydslPredicateExecutor<T> {
+
+    private final DynamicQuerydslPredicateExecutor<T> delegate;
+    private final EntityManager entityManager;
+
+    EntityManagerBoundExecutor(DynamicQuerydslPredicateExecutor<T> delegate, EntityManager entityManager) {
+        this.delegate = delegate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    @Override
+    public Class<T> getEntityClass() {
+        return delegate.getEntityClass();
+    }
+
+    @Override
+    public Predicate customize(Predicate predicate) {
+        return delegate.customize(predicate);
+    }
+
+    @Override
+    public CountStrategy getCountStrategy() {
+        return delegate.getCountStrategy();
+    }
+
+    @Override
+    public long getCountLimit() {
+        return delegate.getCountLimit();
+    }
+
+    @Override
+    public CollectionPredicateMode getCollectionPredicateMode() {
+        return delegate.getCollectionPredicateMode();
+    }
+
+    @Override
+    public Set<PredicateRewrite> getPredicateRewrites() {
+        return delegate.getPredicateRewrites();
+    }
+
+    @Override
+    public InListOptions getInListOptions() {
+        return delegate.getInListOptions();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return delegate.isReadOnly();
+    }
+
+    @Override
+    public Sort.NullHandling getNullHandling() {
+        return delegate.getNullHandling();
+    }
+
+    @Override
+    public int getFetchSize() {
+        return delegate.getFetchSize();
+    }
+
+    @Override
+    public QueryPolicy getQueryPolicy() {
+        return delegate.getQueryPolicy();
+    }
+
+    @Override
+    public ResultCache getResultCache() {
+        return delegate.getResultCache();
+    }
+
+    @Override
+    public QueryCoalescer getQueryCoalescer() {
+        return delegate.getQueryCoalescer();
+    }
+
+    @Override
+    public ReadReplicas getReadReplicas() {
+        return delegate.getReadReplicas();
+    }
+
+    @Override
+    public QueryListener getQueryListener() {
+        return delegate.getQueryListener();
+    }
+
+    @Override
+    public Executor getBatchExecutor() {
+        return null;
+    }
+}
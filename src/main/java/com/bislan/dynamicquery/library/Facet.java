@@ -0,0 +1,54 @@
+package com.bislan.dynamicquery.library;
+
+/**
+ * A dimension of {@link DynamicQuerydslPredicateExecutor#findFacets faceted counts}: a property or a grouping such
+ * as {@code yearMonth(created)}, as accepted by {@link DynamicQuerydslPredicateExecutor#findGroups}.
+ */
+public class Facet {
+
+    private final String group;
+    private final int limit;
+    private final boolean excludeOwnFilter;
+
+    private Facet(String group, int limit, boolean excludeOwnFilter) {
+        this.group = group;
+        this.limit = limit;
+        this.excludeOwnFilter = excludeOwnFilter;
+    }
+
+    public static Facet of(String group) {
+        return new Facet(group, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Keeps only the values with the highest counts.
+     */
+    public Facet withLimit(int limit) {
+        return new Facet(group, limit, excludeOwnFilter);
+    }
+
+    /**
+     * Counts the values as if the filter on the facet's own property were not set, so that the other values of a
+     * multi-select facet still show their counts.
+     */
+    public Facet excludingOwnFilter() {
+        return new Facet(group, limit, true);
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isExcludeOwnFilter() {
+        return excludeOwnFilter;
+    }
+
+    @Override
+    public String toString() {
+        return group;
+    }
+}
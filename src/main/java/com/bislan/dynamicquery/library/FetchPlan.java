@@ -0,0 +1,90 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.StringUtils;
+
+import com.bislan.dynamicquery.library.expression.EntityMetadata;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+
+/**
+ * The associations to load together with the root entities, e.g. {@code customer,lines.product}. To-one
+ * associations are fetch joined into the query itself, reusing the aliases of the filter joins. When a collection is
+ * fetched, the root ids are selected first and the entities are loaded by id in a second query, so that pagination
+ * still applies to the roots.
+ */
+public class FetchPlan {
+
+    private static final FetchPlan EMPTY = new FetchPlan(Collections.emptyList(), Collections.emptySet(), false);
+
+    private final List<String> paths;
+    private final Set<String> aliases;
+    private final boolean collections;
+
+    private FetchPlan(List<String> paths, Set<String> aliases, boolean collections) {
+        this.paths = paths;
+        this.aliases = aliases;
+        this.collections = collections;
+    }
+
+    static FetchPlan of(Class<?> entityType, QueryParameters params, Map<String, Object> hints) {
+        final Set<String> paths = new LinkedHashSet<>();
+        if (params != null) {
+            paths.addAll(params.getFetch());
+        }
+        final Object hint = hints.get(DynamicQueryHints.FETCH);
+        if (hint instanceof Collection) {
+            ((Collection<?>) hint).forEach(path -> paths.add(path.toString()));
+        } else if (hint != null) {
+            paths.addAll(List.of(StringUtils.tokenizeToStringArray(hint.toString(), ",")));
+        }
+        if (paths.isEmpty()) {
+            return EMPTY;
+        }
+        final Set<String> aliases = new LinkedHashSet<>();
+        boolean collections = false;
+        for (String path : paths) {
+            EntityMetadata metadata = EntityMetadataRegistry.get(entityType);
+            String alias = metadata.getName();
+            for (String part : StringUtils.tokenizeToStringArray(path, ".")) {
+                final PropertyMetadata property = metadata.getProperty(part);
+                if (property == null || property.getRelationType() == null
+                        || property.getRelationType() == RelationType.EMBEDDED) {
+                    throw new RuntimeException("Fetch path must consist of associations: " + path);
+                }
+                alias = alias + "_" + part;
+                aliases.add(alias);
+                collections |= property.getRelationType() == RelationType.COLLECTION;
+                metadata = EntityMetadataRegistry.get(property.getTargetType());
+            }
+        }
+        return new FetchPlan(new ArrayList<>(paths), aliases, collections);
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * The join aliases of every association on the fetch paths.
+     */
+    public Set<String> getAliases() {
+        return aliases;
+    }
+
+    public boolean hasCollections() {
+        return collections;
+    }
+
+    public boolean isEmpty() {
+        return paths.isEmpty();
+    }
+}
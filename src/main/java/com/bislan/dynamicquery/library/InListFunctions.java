@@ -0,0 +1,60 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.List;
+
+import org.hibernate.QueryException;
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.dialect.function.SQLFunction;
+import org.hibernate.engine.spi.Mapping;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
+
+/**
+ * Registers the SQL function behind {@link InListStrategy#ARRAY}, which renders {@code x = any(?)}. Enable it with
+ * {@code spring.jpa.properties.hibernate.metadata_builder_contributor=com.bislan.dynamicquery.library.InListFunctions}.
+ */
+public class InListFunctions implements MetadataBuilderContributor {
+
+    static final String IN_ARRAY = "dq_in_array";
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder) {
+        metadataBuilder.applySqlFunction(IN_ARRAY, new InArrayFunction());
+    }
+
+    static boolean supports(Dialect dialect) {
+        return dialect instanceof PostgreSQL81Dialect || dialect instanceof H2Dialect;
+    }
+
+    private static class InArrayFunction implements SQLFunction {
+
+        @Override
+        public boolean hasArguments() {
+            return true;
+        }
+
+        @Override
+        public boolean hasParenthesesIfNoArguments() {
+            return true;
+        }
+
+        @Override
+        public Type getReturnType(Type firstArgumentType, Mapping mapping) {
+            return StandardBasicTypes.BOOLEAN;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public String render(Type firstArgumentType, List arguments, SessionFactoryImplementor factory) {
+            if (arguments.size() != 2) {
+                throw new QueryException(IN_ARRAY + " requires a value and an array, got: " + arguments);
+            }
+            return "(" + arguments.get(0) + " = any(" + arguments.get(1) + "))";
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.bislan.dynamicquery.library;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.TypedParameterValue;
+
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+
+/**
+ * The {@link InListStrategy} of each list operator, and the number of values a single list may hold. Options are
+ * immutable, every {@code with} method returns a copy.
+ */
+public class InListOptions {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final Map<Class<?>, String> ARRAY_ELEMENT_TYPES = Map.of(
+            Long.class, "bigint", long.class, "bigint",
+            Integer.class, "integer", int.class, "integer",
+            Short.class, "smallint", short.class, "smallint",
+            String.class, "varchar",
+            UUID.class, "uuid",
+            BigDecimal.class, "numeric");
+
+    private static final InListOptions DEFAULTS = new InListOptions();
+
+    private final Map<PredicateOperator, InListStrategy> strategies = new EnumMap<>(PredicateOperator.class);
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean arraysSupported;
+
+    private InListOptions() {
+        strategies.put(PredicateOperator.IN, InListStrategy.PADDED);
+        strategies.put(PredicateOperator.NOT_IN, InListStrategy.PADDED);
+    }
+
+    /**
+     * {@link InListStrategy#PADDED} lists of at most {@value #DEFAULT_CHUNK_SIZE} values.
+     */
+    public static InListOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public InListOptions with(PredicateOperator operator, InListStrategy strategy) {
+        if (!strategies.containsKey(operator)) {
+            throw new IllegalArgumentException("Not a list operator: " + operator);
+        }
+        final InListOptions copy = copy();
+        copy.strategies.put(operator, strategy);
+        return copy;
+    }
+
+    /**
+     * Uses the strategy for every list operator.
+     */
+    public InListOptions with(InListStrategy strategy) {
+        final InListOptions copy = copy();
+        copy.strategies.replaceAll((operator, current) -> strategy);
+        return copy;
+    }
+
+    public InListOptions withChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        final InListOptions copy = copy();
+        copy.chunkSize = chunkSize;
+        return copy;
+    }
+
+    public InListStrategy getStrategy(PredicateOperator operator) {
+        return strategies.get(operator);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Caps the chunk size at the in-list limit of the dialect, and enables {@link InListStrategy#ARRAY} when the
+     * dialect supports it and {@link InListFunctions} are registered.
+     */
+    InListOptions forDialect(EntityManagerFactory emf) {
+        final SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        final Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        final int limit = dialect.getInExpressionCountLimit();
+        final boolean arrays = InListFunctions.supports(dialect)
+                && sessionFactory.getSqlFunctionRegistry().findSQLFunction(InListFunctions.IN_ARRAY) != null;
+        if (arrays == arraysSupported && (limit <= 0 || limit >= chunkSize)) {
+            return this;
+        }
+        final InListOptions copy = copy();
+        copy.arraysSupported = arrays;
+        if (limit > 0 && limit < chunkSize) {
+            copy.chunkSize = limit;
+        }
+        return copy;
+    }
+
+    /**
+     * The strategy used for the filter, which falls back to {@link InListStrategy#PADDED} for arrays the database
+     * cannot bind.
+     */
+    InListStrategy resolve(PredicateEntry entry) {
+        final InListStrategy strategy = strategies.get(entry.getOp());
+        if (strategy == InListStrategy.ARRAY && (!arraysSupported || !ARRAY_ELEMENT_TYPES.containsKey(entry.getPropertyType()))) {
+            return InListStrategy.PADDED;
+        }
+        return strategy;
+    }
+
+    /**
+     * The number of bind parameters of the filter: one per chunk, or one array.
+     */
+    int getParameterCount(InListStrategy strategy, Object[] values) {
+        if (strategy == InListStrategy.EXACT || strategy == InListStrategy.ARRAY) {
+            return 1;
+        }
+        return Math.max(1, (distinct(values).size() + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * The values bound to the parameters of the filter, one per parameter.
+     */
+    Object[] toBindValues(InListStrategy strategy, PredicateEntry entry) {
+        final List<Object> values = distinct(entry.getValues());
+        if (strategy == InListStrategy.ARRAY) {
+            final String elementType = ARRAY_ELEMENT_TYPES.get(entry.getPropertyType());
+            return new Object[] { new TypedParameterValue(SqlArrayType.of(elementType), values.toArray()) };
+        }
+        if (strategy == InListStrategy.EXACT) {
+            return new Object[] { values };
+        }
+        final Object[] chunks = new Object[getParameterCount(strategy, entry.getValues())];
+        for (int i = 0; i < chunks.length; i++) {
+            final List<Object> chunk = new ArrayList<>(values.subList(i * chunkSize, Math.min((i + 1) * chunkSize, values.size())));
+            if (strategy == InListStrategy.PADDED && !chunk.isEmpty()) {
+                final int padded = Math.min(chunkSize, Integer.highestOneBit(chunk.size() - 1) << 1);
+                final Object last = chunk.get(chunk.size() - 1);
+                while (chunk.size() < padded) {
+                    chunk.add(last);
+                }
+            }
+            chunks[i] = chunk;
+        }
+        return chunks;
+    }
+
+    private static List<Object> distinct(Object[] values) {
+        return new ArrayList<>(new LinkedHashSet<>(Arrays.asList(values)));
+    }
+
+    private InListOptions copy() {
+        final InListOptions copy = new InListOptions();
+        copy.strategies.putAll(strategies);
+        copy.chunkSize = chunkSize;
+        copy.arraysSupported = arraysSupported;
+        return copy;
+    }
+}
@@ -0,0 +1,27 @@
+package com.bislan.dynamicquery.library;
+
+/**
+ * How the values of an {@code in} or {@code not_in} filter are bound. Every distinct SQL string takes a slot in the
+ * statement and plan caches of the driver and the database, and databases limit the number of values in a list.
+ */
+public enum InListStrategy {
+    /**
+     * One bind parameter per distinct value, so every list length produces a new SQL string.
+     */
+    EXACT,
+    /**
+     * Pad the list to the next power of two by repeating the last value, so the lengths share a few SQL strings.
+     * Lists longer than the chunk size are split like {@link #CHUNKED}, with only the last chunk padded.
+     */
+    PADDED,
+    /**
+     * Split lists longer than the chunk size into several lists: {@code in} lists are or'ed, {@code not_in} lists are
+     * and'ed.
+     */
+    CHUNKED,
+    /**
+     * Bind the values as a single array parameter, {@code x = any(?)}, which gives one SQL string for every length.
+     * Requires {@link InListFunctions} and a dialect that supports arrays; otherwise the list is {@link #PADDED}.
+     */
+    ARRAY
+}
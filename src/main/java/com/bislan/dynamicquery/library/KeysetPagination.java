@@ -0,0 +1,237 @@
+package com.bislan.dynamicquery.library;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+
+import com.bislan.dynamicquery.library.expression.EntityMetadata;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+import com.bislan.dynamicquery.library.expression.ValueConverterRegistry;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpression;
+import com.querydsl.core.types.dsl.Expressions;
+
+/**
+ * Keyset (seek) pagination: instead of skipping rows with an offset, a window starts right after the sort values of
+ * the last row of the previous window, so every window costs the same. A cursor encodes the direction and those
+ * sort values, {@code null} included, in a form that is parsed back to the type of each sort property.
+ * <p>
+ * The seek has to know where the nulls of a property sort, so an order that leaves it to the database sorts them last.
+ */
+public class KeysetPagination {
+
+    private static final String FORWARD = "n";
+    private static final String BACKWARD = "p";
+    private static final String SEPARATOR = ".";
+    // outside of the url-safe Base64 alphabet, so that it cannot be confused with an encoded value
+    private static final String NULL = "~";
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * Appends the id as the last sort order unless the sort already contains it, so that the ordering is total.
+     */
+    static Sort withTieBreaker(Sort sort, EntityMetadata metadata) {
+        final PropertyMetadata id = metadata.getId();
+        if (id == null) {
+            throw new RuntimeException("Keyset pagination requires a single id property on " + metadata.getType().getName());
+        }
+        if (sort.getOrderFor(id.getName()) != null) {
+            return sort;
+        }
+        return sort.and(Sort.by(id.getName()));
+    }
+
+    /**
+     * Makes the null handling of every order explicit: the one of the order, else the default, else nulls last.
+     */
+    static Sort withNullHandling(Sort sort, Sort.NullHandling nullHandling) {
+        final List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Sort.NullHandling handling = order.getNullHandling() != Sort.NullHandling.NATIVE ? order.getNullHandling() : nullHandling;
+            orders.add(order.with(handling != Sort.NullHandling.NATIVE ? handling : Sort.NullHandling.NULLS_LAST));
+        }
+        return Sort.by(orders);
+    }
+
+    /**
+     * The opposite order, with the nulls on the opposite end as well.
+     */
+    static Sort reverse(Sort sort) {
+        final List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            final Sort.Order reversed = order.with(order.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC);
+            switch (order.getNullHandling()) {
+                case NULLS_FIRST:
+                    orders.add(reversed.with(Sort.NullHandling.NULLS_LAST));
+                    break;
+                case NULLS_LAST:
+                    orders.add(reversed.with(Sort.NullHandling.NULLS_FIRST));
+                    break;
+                default:
+                    orders.add(reversed);
+            }
+        }
+        return Sort.by(orders);
+    }
+
+    static boolean isBackward(String cursor) {
+        return cursor != null && cursor.startsWith(BACKWARD + SEPARATOR);
+    }
+
+    /**
+     * Builds {@code (a, b) > (?, ?)} expanded to {@code a > ? or (a = ? and b > ?)}, with the comparison flipped for
+     * descending orders and for backward cursors. Each order compares the expression it sorts by, so a string order
+     * that ignores case compares lower cased values. Nulls are placed as {@link #withNullHandling} sorted them: a row
+     * with a null value follows every value when nulls sort last, and nothing but another null follows a null.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Predicate seekPredicate(PathResolver resolver, Class<?> entityType, Sort sort, String cursor) {
+        final List<Sort.Order> orders = sort.toList();
+        final Object[] values = decode(cursor, entityType, orders);
+        final boolean backward = isBackward(cursor);
+        BooleanExpression seek = null;
+        BooleanExpression equalPrefix = null;
+        for (int i = 0; i < orders.size(); i++) {
+            final Sort.Order order = orders.get(i);
+            final Expression<?> target = QuerydslHelper.toSortExpression(order, resolver);
+            final Comparable value = order.isIgnoreCase() && values[i] instanceof String
+                    ? ((String) values[i]).toLowerCase()
+                    : (Comparable) values[i];
+            final ComparableExpression path = Expressions.comparableTemplate(
+                    (Class) getPropertyType(entityType, order.getProperty()), "{0}", target);
+            final boolean nullsAfter = order.getNullHandling() == Sort.NullHandling.NULLS_LAST != backward;
+            BooleanExpression step;
+            if (value == null) {
+                step = nullsAfter ? null : path.isNotNull();
+            } else {
+                step = order.isAscending() != backward ? path.gt(value) : path.lt(value);
+                if (nullsAfter) {
+                    step = step.or(path.isNull());
+                }
+            }
+            if (step != null) {
+                if (equalPrefix != null) {
+                    step = equalPrefix.and(step);
+                }
+                seek = seek == null ? step : seek.or(step);
+            }
+            final BooleanExpression equal = value == null ? path.isNull() : path.eq(value);
+            equalPrefix = equalPrefix == null ? equal : equalPrefix.and(equal);
+        }
+        return seek != null ? seek : QuerydslHelper.UNSATISFIABLE;
+    }
+
+    static String encode(Object row, Sort sort, boolean backward) {
+        final BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(row);
+        final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        final StringBuilder sb = new StringBuilder(backward ? BACKWARD : FORWARD);
+        for (Sort.Order order : sort) {
+            final Object value = getValue(wrapper, order.getProperty());
+            sb.append(SEPARATOR);
+            if (value == null) {
+                sb.append(NULL);
+            } else {
+                sb.append(encoder.encodeToString(toString(value).getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The value of a sort property, {@code null} when an association on its path is, as the left join sorts it.
+     */
+    private static Object getValue(BeanWrapper wrapper, String property) {
+        try {
+            return wrapper.getPropertyValue(property);
+        } catch (NullValueInNestedPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The string form of a sort value. The legacy date types have no parseable {@code toString}, they are written as
+     * an ISO instant, which keeps the nanos of a timestamp.
+     */
+    private static String toString(Object value) {
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toInstant().toString();
+        }
+        if (value instanceof Date) {
+            return Instant.ofEpochMilli(((Date) value).getTime()).toString();
+        }
+        if (value instanceof Calendar) {
+            return ((Calendar) value).toInstant().toString();
+        }
+        return value.toString();
+    }
+
+    private static Object parse(String str, Class<?> type) {
+        if (Date.class.isAssignableFrom(type)) {
+            final Instant instant = Instant.parse(str);
+            if (type == Timestamp.class) {
+                return Timestamp.from(instant);
+            }
+            if (type == java.sql.Date.class) {
+                return new java.sql.Date(instant.toEpochMilli());
+            }
+            if (type == Time.class) {
+                return new Time(instant.toEpochMilli());
+            }
+            return Date.from(instant);
+        }
+        if (Calendar.class.isAssignableFrom(type)) {
+            final Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(Instant.parse(str).toEpochMilli());
+            return calendar;
+        }
+        return ValueConverterRegistry.get(type).apply(str);
+    }
+
+    private static Object[] decode(String cursor, Class<?> entityType, List<Sort.Order> orders) {
+        final String[] parts = cursor.split("\\" + SEPARATOR, -1);
+        if (parts.length != orders.size() + 1 || !(FORWARD.equals(parts[0]) || BACKWARD.equals(parts[0]))) {
+            throw new RuntimeException("Invalid cursor for sort " + Sort.by(orders) + ": " + cursor);
+        }
+        final Base64.Decoder decoder = Base64.getUrlDecoder();
+        final Object[] values = new Object[orders.size()];
+        for (int i = 0; i < values.length; i++) {
+            if (NULL.equals(parts[i + 1])) {
+                continue;
+            }
+            final String str = new String(decoder.decode(parts[i + 1]), StandardCharsets.UTF_8);
+            try {
+                values[i] = parse(str, getPropertyType(entityType, orders.get(i).getProperty()));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor for sort " + Sort.by(orders) + ": " + cursor, e);
+            }
+        }
+        return values;
+    }
+
+    private static Class<?> getPropertyType(Class<?> entityType, String property) {
+        final PropertyMetadata metadata = EntityMetadataRegistry.resolve(entityType, property);
+        if (metadata == null) {
+            throw new RuntimeException("Unknown sort property '" + property + "' on " + entityType.getName());
+        }
+        return metadata.getType();
+    }
+}
@@ -0,0 +1,41 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A window of results fetched with keyset pagination. The cursors are opaque tokens to pass back to
+ * {@code findKeyset} to fetch the adjacent windows; they are {@code null} when there is nothing in that direction.
+ */
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    KeysetSlice(List<T> content, String nextCursor, String previousCursor) {
+        this.content = Collections.unmodifiableList(content);
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+}
@@ -0,0 +1,111 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.util.StringUtils;
+
+import com.bislan.dynamicquery.library.expression.EntityMetadata;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadataFactory;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.SimplePath;
+import com.querydsl.jpa.impl.JPAQuery;
+
+/**
+ * Resolves dotted property paths of the root entity against a query, using the same aliases as
+ * {@link QuerydslPredicateBuilder}. Associations the query already joins are reused; missing ones are left joined, so
+ * rows with a null association are kept.
+ */
+public class PathResolver {
+
+    private final JPAQuery<?> query;
+    private final Path<?> root;
+    private final Map<String, Path<?>> aliases = new HashMap<>();
+
+    public PathResolver(JPAQuery<?> query, EntityPath<?> root) {
+        this.query = query;
+        this.root = root;
+        for (JoinExpression join : query.getMetadata().getJoins()) {
+            final String alias = QuerydslHelper.getAlias(join);
+            if (alias != null) {
+                aliases.put(alias, (Path<?>) ((Operation<?>) join.getTarget()).getArg(1));
+            }
+        }
+    }
+
+    public Expression<?> resolve(String propertyPath) {
+        return resolve(propertyPath, false);
+    }
+
+    /**
+     * @param allowCollections whether collection associations may be traversed, which multiplies the root rows
+     */
+    public Expression<?> resolve(String propertyPath, boolean allowCollections) {
+        return resolve(propertyPath, allowCollections, false);
+    }
+
+    /**
+     * Fetch joins every association on the path that the query does not join yet.
+     */
+    public void fetch(String propertyPath) {
+        resolve(propertyPath, true, true);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Expression<?> resolve(String propertyPath, boolean allowCollections, boolean fetch) {
+        final String[] parts = StringUtils.tokenizeToStringArray(propertyPath, ".");
+        EntityMetadata metadata = EntityMetadataRegistry.get(root.getType());
+        Path<?> current = root;
+        String alias = metadata.getName();
+        for (int i = 0; i < parts.length; i++) {
+            final PropertyMetadata property = metadata.getProperty(parts[i]);
+            if (property == null) {
+                throw new RuntimeException("Unknown property '" + parts[i] + "' in path: " + propertyPath);
+            }
+            final RelationType relationType = property.getRelationType();
+            if (relationType == null || i == parts.length - 1 && relationType == RelationType.EMBEDDED) {
+                final String rest = String.join(".", Arrays.copyOfRange(parts, i, parts.length));
+                return Expressions.path(i == parts.length - 1 ? property.getType() : Object.class, current, rest);
+            }
+            alias = alias + "_" + parts[i];
+            if (relationType == RelationType.EMBEDDED) {
+                current = Expressions.path(property.getType(), PathMetadataFactory.forProperty(current, parts[i]));
+            } else if (aliases.containsKey(alias)) {
+                current = aliases.get(alias);
+            } else {
+                final Path<?> next = Expressions.path(property.getTargetType(), alias);
+                if (relationType == RelationType.COLLECTION) {
+                    if (!allowCollections) {
+                        throw new RuntimeException("Collection '" + parts[i] + "' cannot be used in path: " + propertyPath);
+                    }
+                    query.leftJoin((CollectionExpression) Expressions.collectionPath(property.getTargetType(),
+                            SimplePath.class, PathMetadataFactory.forProperty(current, parts[i])), (Path) next);
+                } else {
+                    query.leftJoin((EntityPath) new PathBuilder<Object>(property.getTargetType(),
+                            PathMetadataFactory.forProperty(current, parts[i])), (Path) next);
+                }
+                if (fetch) {
+                    query.fetchJoin();
+                }
+                aliases.put(alias, next);
+                current = next;
+            }
+            if (i == parts.length - 1) {
+                return current;
+            }
+            metadata = EntityMetadataRegistry.get(property.getTargetType());
+        }
+        return current;
+    }
+}
@@ -0,0 +1,201 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Sort;
+
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.ExpressionFactory;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.PredicatePath;
+import com.bislan.dynamicquery.library.expression.PredicateRewrite;
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+import com.bislan.dynamicquery.library.memory.InMemoryQuery;
+
+/**
+ * Runs the requests of a batch with as few queries as possible. Identical requests run once. Unpaged lookups of a
+ * single {@code eq} or {@code in} filter on the same property of the root entity, with the same sort and hints, run
+ * as one {@code in} query whose rows are split back per request in memory. Only properties the database compares
+ * like Java does are combined, see {@link PredicateRewrite#isExact(Class)}: under a case insensitive collation, the
+ * rows of {@code eq(a)} would not be split back from the ones of {@code eq(A)}.
+ */
+class QueryBatch {
+
+    private QueryBatch() {
+    }
+
+    static <T> List<Page<T>> execute(DynamicQuerydslPredicateExecutor<T> executor, List<BatchRequest> requests) {
+        final Map<ResultCache.Key, BatchRequest> distinct = new LinkedHashMap<>();
+        final List<ResultCache.Key> keys = new ArrayList<>(requests.size());
+        for (BatchRequest request : requests) {
+            final ResultCache.Key key = ResultCache.keyOf(executor.getEntityClass(), "batch", request.getParams(),
+                    request.getSort(), request.getPageable(), request.getHints());
+            distinct.putIfAbsent(key, request);
+            keys.add(key);
+        }
+        final List<Group> groups = group(executor, distinct);
+        final Map<ResultCache.Key, Page<T>> results = new LinkedHashMap<>();
+        final Executor pool = executor.getBatchExecutor();
+        if (pool == null || groups.size() < 2) {
+            groups.forEach(group -> results.putAll(group.run(executor)));
+        } else {
+            final EntityManagerFactory factory = executor.getEntityManager().getEntityManagerFactory();
+            final List<CompletableFuture<Map<ResultCache.Key, Page<T>>>> futures = groups.stream()
+                    .map(group -> CompletableFuture.supplyAsync(() -> runIsolated(executor, factory, group), pool))
+                    .collect(Collectors.toList());
+            try {
+                futures.forEach(future -> results.putAll(future.join()));
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return keys.stream().map(results::get).collect(Collectors.toList());
+    }
+
+    private static <T> Map<ResultCache.Key, Page<T>> runIsolated(DynamicQuerydslPredicateExecutor<T> executor, EntityManagerFactory factory,
+            Group group) {
+        final EntityManager entityManager = factory.createEntityManager();
+        try {
+            return group.run(new EntityManagerBoundExecutor<>(executor, entityManager));
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static List<Group> group(DynamicQuerydslPredicateExecutor<?> executor, Map<ResultCache.Key, BatchRequest> requests) {
+        final int maxValues = Math.min(executor.getQueryPolicy().getMaxListValues(), executor.getInListOptions().getChunkSize());
+        final List<Group> groups = new ArrayList<>();
+        final Map<List<Object>, Lookup> lookups = new LinkedHashMap<>();
+        for (Map.Entry<ResultCache.Key, BatchRequest> entry : requests.entrySet()) {
+            final BatchRequest request = entry.getValue();
+            final PredicateEntry filter = getLookupFilter(executor, request);
+            if (filter == null) {
+                groups.add(new Single(entry.getKey(), request));
+                continue;
+            }
+            final List<Object> lookupKey = Arrays.asList(filter.getPropertyPath(), request.getSort(), request.getHints());
+            Lookup lookup = lookups.get(lookupKey);
+            if (lookup != null && lookup.values.size() + filter.getValues().length > maxValues) {
+                lookups.remove(lookupKey);
+                lookup = null;
+            }
+            if (lookup == null) {
+                lookup = new Lookup(filter.getPropertyPath(), request.getSort(), request.getHints());
+                lookups.put(lookupKey, lookup);
+                groups.add(lookup);
+            }
+            lookup.add(entry.getKey(), request, getRawValues(request));
+        }
+        return groups;
+    }
+
+    /**
+     * The single {@code eq} or {@code in} filter of an unpaged request on a property of the root entity, or
+     * {@code null} if the request cannot be combined with others.
+     */
+    private static PredicateEntry getLookupFilter(DynamicQuerydslPredicateExecutor<?> executor, BatchRequest request) {
+        final Map<String, String> params = request.getParams().getParameters();
+        if (request.getPageable().isPaged() || params.size() != 1) {
+            return null;
+        }
+        final ExpressionEntries entries = ExpressionFactory.createFromParams(executor.getEntityClass(), params,
+                executor.getQueryPolicy());
+        if (entries.getPredicates().size() != 1) {
+            return null;
+        }
+        final PredicateEntry filter = entries.getPredicates().get(0);
+        final boolean lookup = (filter.getOp() == PredicateOperator.EQ
+                || filter.getOp() == PredicateOperator.IN && filter.getValues().length > 0)
+                && PredicateRewrite.isExact(filter.getPropertyType());
+        for (PredicatePath path : filter.getPath()) {
+            // the rows are split on the property in memory, which must not load associations
+            if (path.getRelationType() != RelationType.EMBEDDED) {
+                return null;
+            }
+        }
+        return lookup ? filter : null;
+    }
+
+    /**
+     * The values as written, which the combined filter parses again the same way.
+     */
+    private static List<String> getRawValues(BatchRequest request) {
+        final String value = request.getParams().getParameters().values().iterator().next();
+        return List.of(value.substring(value.indexOf('(') + 1, value.length() - 1).split(","));
+    }
+
+    private interface Group {
+        <T> Map<ResultCache.Key, Page<T>> run(DynamicQuerydslPredicateExecutor<T> executor);
+    }
+
+    private static class Single implements Group {
+        private final ResultCache.Key key;
+        private final BatchRequest request;
+
+        private Single(ResultCache.Key key, BatchRequest request) {
+            this.key = key;
+            this.request = request;
+        }
+
+        @Override
+        public <T> Map<ResultCache.Key, Page<T>> run(DynamicQuerydslPredicateExecutor<T> executor) {
+            final Page<T> page = request.getPageable().isPaged()
+                    ? executor.findAll(request.getParams(), request.getPageable(), request.getHints())
+                    : new PageImpl<>(executor.findAll(request.getParams(), request.getSort(), request.getHints()));
+            return Collections.singletonMap(key, page);
+        }
+    }
+
+    private static class Lookup implements Group {
+        private final String property;
+        private final Sort sort;
+        private final Map<String, Object> hints;
+        private final Map<ResultCache.Key, BatchRequest> requests = new LinkedHashMap<>();
+        private final Set<String> values = new LinkedHashSet<>();
+
+        private Lookup(String property, Sort sort, Map<String, Object> hints) {
+            this.property = property;
+            this.sort = sort;
+            this.hints = hints;
+        }
+
+        private void add(ResultCache.Key key, BatchRequest request, List<String> rawValues) {
+            requests.put(key, request);
+            values.addAll(rawValues);
+        }
+
+        @Override
+        public <T> Map<ResultCache.Key, Page<T>> run(DynamicQuerydslPredicateExecutor<T> executor) {
+            if (requests.size() == 1) {
+                final Map.Entry<ResultCache.Key, BatchRequest> only = requests.entrySet().iterator().next();
+                return new Single(only.getKey(), only.getValue()).run(executor);
+            }
+            final Map<String, String> params = Collections.singletonMap(property, "in(" + String.join(",", values) + ")");
+            final List<T> rows = executor.findAll(new QueryParameters(params), sort, hints);
+            final Map<ResultCache.Key, Page<T>> results = new LinkedHashMap<>();
+            requests.forEach((key, request) -> results.put(key,
+                    new PageImpl<>(InMemoryQuery.of(executor.getEntityClass(), request.getParams()).findAll(rows))));
+            return results;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.bislan.dynamicquery.library;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical queries share one execution. The first call runs the query, calls with the same key that
+ * arrive while it runs wait for its result, in the same form the {@link ResultCache} keeps: the ids of the entities,
+ * which every waiting call loads again on its own entity manager, or the rows of a projection, which it copies. Nothing
+ * is kept once the query completes.
+ * <p>
+ * A call waits at most the configured time, and runs the query itself when the wait expires or the shared execution
+ * fails. A coalescer may be shared between executors of the same persistence unit.
+ */
+public class QueryCoalescer {
+
+    private final Map<ResultCache.Key, CompletableFuture<ResultCache.CachedResult>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final long maxWaitNanos;
+
+    public QueryCoalescer(Duration maxWait) {
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    <R> R execute(ResultCache.Key key, Supplier<R> query, Function<R, ResultCache.CachedResult> toShared,
+            Function<ResultCache.CachedResult, R> fromShared) {
+        final CompletableFuture<ResultCache.CachedResult> flight = new CompletableFuture<>();
+        final CompletableFuture<ResultCache.CachedResult> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            final ResultCache.CachedResult shared = await(running);
+            return shared != null ? fromShared.apply(shared) : query.get();
+        }
+        executions.incrementAndGet();
+        try {
+            final R result = query.get();
+            flight.complete(toShared.apply(result));
+            return result;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * The shared result, or {@code null} when the caller has to run the query itself.
+     */
+    private ResultCache.CachedResult await(CompletableFuture<ResultCache.CachedResult> running) {
+        try {
+            final ResultCache.CachedResult shared = running.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            coalesced.incrementAndGet();
+            return shared;
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+        } catch (ExecutionException e) {
+            // the failure may be particular to the caller that ran the query, e.g. its statement timeout
+            failures.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a coalesced query", e);
+        }
+        return null;
+    }
+
+    /**
+     * The number of queries currently running for waiting calls to join.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * The number of queries that ran as the first of their key.
+     */
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    /**
+     * The number of calls that received the result of another call's query.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * The number of calls that stopped waiting after the maximum wait and ran the query themselves.
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * The number of calls that ran the query themselves because the shared execution failed.
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+}
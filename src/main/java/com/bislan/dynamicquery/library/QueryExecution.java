@@ -0,0 +1,112 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.metrics.QueryEvent;
+import com.bislan.dynamicquery.library.metrics.QueryListener;
+import com.bislan.dynamicquery.library.metrics.QueryPhase;
+
+/**
+ * Times the phases of one executor call and reports them to the {@link QueryListener}. Without a listener a shared
+ * disabled instance is used, which neither reads the clock nor computes the query shape.
+ */
+class QueryExecution {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryExecution.class);
+
+    private static final QueryExecution DISABLED = new QueryExecution(null, null, 0L);
+
+    private final QueryListener listener;
+    private final Class<?> entityType;
+    private final long start;
+    private String shape = "";
+    private ExpressionEntries filters;
+    private Sort sort = Sort.unsorted();
+
+    private QueryExecution(QueryListener listener, Class<?> entityType, long start) {
+        this.listener = listener;
+        this.entityType = entityType;
+        this.start = start;
+    }
+
+    static QueryExecution start(QueryListener listener, Class<?> entityType) {
+        if (listener == null || listener == QueryListener.NOOP) {
+            return DISABLED;
+        }
+        return new QueryExecution(listener, entityType, System.nanoTime());
+    }
+
+    boolean isEnabled() {
+        return listener != null;
+    }
+
+    long tick() {
+        return listener != null ? System.nanoTime() : 0L;
+    }
+
+    void setFilters(ExpressionEntries filters, Supplier<String> shape) {
+        if (listener != null) {
+            this.filters = filters;
+            this.shape = shape.get();
+        }
+    }
+
+    void setSort(Sort sort) {
+        if (listener != null && sort != null) {
+            this.sort = sort;
+        }
+    }
+
+    void record(QueryPhase phase, long phaseStart, long rows) {
+        if (listener != null) {
+            notify(QueryEvent.of(entityType, shape, filters, sort, phase, System.nanoTime() - phaseStart, rows), true);
+        }
+    }
+
+    <R> R complete(R result, long rows) {
+        if (listener != null) {
+            notify(QueryEvent.of(entityType, shape, filters, sort, null, System.nanoTime() - start, rows), false);
+        }
+        return result;
+    }
+
+    <C extends Collection<?>> C complete(C result) {
+        return complete(result, result.size());
+    }
+
+    <S extends Slice<?>> S complete(S result) {
+        return complete(result, result.getNumberOfElements());
+    }
+
+    <R> Optional<R> complete(Optional<R> result) {
+        return complete(result, result.isPresent() ? 1 : 0);
+    }
+
+    /**
+     * Completes the execution when the stream is closed; the number of rows is not known.
+     */
+    <R> Stream<R> complete(Stream<R> result) {
+        return listener != null ? result.onClose(() -> complete(null, -1)) : result;
+    }
+
+    private void notify(QueryEvent event, boolean phase) {
+        try {
+            if (phase) {
+                listener.onPhase(event);
+            } else {
+                listener.onQuery(event);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Query listener failed", e);
+        }
+    }
+}
@@ -1,10 +1,25 @@
 package com.bislan.dynamicquery.library;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.springframework.util.StringUtils;
+
 public class QueryParameters {
 
+    /**
+     * Reserved key listing the properties to select, e.g. {@code FIELDS=id,name,customer.name}. It is not a filter.
+     */
+    public static final String FieldsKey = "FIELDS";
+
+    /**
+     * Reserved key listing the associations to load with the results, e.g. {@code FETCH=customer,lines.product}.
+     */
+    public static final String FetchKey = "FETCH";
+
     private final Map<String, String> parameters;
 
     public QueryParameters(Map<String, String> parameters) {
@@ -15,6 +30,22 @@ public class QueryParameters {
         return parameters;
     }
 
+    public List<String> getFields() {
+        return getList(FieldsKey);
+    }
+
+    public List<String> getFetch() {
+        return getList(FetchKey);
+    }
+
+    private List<String> getList(String key) {
+        String value = parameters.get(key);
+        if (!StringUtils.hasText(value)) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(StringUtils.tokenizeToStringArray(value, ","));
+    }
+
     @Override
     public String toString() {
         return parameters.entrySet().stream()
@@ -0,0 +1,168 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+
+/**
+ * A predicate and its joins compiled for one parameter shape. Filter values are bind parameters, so a plan can be
+ * shared between requests and threads; only the values are bound per query.
+ */
+public class QueryPlan {
+
+    private final Predicate predicate;
+    private final List<JoinsData> joins;
+    private final List<Param<?>[]> params;
+    private final List<InListStrategy> listStrategies;
+    private final InListOptions inLists;
+
+    private QueryPlan(Predicate predicate, List<JoinsData> joins, List<Param<?>[]> params, List<InListStrategy> listStrategies,
+            InListOptions inLists) {
+        this.predicate = predicate;
+        this.joins = Collections.unmodifiableList(joins);
+        this.params = Collections.unmodifiableList(params);
+        this.listStrategies = Collections.unmodifiableList(listStrategies);
+        this.inLists = inLists;
+    }
+
+    static QueryPlan of(Predicate predicate, List<JoinsData> joins, List<Param<?>[]> params, List<InListStrategy> listStrategies,
+            InListOptions inLists) {
+        return new QueryPlan(predicate, joins, params, listStrategies, inLists);
+    }
+
+    public Predicate getPredicate() {
+        return predicate;
+    }
+
+    public List<JoinsData> getJoins() {
+        return joins;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <Q extends JPAQuery<?>> Q bind(Q query, ExpressionEntries entries) {
+        final List<PredicateEntry> predicates = entries.getPredicates();
+        for (int i = 0; i < predicates.size(); i++) {
+            final PredicateEntry entry = predicates.get(i);
+            final Param<?>[] entryParams = params.get(i);
+            final InListStrategy listStrategy = listStrategies.get(i);
+            final Object[] values = listStrategy != null ? inLists.toBindValues(listStrategy, entry) : getBindValues(entry);
+            for (int j = 0; j < entryParams.length; j++) {
+                query.set((ParamExpression<Object>) entryParams[j], toBindValue(entry.getOp(), values[j]));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * The values bound for a filter that is not a list. A {@code like_escape} pattern is bound in the form escaped
+     * with {@code !}, since the escape character of a like cannot be a parameter.
+     */
+    static Object[] getBindValues(PredicateEntry entry) {
+        final Object[] values = entry.getValues();
+        if (entry.getOp() != PredicateOperator.LIKE_ESCAPE && entry.getOp() != PredicateOperator.LIKE_ESCAPE_IC) {
+            return values;
+        }
+        final char escape = entry.getEscape();
+        final String pattern = values[0].toString();
+        final StringBuilder sb = new StringBuilder(pattern.length() + 3);
+        for (int i = 0; i < pattern.length(); i++) {
+            final char ch = pattern.charAt(i);
+            if (ch == escape && i + 1 < pattern.length()) {
+                sb.append(JPQLTemplates.DEFAULT_ESCAPE).append(pattern.charAt(++i));
+            } else {
+                if (ch == JPQLTemplates.DEFAULT_ESCAPE) {
+                    sb.append(JPQLTemplates.DEFAULT_ESCAPE);
+                }
+                sb.append(ch);
+            }
+        }
+        return new Object[] { sb.toString() };
+    }
+
+    static Class<?> getBindType(PredicateEntry entry) {
+        return getBindOperator(entry.getOp()) == entry.getOp().getOperator() ? entry.getPropertyType() : String.class;
+    }
+
+    /**
+     * The like-based operators wrap constants in wildcards, and {@code matches} converts its regex to a like pattern,
+     * while serializing, which does not work for parameters. They are compiled to a plain {@code like} and the
+     * bound value is converted instead. So are the other likes, which escape with {@code !} this way: the template of
+     * {@code like_ic} has no escape, so a {@code !} of its pattern is doubled, and the one of {@code like_escape}
+     * inlines it.
+     */
+    static Operator getBindOperator(PredicateOperator op) {
+        switch (op) {
+            case STARTS_WITH:
+            case STARTS_WITH_IC:
+            case ENDS_WITH:
+            case ENDS_WITH_IC:
+            case STRING_CONTAINS:
+            case STRING_CONTAINS_IC:
+            case MATCHES:
+            case MATCHES_IC:
+            case LIKE_IC:
+            case LIKE_ESCAPE:
+            case LIKE_ESCAPE_IC:
+                return Ops.LIKE;
+            default:
+                return op.getOperator();
+        }
+    }
+
+    static boolean isIgnoreCase(PredicateOperator op) {
+        return op == PredicateOperator.STARTS_WITH_IC || op == PredicateOperator.ENDS_WITH_IC
+                || op == PredicateOperator.STRING_CONTAINS_IC || op == PredicateOperator.MATCHES_IC
+                || op == PredicateOperator.LIKE_IC || op == PredicateOperator.LIKE_ESCAPE_IC;
+    }
+
+    private static Object toBindValue(PredicateOperator op, Object value) {
+        switch (op) {
+            case STARTS_WITH:
+                return escapeForLike(value.toString()) + "%";
+            case STARTS_WITH_IC:
+                return escapeForLike(value.toString().toLowerCase()) + "%";
+            case ENDS_WITH:
+                return "%" + escapeForLike(value.toString());
+            case ENDS_WITH_IC:
+                return "%" + escapeForLike(value.toString().toLowerCase());
+            case STRING_CONTAINS:
+                return "%" + escapeForLike(value.toString()) + "%";
+            case STRING_CONTAINS_IC:
+                return "%" + escapeForLike(value.toString().toLowerCase()) + "%";
+            case MATCHES:
+                return ExpressionUtils.regexToLike(Expressions.constant(value.toString())).toString();
+            case MATCHES_IC:
+                return ExpressionUtils.regexToLike(Expressions.constant(value.toString().toLowerCase())).toString();
+            case LIKE_IC:
+                final String escape = String.valueOf(JPQLTemplates.DEFAULT_ESCAPE);
+                return value.toString().toLowerCase().replace(escape, escape + escape);
+            case LIKE_ESCAPE_IC:
+                return value.toString().toLowerCase();
+            default:
+                return value;
+        }
+    }
+
+    private static String escapeForLike(String str) {
+        final StringBuilder sb = new StringBuilder(str.length() + 3);
+        for (char ch : str.toCharArray()) {
+            if (ch == JPQLTemplates.DEFAULT_ESCAPE || ch == '%' || ch == '_') {
+                sb.append(JPQLTemplates.DEFAULT_ESCAPE);
+            }
+            sb.append(ch);
+        }
+        return sb.toString();
+    }
+}
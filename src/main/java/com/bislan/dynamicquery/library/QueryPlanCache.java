@@ -0,0 +1,113 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.operator.OperatorType;
+
+/**
+ * Bounded LRU cache of {@link QueryPlan}s keyed by the shape of the parameters: the entity, the expression type and,
+ * per filter, the property path, the operator and the number of values. The length of a list is left out; how its
+ * values are bound is added by {@link QuerydslPredicateBuilder}.
+ */
+public class QueryPlanCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 512;
+
+    private static final QueryPlanCache INSTANCE = new QueryPlanCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Map<String, QueryPlan> plans;
+    private volatile int maximumSize;
+
+    QueryPlanCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryPlan> eldest) {
+                if (size() > QueryPlanCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static QueryPlanCache getInstance() {
+        return INSTANCE;
+    }
+
+    static String shapeOf(Class<?> entityType, ExpressionEntries entries) {
+        final StringBuilder sb = new StringBuilder(entityType.getName()).append('|').append(entries.getType());
+        for (PredicateEntry entry : entries.getPredicates()) {
+            sb.append('|')
+                    .append(entry.getPropertyPath())
+                    .append(':')
+                    .append(entry.getOp())
+                    .append(':')
+                    .append(entry.getOp().getOpType() == OperatorType.LIST ? "*" : entry.getValues().length);
+        }
+        return sb.toString();
+    }
+
+    QueryPlan get(String shape) {
+        QueryPlan plan;
+        synchronized (plans) {
+            plan = plans.get(shape);
+        }
+        if (plan == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return plan;
+    }
+
+    QueryPlan put(String shape, QueryPlan plan) {
+        synchronized (plans) {
+            QueryPlan existing = plans.putIfAbsent(shape, plan);
+            return existing != null ? existing : plan;
+        }
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public void clear() {
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.bislan.dynamicquery.library;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.Type;
+
+/**
+ * Keeps the persistence context from growing while a result is streamed: each row is detached, together with the
+ * entities that were loaded along with it, e.g. eager or fetch joined associations, once the consumer moved on to the
+ * next one. With a clear interval the whole context is cleared every {@code clearInterval} rows instead. Entities the
+ * consumer loads itself, e.g. lazy associations, are only released by a clear interval.
+ */
+public class QueryStreams {
+
+    private QueryStreams() {
+    }
+
+    static <T> Stream<T> detaching(Stream<T> source, EntityManager entityManager, int clearInterval) {
+        final Iterator<T> rows = source.iterator();
+        final LoadedEntities loaded = clearInterval <= 0 ? new LoadedEntities(entityManager) : null;
+        final Iterator<T> detaching = new Iterator<>() {
+            private T previous;
+            private List<Object> previousLoaded = Collections.emptyList();
+            private boolean released = true;
+            private long count;
+
+            @Override
+            public boolean hasNext() {
+                // moving the cursor already loads the next row
+                release();
+                return rows.hasNext();
+            }
+
+            @Override
+            public T next() {
+                release();
+                previous = rows.next();
+                if (loaded != null) {
+                    previousLoaded = loaded.collect(List.of(previous));
+                }
+                released = false;
+                count++;
+                return previous;
+            }
+
+            private void release() {
+                if (released) {
+                    return;
+                }
+                if (loaded != null) {
+                    detach(entityManager, previous);
+                    previousLoaded.forEach(entity -> detach(entityManager, entity));
+                } else if (count % clearInterval == 0) {
+                    entityManager.clear();
+                }
+                released = true;
+            }
+        };
+        if (loaded != null) {
+            loaded.mark();
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(detaching, Spliterator.ORDERED), false)
+                .onClose(source::close);
+    }
+
+    /**
+     * Hands the rows to the consumer in lists of {@code batchSize}; the rows of a batch and the entities loaded with
+     * them are detached once it was consumed or, with a clear interval, the context is cleared after the batch that
+     * reaches {@code clearInterval} rows since the last clear.
+     */
+    static <T> void forEachBatch(Stream<T> source, EntityManager entityManager, int batchSize, int clearInterval,
+            Consumer<List<T>> consumer) {
+        final LoadedEntities loaded = clearInterval <= 0 ? new LoadedEntities(entityManager) : null;
+        long uncleared = 0;
+        try (Stream<T> rows = source) {
+            if (loaded != null) {
+                loaded.mark();
+            }
+            List<T> batch = new ArrayList<>(batchSize);
+            for (Iterator<T> it = rows.iterator(); it.hasNext();) {
+                batch.add(it.next());
+                if (batch.size() == batchSize) {
+                    uncleared = consume(batch, entityManager, loaded, clearInterval, uncleared, consumer);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consume(batch, entityManager, loaded, clearInterval, uncleared, consumer);
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows read since the context was last cleared
+     */
+    private static <T> long consume(List<T> batch, EntityManager entityManager, LoadedEntities loaded, int clearInterval,
+            long uncleared, Consumer<List<T>> consumer) {
+        final List<Object> batchLoaded = loaded != null ? loaded.collect(batch) : null;
+        consumer.accept(batch);
+        if (loaded != null) {
+            batch.forEach(row -> detach(entityManager, row));
+            batchLoaded.forEach(entity -> detach(entityManager, entity));
+            return 0;
+        }
+        if (uncleared + batch.size() >= clearInterval) {
+            entityManager.clear();
+            return 0;
+        }
+        return uncleared + batch.size();
+    }
+
+    private static void detach(EntityManager entityManager, Object entity) {
+        if (entityManager.contains(entity)) {
+            entityManager.detach(entity);
+        }
+    }
+
+    /**
+     * The entities loaded with rows: those reachable from a row through its initialized associations, embeddables
+     * included, that were not in the persistence context when the stream was marked. Only the graph of the row is
+     * walked, so that reading a row does not cost a scan of the whole context; the walk stops at the entities that were
+     * already there.
+     */
+    private static class LoadedEntities {
+        private final SharedSessionContractImplementor session;
+        private final PersistenceContext context;
+        private final Set<Object> known = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        LoadedEntities(EntityManager entityManager) {
+            this.session = entityManager.unwrap(SharedSessionContractImplementor.class);
+            this.context = session.getPersistenceContext();
+        }
+
+        void mark() {
+            known.clear();
+            for (Map.Entry<Object, EntityEntry> entry : context.reentrantSafeEntityEntries()) {
+                known.add(entry.getKey());
+            }
+        }
+
+        List<Object> collect(List<?> rows) {
+            final List<Object> loaded = new ArrayList<>();
+            final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            rows.forEach(row -> collect(row, true, loaded, seen));
+            return loaded;
+        }
+
+        private void collect(Object value, boolean row, List<Object> loaded, Set<Object> seen) {
+            Object entity = value;
+            if (entity instanceof HibernateProxy) {
+                final LazyInitializer initializer = ((HibernateProxy) entity).getHibernateLazyInitializer();
+                if (initializer.isUninitialized()) {
+                    return;
+                }
+                entity = initializer.getImplementation();
+            }
+            if (entity == null || !seen.add(entity)) {
+                return;
+            }
+            final EntityEntry entry = context.getEntry(entity);
+            if (entry == null) {
+                return;
+            }
+            if (!known.contains(entity)) {
+                loaded.add(entity);
+            } else if (!row) {
+                return;
+            }
+            final EntityPersister persister = entry.getPersister();
+            collect(persister.getPropertyTypes(), persister.getPropertyValues(entity), loaded, seen);
+        }
+
+        private void collect(Type[] types, Object[] values, List<Object> loaded, Set<Object> seen) {
+            for (int i = 0; i < types.length; i++) {
+                final Object value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                if (types[i].isEntityType()) {
+                    collect(value, false, loaded, seen);
+                } else if (types[i].isCollectionType() && Hibernate.isInitialized(value)) {
+                    final Collection<?> elements = value instanceof Map ? ((Map<?, ?>) value).values()
+                            : value instanceof Collection ? (Collection<?>) value : List.of();
+                    elements.forEach(element -> collect(element, false, loaded, seen));
+                } else if (types[i].isComponentType()) {
+                    final CompositeType component = (CompositeType) types[i];
+                    collect(component.getSubtypes(), component.getPropertyValues(value, session), loaded, seen);
+                }
+            }
+        }
+    }
+}
@@ -1,40 +1,205 @@
 package com.bislan.dynamicquery.library;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
 import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
 import com.querydsl.core.types.Order;
 import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import com.querydsl.jpa.hibernate.StatelessSessionHolder;
 import com.querydsl.jpa.impl.JPAQuery;
 
 public class QuerydslHelper {
 
+    /**
+     * The predicate of filters that are known to match nothing. Queries restricted by it are not run.
+     */
+    static final BooleanExpression UNSATISFIABLE = Expressions.booleanTemplate("1 = 0");
+
     private QuerydslHelper() {
     }
 
-    static <T> JPAQuery<T> applyPagination(JPAQuery<T> query, Pageable pageable, EntityPath<T> path) {
+    /**
+     * Whether the query is restricted by {@link #UNSATISFIABLE}, so that it cannot return a row.
+     */
+    static boolean isUnsatisfiable(JPAQuery<?> query) {
+        return isUnsatisfiable(query.getMetadata().getWhere());
+    }
+
+    private static boolean isUnsatisfiable(Expression<?> predicate) {
+        if (UNSATISFIABLE.equals(predicate)) {
+            return true;
+        }
+        if (predicate instanceof Operation && ((Operation<?>) predicate).getOperator() == Ops.AND) {
+            return ((Operation<?>) predicate).getArgs().stream().anyMatch(QuerydslHelper::isUnsatisfiable);
+        }
+        return false;
+    }
+
+    static <Q extends JPAQuery<?>> Q applyPagination(Q query, Pageable pageable, EntityPath<?> path,
+            Sort.NullHandling nullHandling) {
         if (pageable.isUnpaged()) {
             return query;
         }
         query.offset(pageable.getOffset());
         query.limit(pageable.getPageSize());
-        return applySorting(query, pageable.getSort(), path);
+        return applySorting(query, pageable.getSort(), path, nullHandling);
+    }
+
+    /**
+     * Limits the query to one row more than the page size, to find out whether there is a next slice without counting.
+     */
+    static <Q extends JPAQuery<?>> Q applySlicePagination(Q query, Pageable pageable, EntityPath<?> path,
+            Sort.NullHandling nullHandling) {
+        if (pageable.isUnpaged()) {
+            return query;
+        }
+        query.offset(pageable.getOffset());
+        query.limit(pageable.getPageSize() + 1L);
+        return applySorting(query, pageable.getSort(), path, nullHandling);
+    }
+
+    static <T> Slice<T> toSlice(List<T> content, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(content, pageable, false);
+        }
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    /**
+     * Copies the query, marking the joins with the given aliases as fetch joins. Hints are not copied.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> JPAQuery<T> withFetchJoins(JPAQuery<T> query, EntityManager entityManager, Set<String> aliases) {
+        final QueryMetadata source = query.getMetadata();
+        final DefaultQueryMetadata metadata = new DefaultQueryMetadata();
+        metadata.setValidate(false);
+        for (JoinExpression join : source.getJoins()) {
+            metadata.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                metadata.addJoinCondition(join.getCondition());
+            }
+            join.getFlags().forEach(metadata::addJoinFlag);
+            if (!join.hasFlag(JPAQueryMixin.FETCH) && aliases.contains(getAlias(join))) {
+                metadata.addJoinFlag(JPAQueryMixin.FETCH);
+            }
+        }
+        metadata.addWhere(source.getWhere());
+        metadata.setProjection(source.getProjection());
+        source.getGroupBy().forEach(metadata::addGroupBy);
+        metadata.addHaving(source.getHaving());
+        source.getOrderBy().forEach(metadata::addOrderBy);
+        metadata.setModifiers(source.getModifiers());
+        metadata.setDistinct(source.isDistinct());
+        metadata.setUnique(source.isUnique());
+        source.getFlags().forEach(metadata::addFlag);
+        source.getParams().forEach((param, value) -> metadata.setParam((ParamExpression<Object>) param, value));
+        return new JPAQuery<>(entityManager, metadata);
+    }
+
+    /**
+     * Streams the query through a stateless session on the connection of the entity manager, so that the rows are
+     * neither tracked nor snapshotted. Lazy associations of the rows cannot be loaded, and JPA query hints do not
+     * apply. The session is closed with the stream.
+     */
+    static <T> Stream<T> streamStateless(JPAQuery<T> query, EntityManager entityManager, int fetchSize) {
+        final SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        final StatelessSession statelessSession = session.getFactory().openStatelessSession(session.connection());
+        try {
+            return new HibernateQuery<T>(new StatelessSessionHolder(statelessSession), HQLTemplates.DEFAULT, query.getMetadata())
+                    .setFetchSize(fetchSize)
+                    .stream()
+                    .onClose(statelessSession::close);
+        } catch (RuntimeException e) {
+            statelessSession.close();
+            throw e;
+        }
+    }
+
+    static String getAlias(JoinExpression join) {
+        final Expression<?> target = join.getTarget();
+        if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+            return ((Path<?>) ((Operation<?>) target).getArg(1)).getMetadata().getName();
+        }
+        return null;
+    }
+
+    public static <Q extends JPAQuery<?>> Q applySorting(Q query, Sort sort, EntityPath<?> path) {
+        return applySorting(query, sort, path, Sort.NullHandling.NATIVE);
     }
 
-    public static <T> JPAQuery<T> applySorting(JPAQuery<T> query, Sort sort, EntityPath<T> path) {
+    /**
+     * Orders the query by the properties of the sort, resolved with a {@link PathResolver}: associations the filters
+     * joined are reused, missing ones are left joined, so rows with a null association are kept.
+     *
+     * @param nullHandling applied to the orders that leave the null handling to the database
+     */
+    public static <Q extends JPAQuery<?>> Q applySorting(Q query, Sort sort, EntityPath<?> path, Sort.NullHandling nullHandling) {
         if (!sort.isSorted()) {
             return query;
         }
+        final PathResolver resolver = new PathResolver(query, path);
         sort.get()
-                .forEach(order -> query.orderBy(toOrderSpecifier(order, path)));
+                .forEach(order -> query.orderBy(toOrderSpecifier(order, resolver, nullHandling)));
         return query;
     }
 
-    static <T> OrderSpecifier<?> toOrderSpecifier(Sort.Order sortOrder, EntityPath<T> path) {
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static OrderSpecifier<?> toOrderSpecifier(Sort.Order sortOrder, PathResolver resolver, Sort.NullHandling nullHandling) {
         final Order order = sortOrder.isAscending() ? Order.ASC : Order.DESC;
-        return new OrderSpecifier(order, Expressions.path(path.getType(), path, sortOrder.getProperty()),
-                OrderSpecifier.NullHandling.Default);
+        final Expression<?> target = toSortExpression(sortOrder, resolver);
+        final Sort.NullHandling handling = sortOrder.getNullHandling() != Sort.NullHandling.NATIVE
+                ? sortOrder.getNullHandling()
+                : nullHandling;
+        return new OrderSpecifier(order, target, toNullHandling(handling));
+    }
+
+    /**
+     * The expression an order sorts by: its property, lower cased when the order ignores the case of a string.
+     */
+    static Expression<?> toSortExpression(Sort.Order sortOrder, PathResolver resolver) {
+        final Expression<?> target = resolver.resolve(sortOrder.getProperty());
+        if (sortOrder.isIgnoreCase() && target.getType() == String.class) {
+            return Expressions.stringOperation(Ops.LOWER, target);
+        }
+        return target;
+    }
+
+    /**
+     * Maps the null handling of a Spring Data order to the querydsl one.
+     */
+    public static OrderSpecifier.NullHandling toNullHandling(Sort.NullHandling nullHandling) {
+        switch (nullHandling) {
+            case NULLS_FIRST:
+                return OrderSpecifier.NullHandling.NullsFirst;
+            case NULLS_LAST:
+                return OrderSpecifier.NullHandling.NullsLast;
+            default:
+                return OrderSpecifier.NullHandling.Default;
+        }
     }
 }
@@ -2,92 +2,242 @@ package com.bislan.dynamicquery.library;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
 import com.bislan.dynamicquery.library.expression.ExpressionEntries;
 import com.bislan.dynamicquery.library.expression.ExpressionFactory;
 import com.bislan.dynamicquery.library.expression.ExpressionType;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
 import com.bislan.dynamicquery.library.expression.PredicatePath;
+import com.bislan.dynamicquery.library.expression.PredicateRewrite;
+import com.bislan.dynamicquery.library.expression.QueryPolicy;
 import com.bislan.dynamicquery.library.expression.operator.OperatorType;
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
 import com.bislan.dynamicquery.library.expression.operator.RelationType;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
 import com.querydsl.core.types.Path;
 import com.querydsl.core.types.PathMetadataFactory;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.core.types.dsl.BooleanOperation;
 import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.core.types.dsl.SimplePath;
-import com.querydsl.core.util.StringUtils;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.JPQLQuery;
 
 public class QuerydslPredicateBuilder<T> {
 
     private final Map<String, JoinsData> joins = new LinkedHashMap<>();
     private final Map<String, Path<?>> pathCache = new HashMap<>();
-    private final List<BooleanOperation> predicates = new ArrayList<>();
+    private final List<BooleanExpression> predicates = new ArrayList<>();
     private final Class<? extends T> entityType;
     private final QueryParameters params;
+    private final CollectionPredicateMode collectionMode;
+    private final QueryPolicy policy;
+    private final InListOptions inLists;
+    private final Collection<PredicateRewrite> rewrites;
+    private ExpressionEntries exprMetadata;
 
     public QuerydslPredicateBuilder(Class<? extends T> entityType, QueryParameters params) {
+        this(entityType, params, CollectionPredicateMode.JOIN);
+    }
+
+    public QuerydslPredicateBuilder(Class<? extends T> entityType, QueryParameters params, CollectionPredicateMode collectionMode) {
+        this(entityType, params, collectionMode, QueryPolicy.unrestricted());
+    }
+
+    public QuerydslPredicateBuilder(Class<? extends T> entityType, QueryParameters params, CollectionPredicateMode collectionMode,
+            QueryPolicy policy) {
+        this(entityType, params, collectionMode, policy, InListOptions.defaults());
+    }
+
+    public QuerydslPredicateBuilder(Class<? extends T> entityType, QueryParameters params, CollectionPredicateMode collectionMode,
+            QueryPolicy policy, InListOptions inLists) {
+        this(entityType, params, collectionMode, policy, inLists, EnumSet.allOf(PredicateRewrite.class));
+    }
+
+    public QuerydslPredicateBuilder(Class<? extends T> entityType, QueryParameters params, CollectionPredicateMode collectionMode,
+            QueryPolicy policy, InListOptions inLists, Collection<PredicateRewrite> rewrites) {
         this.entityType = entityType;
         this.params = params;
+        this.collectionMode = collectionMode;
+        this.policy = policy;
+        this.inLists = inLists;
+        this.rewrites = rewrites;
     }
 
+    /**
+     * Builds a predicate with the filter values inlined as constants.
+     */
     public Predicate toPredicate() {
-        ExpressionEntries exprMetadata = ExpressionFactory.createFromParams(entityType, params.getParameters());
-        final String parentName = StringUtils.uncapitalize(entityType.getSimpleName());
+        final ExpressionEntries entries = getExpressionEntries();
+        if (entries.isUnsatisfiable()) {
+            return QuerydslHelper.UNSATISFIABLE;
+        }
+        return build(entries, null, null);
+    }
+
+    /**
+     * Returns the compiled plan for the shape of the parameters, taking it from the {@link QueryPlanCache} when the
+     * same shape was seen before. The values of the current parameters must be bound with
+     * {@link QueryPlan#bind(com.querydsl.jpa.impl.JPAQuery, ExpressionEntries)}.
+     */
+    public QueryPlan toQueryPlan() {
+        final ExpressionEntries entries = getExpressionEntries();
+        if (entries.isUnsatisfiable()) {
+            joins.clear();
+            return QueryPlan.of(QuerydslHelper.UNSATISFIABLE, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), inLists);
+        }
+        final QueryPlanCache cache = QueryPlanCache.getInstance();
+        final List<InListStrategy> listStrategies = new ArrayList<>();
+        final StringBuilder shape = new StringBuilder(QueryPlanCache.shapeOf(entityType, entries)).append('|').append(collectionMode);
+        for (PredicateEntry entry : entries.getPredicates()) {
+            final InListStrategy strategy = entry.getOp().getOpType() == OperatorType.LIST ? inLists.resolve(entry) : null;
+            listStrategies.add(strategy);
+            if (strategy != null) {
+                shape.append('|').append(strategy).append(':').append(inLists.getParameterCount(strategy, entry.getValues()))
+                        .append('x').append(inLists.getChunkSize());
+            }
+        }
+        QueryPlan plan = cache.get(shape.toString());
+        if (plan == null) {
+            final List<Param<?>[]> planParams = new ArrayList<>();
+            Predicate predicate = build(entries, planParams, listStrategies);
+            plan = cache.put(shape.toString(), QueryPlan.of(predicate, new ArrayList<>(joins.values()), planParams, listStrategies, inLists));
+        }
+        joins.clear();
+        plan.getJoins().forEach(join -> joins.put(join.getAlias().toString(), join));
+        return plan;
+    }
+
+    public ExpressionEntries getExpressionEntries() {
+        if (exprMetadata == null) {
+            exprMetadata = PredicateRewrite.optimize(ExpressionFactory.createFromParams(entityType, params.getParameters(), policy),
+                    rewrites);
+        }
+        return exprMetadata;
+    }
+
+    private Predicate build(ExpressionEntries exprMetadata, List<Param<?>[]> planParams, List<InListStrategy> listStrategies) {
+        final String parentName = EntityMetadataRegistry.get(entityType).getName();
         final SimplePath<T> parentPath = Expressions.path(entityType, parentName);
         pathCache.put(parentName, parentPath);
-        exprMetadata.getPredicates()
-                .forEach(predicatePath -> {
-                    Expression<?>[] exprs;
-                    if (predicatePath.getOp().getOpType() == OperatorType.LIST) {
-                        exprs = new Expression<?>[2];
-                        exprs[1] = Expressions.list(
-                                Stream.of(predicatePath.getValues())
-                                        .map(Expressions::constant)
-                                        .distinct()
-                                        .toArray(Expression<?>[]::new));
-                    } else {
-                        exprs = new Expression<?>[predicatePath.getValues().length + 1];
-                        for (int i = 0; i < predicatePath.getValues().length; i++)
-                            exprs[i + 1] = Expressions.constant(predicatePath.getValues()[i]);
-                    }
-                    Path<?> lastPath = parentPath;
-                    for (PredicatePath path : predicatePath.getPath()) {
-                        final String alias = path.getFullPath();
-                        Path<?> prev = pathCache.get(path.getPath());
-                        Path<?> next;
-                        if (path.getRelationType() == RelationType.COLLECTION) {
-                            next = pathCache.computeIfAbsent(alias, key -> Expressions.path(path.getType(), key));
-                            joins.computeIfAbsent(alias,
-                                    fp -> JoinsData.of(
-                                            Expressions.collectionPath(path.getType(), Expressions.path(path.getType(), path.getProperty()).getClass(),
-                                                    PathMetadataFactory.forProperty(prev, path.getProperty())),
-                                            next, path.getRelationType()));
-                        } else if (path.getRelationType() == RelationType.SINGLE) {
-                            next = pathCache.computeIfAbsent(alias, key -> Expressions.path(path.getType(), key));
-                            joins.computeIfAbsent(alias,
-                                    fp -> JoinsData.of(new PathBuilder<Object>(path.getType(), PathMetadataFactory.forProperty(prev, path.getProperty())), next,
-                                            path.getRelationType()));
-                        } else {
-                            next = pathCache.computeIfAbsent(alias,
-                                    key -> Expressions.path(path.getType(), PathMetadataFactory.forProperty(prev, path.getProperty())));
-                        }
-                        lastPath = next;
+        final Map<String, Class<?>> entityAliases = new HashMap<>();
+        entityAliases.put(parentName, entityType);
+        final Map<String, ExistsGroup> groups = new LinkedHashMap<>();
+        final List<PredicateEntry> entries = exprMetadata.getPredicates();
+        for (int index = 0; index < entries.size(); index++) {
+            final PredicateEntry predicatePath = entries.get(index);
+            final InListStrategy listStrategy = listStrategies != null ? listStrategies.get(index) : null;
+            Operator operator = predicatePath.getOp().getOperator();
+            Expression<?>[] exprs;
+            if (planParams != null) {
+                final int paramCount = listStrategy != null ? inLists.getParameterCount(listStrategy, predicatePath.getValues())
+                        : QueryPlan.getBindValues(predicatePath).length;
+                Param<?>[] entryParams = new Param<?>[paramCount];
+                for (int i = 0; i < entryParams.length; i++)
+                    entryParams[i] = new Param<>(listStrategy != null ? Object.class : QueryPlan.getBindType(predicatePath));
+                planParams.add(entryParams);
+                exprs = new Expression<?>[entryParams.length + 1];
+                System.arraycopy(entryParams, 0, exprs, 1, entryParams.length);
+                operator = QueryPlan.getBindOperator(predicatePath.getOp());
+            } else if (predicatePath.getOp().getOpType() == OperatorType.LIST) {
+                // a single collection constant: a list expression per value nests as deep as the list is long
+                exprs = new Expression<?>[2];
+                exprs[1] = Expressions.constant(Stream.of(predicatePath.getValues())
+                        .distinct()
+                        .collect(Collectors.toList()));
+            } else {
+                exprs = new Expression<?>[predicatePath.getValues().length + 1];
+                for (int i = 0; i < predicatePath.getValues().length; i++)
+                    exprs[i + 1] = Expressions.constant(predicatePath.getValues()[i]);
+            }
+            Path<?> lastPath = parentPath;
+            Map<String, JoinsData> pathJoins = joins;
+            ExistsGroup group = null;
+            for (PredicatePath path : predicatePath.getPath()) {
+                final String alias = path.getFullPath();
+                Path<?> prev = pathCache.get(path.getPath());
+                if (group == null && collectionMode == CollectionPredicateMode.EXISTS
+                        && path.getRelationType() == RelationType.COLLECTION && entityAliases.containsKey(path.getPath())) {
+                    final Path<?> correlated = prev;
+                    group = groups.computeIfAbsent(alias,
+                            key -> ExistsGroup.of(new PathBuilder<>(entityAliases.get(path.getPath()), key + "_owner"), correlated));
+                    prev = group.owner;
+                    pathJoins = group.joins;
+                }
+                final Path<?> owner = prev;
+                Path<?> next;
+                if (path.getRelationType() == RelationType.COLLECTION) {
+                    next = pathCache.computeIfAbsent(alias, key -> Expressions.path(path.getType(), key));
+                    pathJoins.computeIfAbsent(alias,
+                            fp -> JoinsData.of(
+                                    Expressions.collectionPath(path.getType(), Expressions.path(path.getType(), path.getProperty()).getClass(),
+                                            PathMetadataFactory.forProperty(owner, path.getProperty())),
+                                    next, path.getRelationType()));
+                } else if (path.getRelationType() == RelationType.SINGLE) {
+                    next = pathCache.computeIfAbsent(alias, key -> Expressions.path(path.getType(), key));
+                    pathJoins.computeIfAbsent(alias,
+                            fp -> JoinsData.of(new PathBuilder<Object>(path.getType(), PathMetadataFactory.forProperty(owner, path.getProperty())), next,
+                                    path.getRelationType()));
+                    if (group == null) {
+                        entityAliases.put(alias, path.getType());
                     }
-                    exprs[0] = Expressions.path(predicatePath.getPropertyType(), lastPath, predicatePath.getProperty());
+                } else {
+                    next = pathCache.computeIfAbsent(alias,
+                            key -> Expressions.path(path.getType(), PathMetadataFactory.forProperty(owner, path.getProperty())));
+                }
+                lastPath = next;
+            }
+            exprs[0] = Expressions.path(predicatePath.getPropertyType(), lastPath, predicatePath.getProperty());
+            if (operator != predicatePath.getOp().getOperator() && QueryPlan.isIgnoreCase(predicatePath.getOp())) {
+                exprs[0] = Expressions.stringOperation(Ops.LOWER, exprs[0]);
+            }
+
+            final BooleanExpression predicate = listStrategy != null
+                    ? listPredicate(predicatePath.getOp(), listStrategy, exprs)
+                    : Expressions.predicate(operator, exprs);
+            if (group != null) {
+                group.predicates.add(predicate);
+            } else {
+                predicates.add(predicate);
+            }
+        }
+        groups.values().forEach(group -> predicates.add(group.toExists(exprMetadata.getType())));
+        return combine(exprMetadata.getType(), predicates);
+    }
+
+    /**
+     * An {@code in} or {@code not_in} on the bind parameters of the strategy: a single array, or one list per chunk.
+     */
+    private static BooleanExpression listPredicate(PredicateOperator op, InListStrategy strategy, Expression<?>[] exprs) {
+        if (strategy == InListStrategy.ARRAY) {
+            return Expressions.booleanTemplate("function('" + InListFunctions.IN_ARRAY + "', {0}, {1}) = "
+                    + (op == PredicateOperator.IN), exprs[0], exprs[1]);
+        }
+        final BooleanExpression[] chunks = new BooleanExpression[exprs.length - 1];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Expressions.predicate(op.getOperator(), exprs[0], exprs[i + 1]);
+        }
+        return op == PredicateOperator.IN ? Expressions.anyOf(chunks) : Expressions.allOf(chunks);
+    }
 
-                    predicates.add(Expressions.predicate(predicatePath.getOp().getOperator(), exprs));
-                });
-        BooleanExpression[] booleanExprs = predicates.toArray(new BooleanOperation[0]);
+    private static Predicate combine(ExpressionType type, List<BooleanExpression> predicates) {
+        BooleanExpression[] booleanExprs = predicates.toArray(new BooleanExpression[0]);
         // allOf: AND all the predicates | anyOf: OR all the predicates
-        if (exprMetadata.getType() == ExpressionType.ANYOF) {
+        if (type == ExpressionType.ANYOF) {
             return Expressions.anyOf(booleanExprs);
         } else {
             return Expressions.allOf(booleanExprs);
@@ -97,4 +247,37 @@ public class QuerydslPredicateBuilder<T> {
     public Collection<JoinsData> getJoins() {
         return joins.values();
     }
+
+    /**
+     * The filters on one collection, rendered as
+     * {@code exists (select 1 from Owner owner join owner.collection c where owner = outer and ...)}.
+     */
+    private static class ExistsGroup {
+        private final PathBuilder<?> owner;
+        private final Path<?> correlated;
+        private final Map<String, JoinsData> joins = new LinkedHashMap<>();
+        private final List<BooleanExpression> predicates = new ArrayList<>();
+
+        private ExistsGroup(PathBuilder<?> owner, Path<?> correlated) {
+            this.owner = owner;
+            this.correlated = correlated;
+        }
+
+        public static ExistsGroup of(PathBuilder<?> owner, Path<?> correlated) {
+            return new ExistsGroup(owner, correlated);
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private BooleanExpression toExists(ExpressionType type) {
+            JPQLQuery<Integer> subQuery = JPAExpressions.selectOne().from(owner);
+            for (JoinsData join : joins.values()) {
+                if (join.getRelationType() == RelationType.COLLECTION) {
+                    subQuery = subQuery.join((CollectionExpression) join.getExpr(), join.getAlias());
+                } else {
+                    subQuery = subQuery.join((EntityPath) join.getExpr(), join.getAlias());
+                }
+            }
+            return subQuery.where(Expressions.predicate(Ops.EQ, owner, correlated), combine(type, predicates)).exists();
+        }
+    }
 }
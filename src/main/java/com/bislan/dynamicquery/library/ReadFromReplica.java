@@ -0,0 +1,25 @@
+package com.bislan.dynamicquery.library;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an executor, or the repository interface that declares it, whose dynamic queries may run on one of its
+ * {@link DynamicQuerydslPredicateExecutor#getReadReplicas() read replicas}, as if every call passed the
+ * {@link DynamicQueryHints#REPLICA} hint.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ReadFromReplica {
+
+    /**
+     * The replication lag the queries tolerate, in milliseconds; negative for any lag.
+     */
+    long maxStalenessMillis() default -1;
+}
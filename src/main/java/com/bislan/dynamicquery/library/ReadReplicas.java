@@ -0,0 +1,217 @@
+package com.bislan.dynamicquery.library;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.ExpressionFactory;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.PredicatePath;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+
+/**
+ * Read replicas of the persistence unit of an executor, as entity manager factories of the same entities on the
+ * replica databases. A call with {@link QueryParameters} runs on a replica when the caller allows it, through the
+ * {@link DynamicQueryHints#REPLICA} hint or {@link ReadFromReplica}, and is forced onto one when its shape is heavy: many
+ * joins, a long {@code in} list or no paging. Calls in a transaction that may have written stay on the primary, so
+ * that they read their own writes, and so does any call with the hint set to {@code false}. The queries of an
+ * {@link AsyncQueryExecutor} write nothing, they are routed like calls outside of a transaction.
+ * <p>
+ * A routed call runs on an entity manager of its own, so its entities are returned detached, and bypasses the
+ * {@link ResultCache}, which is only invalidated by the writes on the primary. Streams always read the primary.
+ */
+public class ReadReplicas {
+
+    private final List<EntityManagerFactory> replicas;
+    private final ReplicaBalancing balancing;
+    private final Function<EntityManagerFactory, Duration> lag;
+    private final int heavyJoins;
+    private final int heavyListValues;
+    private final boolean heavyUnpaged;
+    private final AtomicInteger next;
+    private final AtomicInteger[] load;
+
+    private ReadReplicas(List<EntityManagerFactory> replicas, ReplicaBalancing balancing,
+            Function<EntityManagerFactory, Duration> lag, int heavyJoins, int heavyListValues, boolean heavyUnpaged,
+            AtomicInteger next, AtomicInteger[] load) {
+        this.replicas = replicas;
+        this.balancing = balancing;
+        this.lag = lag;
+        this.heavyJoins = heavyJoins;
+        this.heavyListValues = heavyListValues;
+        this.heavyUnpaged = heavyUnpaged;
+        this.next = next;
+        this.load = load;
+    }
+
+    /**
+     * Round robin over the replicas; no shape is heavy.
+     */
+    public static ReadReplicas of(EntityManagerFactory... replicas) {
+        return of(List.of(replicas));
+    }
+
+    public static ReadReplicas of(List<EntityManagerFactory> replicas) {
+        if (replicas.isEmpty()) {
+            throw new RuntimeException("No read replicas");
+        }
+        final AtomicInteger[] load = new AtomicInteger[replicas.size()];
+        for (int i = 0; i < load.length; i++) {
+            load[i] = new AtomicInteger();
+        }
+        return new ReadReplicas(List.copyOf(replicas), ReplicaBalancing.ROUND_ROBIN, null, Integer.MAX_VALUE,
+                Integer.MAX_VALUE, false, new AtomicInteger(), load);
+    }
+
+    public ReadReplicas withBalancing(ReplicaBalancing balancing) {
+        return new ReadReplicas(replicas, balancing, lag, heavyJoins, heavyListValues, heavyUnpaged, next, load);
+    }
+
+    /**
+     * The current replication lag of a replica, checked against the staleness a call tolerates. Without it every
+     * replica is assumed to be current enough.
+     */
+    public ReadReplicas withLag(Function<EntityManagerFactory, Duration> lag) {
+        return new ReadReplicas(replicas, balancing, lag, heavyJoins, heavyListValues, heavyUnpaged, next, load);
+    }
+
+    /**
+     * Forces calls onto a replica when their filters join more than {@code maxJoins} associations, when one of their
+     * lists has more than {@code maxListValues} values, or, with {@code unpaged}, when they are not paged.
+     */
+    public ReadReplicas withHeavyShape(int maxJoins, int maxListValues, boolean unpaged) {
+        return new ReadReplicas(replicas, balancing, lag, maxJoins, maxListValues, unpaged, next, load);
+    }
+
+    public List<EntityManagerFactory> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * The number of routed calls running on the replica.
+     */
+    public int getLoad(EntityManagerFactory replica) {
+        final int index = replicas.indexOf(replica);
+        return index < 0 ? 0 : load[index].get();
+    }
+
+    /**
+     * The replica a call runs on, or {@code null} for the primary.
+     */
+    Route route(DynamicQuerydslPredicateExecutor<?> executor, QueryParameters params, boolean unpaged,
+            Map<String, Object> hints) {
+        final Object hint = hints.get(DynamicQueryHints.REPLICA);
+        if (Boolean.FALSE.equals(hint) || hint instanceof String && !Boolean.parseBoolean((String) hint)
+                || !Transactions.isReadOnly(executor.getEntityManager())) {
+            return null;
+        }
+        final ReadFromReplica annotation = AnnotatedElementUtils.findMergedAnnotation(executor.getClass(), ReadFromReplica.class);
+        Duration tolerance = null;
+        if (hint instanceof Duration) {
+            tolerance = (Duration) hint;
+        } else if (hint instanceof Number) {
+            tolerance = Duration.ofMillis(((Number) hint).longValue());
+        } else if (hint == null && annotation != null && annotation.maxStalenessMillis() >= 0) {
+            tolerance = Duration.ofMillis(annotation.maxStalenessMillis());
+        }
+        if (hint == null && annotation == null && !isHeavy(executor, params, unpaged)) {
+            return null;
+        }
+        final int replica = select(tolerance);
+        return replica < 0 ? null : new Route(replica);
+    }
+
+    private boolean isHeavy(DynamicQuerydslPredicateExecutor<?> executor, QueryParameters params, boolean unpaged) {
+        if (unpaged && heavyUnpaged) {
+            return true;
+        }
+        if (heavyJoins == Integer.MAX_VALUE && heavyListValues == Integer.MAX_VALUE) {
+            return false;
+        }
+        final ExpressionEntries entries = ExpressionFactory.createFromParams(executor.getEntityClass(), params.getParameters(),
+                executor.getQueryPolicy());
+        final Set<String> joins = new HashSet<>();
+        for (PredicateEntry entry : entries.getPredicates()) {
+            if (entry.getValues().length > heavyListValues) {
+                return true;
+            }
+            for (PredicatePath path : entry.getPath()) {
+                if (path.getRelationType() != RelationType.EMBEDDED) {
+                    joins.add(path.getFullPath());
+                }
+            }
+        }
+        return joins.size() > heavyJoins;
+    }
+
+    private int select(Duration tolerance) {
+        int selected = -1;
+        for (int n = 0; n < replicas.size(); n++) {
+            final int i = balancing == ReplicaBalancing.ROUND_ROBIN ? Math.floorMod(next.getAndIncrement(), replicas.size()) : n;
+            if (!isCurrent(replicas.get(i), tolerance)) {
+                continue;
+            }
+            if (balancing == ReplicaBalancing.ROUND_ROBIN) {
+                return i;
+            }
+            if (selected < 0 || load[i].get() < load[selected].get()) {
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    private boolean isCurrent(EntityManagerFactory replica, Duration tolerance) {
+        if (lag == null || tolerance == null) {
+            return true;
+        }
+        final Duration replicaLag = lag.apply(replica);
+        return replicaLag != null && replicaLag.compareTo(tolerance) <= 0;
+    }
+
+    /**
+     * A call routed to a replica.
+     */
+    class Route {
+        private final int replica;
+
+        private Route(int replica) {
+            this.replica = replica;
+        }
+
+        EntityManagerFactory getReplica() {
+            return replicas.get(replica);
+        }
+
+        <T, R> R run(DynamicQuerydslPredicateExecutor<T> executor, Function<DynamicQuerydslPredicateExecutor<T>, R> call) {
+            load[replica].incrementAndGet();
+            final EntityManager entityManager = replicas.get(replica).createEntityManager();
+            try {
+                return call.apply(new EntityManagerBoundExecutor<>(executor, entityManager) {
+                    @Override
+                    public ResultCache getResultCache() {
+                        return null;
+                    }
+
+                    @Override
+                    public ReadReplicas getReadReplicas() {
+                        return null;
+                    }
+                });
+            } finally {
+                entityManager.close();
+                load[replica].decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.bislan.dynamicquery.library;
+
+/**
+ * How {@link ReadReplicas} picks the replica of a query.
+ */
+public enum ReplicaBalancing {
+    /**
+     * Each replica in turn.
+     */
+    ROUND_ROBIN,
+    /**
+     * The replica with the fewest queries running, the first of them on a tie.
+     */
+    LEAST_LOADED
+}
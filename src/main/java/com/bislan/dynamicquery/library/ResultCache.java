@@ -0,0 +1,410 @@
+package com.bislan.dynamicquery.library;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+import com.bislan.dynamicquery.library.expression.EntityMetadata;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+
+/**
+ * Bounded LRU cache of query results, keyed by the entity, the parameters, the sort, the page and the hints. Entities
+ * are cached as ids and loaded again on a hit, projections as their rows. An entry is dropped when an entity of any
+ * type it filtered, joined, sorted by or projected is inserted, updated or deleted, or when a collection of such an
+ * entity is changed, once that transaction commits, and when a write of such a type fails to commit. Calls in a
+ * transaction that may have written neither read nor fill the cache. Bulk JPQL or native updates bypass the Hibernate
+ * events and are not seen; call {@link #invalidate(Class)} after them.
+ */
+public class ResultCache {
+
+    private final Map<Key, Entry> entries;
+    private final Map<Class<?>, Statistics> statistics = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final int maximumSize;
+    private final long ttlNanos;
+
+    public ResultCache(int maximumSize, Duration ttl) {
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ResultCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Listens to the entity writes of the persistence unit. Must be called once per entity manager factory the cached
+     * executors use.
+     */
+    public ResultCache register(EntityManagerFactory entityManagerFactory) {
+        final EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        final InvalidationListener listener = new InvalidationListener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+        return this;
+    }
+
+    static Key keyOf(Class<?> entityType, String kind, QueryParameters params, Sort sort, Pageable pageable,
+            Map<String, Object> hints) {
+        Object page = null;
+        if (pageable != null) {
+            page = pageable.isPaged() ? List.of(pageable.getOffset(), pageable.getPageSize(), pageable.getSort()) : Pageable.unpaged();
+        }
+        return new Key(Arrays.asList(entityType, kind, Collections.unmodifiableMap(new HashMap<>(params.getParameters())),
+                sort, page, Collections.unmodifiableMap(new HashMap<>(hints))));
+    }
+
+    /**
+     * The root entity and every association type reached by a filter, fetch, field or sort path of the call.
+     */
+    static Set<Class<?>> typesOf(Class<?> entityType, QueryParameters params, Sort sort, Pageable pageable) {
+        final Set<Class<?>> types = new HashSet<>();
+        types.add(entityType);
+        addTypes(entityType, params.getParameters().keySet(), types);
+        addTypes(entityType, params.getFields(), types);
+        addTypes(entityType, params.getFetch(), types);
+        addTypes(entityType, sort.stream().map(Sort.Order::getProperty).collect(Collectors.toList()), types);
+        if (pageable != null) {
+            addTypes(entityType, pageable.getSort().stream().map(Sort.Order::getProperty).collect(Collectors.toList()), types);
+        }
+        return types;
+    }
+
+    private static void addTypes(Class<?> entityType, Collection<String> paths, Set<Class<?>> types) {
+        for (String path : paths) {
+            EntityMetadata metadata = EntityMetadataRegistry.get(entityType);
+            for (String part : StringUtils.tokenizeToStringArray(path, ".")) {
+                final PropertyMetadata property = metadata.getProperty(part);
+                if (property == null || property.getRelationType() == null) {
+                    break;
+                }
+                types.add(property.getTargetType());
+                metadata = EntityMetadataRegistry.get(property.getTargetType());
+            }
+        }
+    }
+
+    CachedResult get(Class<?> entityType, Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.created > ttlNanos) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+        }
+        final Statistics entityStatistics = statistics.computeIfAbsent(entityType, type -> new Statistics());
+        if (entry == null) {
+            misses.incrementAndGet();
+            entityStatistics.misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entityStatistics.hits.incrementAndGet();
+        return entry.result;
+    }
+
+    /**
+     * The number of invalidations so far. A result is only stored when it did not change while the query ran.
+     */
+    long getEpoch() {
+        return invalidations.get();
+    }
+
+    void put(Key key, CachedResult result, Set<Class<?>> types, long epoch) {
+        synchronized (entries) {
+            if (invalidations.get() == epoch) {
+                entries.put(key, new Entry(result, types, System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Drops every result that involves the type, one of its subtypes or one of its supertypes.
+     */
+    public void invalidate(Class<?> type) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            final Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().involves(type)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public double getHitRatio() {
+        return ratio(hits.get(), misses.get());
+    }
+
+    public double getHitRatio(Class<?> entityType) {
+        final Statistics entityStatistics = statistics.get(entityType);
+        return entityStatistics == null ? 0.0 : ratio(entityStatistics.hits.get(), entityStatistics.misses.get());
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * The ids of cached entities or the rows of a cached projection, with the total of a page or the next flag of a
+     * slice.
+     */
+    static class CachedResult {
+        private final List<?> values;
+        private final long total;
+        private final boolean totalExact;
+        private final boolean hasNext;
+
+        private CachedResult(List<?> values, long total, boolean totalExact, boolean hasNext) {
+            this.values = Collections.unmodifiableList(values);
+            this.total = total;
+            this.totalExact = totalExact;
+            this.hasNext = hasNext;
+        }
+
+        static CachedResult of(List<?> values) {
+            return new CachedResult(values, -1, true, false);
+        }
+
+        static CachedResult ofPage(List<?> values, long total, boolean totalExact) {
+            return new CachedResult(values, total, totalExact, false);
+        }
+
+        static CachedResult ofSlice(List<?> values, boolean hasNext) {
+            return new CachedResult(values, -1, true, hasNext);
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> List<V> getValues() {
+            return (List<V>) values;
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        boolean isTotalExact() {
+            return totalExact;
+        }
+
+        boolean hasNext() {
+            return hasNext;
+        }
+    }
+
+    /**
+     * The identity of a call: its entity, kind, parameters, sort, page and hints, compared as values rather than as
+     * their text, which values containing separators could make ambiguous.
+     */
+    static final class Key {
+        private final List<Object> parts;
+
+        private Key(List<Object> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Key && parts.equals(((Key) o).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return parts.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return parts.toString();
+        }
+    }
+
+    private static class Statistics {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+    }
+
+    private static class Entry {
+        private final CachedResult result;
+        private final Set<Class<?>> types;
+        private final long created;
+
+        private Entry(CachedResult result, Set<Class<?>> types, long created) {
+            this.result = result;
+            this.types = types;
+            this.created = created;
+        }
+
+        private boolean involves(Class<?> type) {
+            for (Class<?> involved : types) {
+                if (involved.isAssignableFrom(type) || type.isAssignableFrom(involved)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Entity writes invalidate after the commit, or after the rollback of a commit that failed. Collection changes, e.g. of a many-to-many association, are only
+     * announced while flushing, so they invalidate the owner once the transaction completed: a path through a collection
+     * always involves the type that declares it.
+     */
+    private class InvalidationListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+            PostCommitDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+            PostCollectionRemoveEventListener {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            invalidate(event.getPersister().getMappedClass());
+        }
+
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+            invalidate(event.getPersister().getMappedClass());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            invalidate(event.getPersister().getMappedClass());
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+            invalidate(event.getPersister().getMappedClass());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            invalidate(event.getPersister().getMappedClass());
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+            invalidate(event.getPersister().getMappedClass());
+        }
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            invalidateOnCommit(event);
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            invalidateOnCommit(event);
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            invalidateOnCommit(event);
+        }
+
+        private void invalidateOnCommit(AbstractCollectionEvent event) {
+            final Class<?> owner = event.getSession().getFactory().getMetamodel()
+                    .entityPersister(event.getAffectedOwnerEntityName()).getMappedClass();
+            event.getSession().getActionQueue().registerProcess((success, session) -> invalidate(owner));
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return true;
+        }
+
+        /**
+         * @deprecated required by Hibernate 5, which calls {@link #requiresPostCommitHandling} instead
+         */
+        @Override
+        @Deprecated
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return requiresPostCommitHandling(persister);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.bislan.dynamicquery.library;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.ValueExtractor;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.AbstractTypeDescriptor;
+import org.hibernate.type.descriptor.java.ArrayMutabilityPlan;
+import org.hibernate.type.descriptor.java.JavaTypeDescriptor;
+import org.hibernate.type.descriptor.sql.BasicBinder;
+import org.hibernate.type.descriptor.sql.BasicExtractor;
+import org.hibernate.type.descriptor.sql.SqlTypeDescriptor;
+
+/**
+ * Binds an {@code Object[]} as a JDBC array of the given element type, for {@link InListStrategy#ARRAY}.
+ */
+class SqlArrayType extends AbstractSingleColumnStandardBasicType<Object[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Map<String, SqlArrayType> TYPES = new ConcurrentHashMap<>();
+
+    private static final Map<String, Function<String, Object>> ELEMENT_PARSERS = Map.of(
+            "bigint", Long::valueOf,
+            "integer", Integer::valueOf,
+            "smallint", Short::valueOf,
+            "varchar", value -> value,
+            "uuid", UUID::fromString,
+            "numeric", BigDecimal::new);
+
+    private final String elementType;
+
+    private SqlArrayType(String elementType) {
+        super(new ArraySqlTypeDescriptor(elementType), new ArrayJavaTypeDescriptor(elementType));
+        this.elementType = elementType;
+    }
+
+    static SqlArrayType of(String elementType) {
+        return TYPES.computeIfAbsent(elementType, SqlArrayType::new);
+    }
+
+    @Override
+    public String getName() {
+        return elementType + "[]";
+    }
+
+    /**
+     * Writes arrays as SQL array literals, {@code {"1","2",NULL}}, and parses them back with the parser of the element
+     * type.
+     */
+    private static class ArrayJavaTypeDescriptor extends AbstractTypeDescriptor<Object[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String elementType;
+
+        @SuppressWarnings("unchecked")
+        ArrayJavaTypeDescriptor(String elementType) {
+            super(Object[].class, ArrayMutabilityPlan.INSTANCE);
+            this.elementType = elementType;
+        }
+
+        @Override
+        public String toString(Object[] value) {
+            final StringBuilder literal = new StringBuilder("{");
+            for (int i = 0; i < value.length; i++) {
+                if (i > 0) {
+                    literal.append(',');
+                }
+                if (value[i] == null) {
+                    literal.append("NULL");
+                } else {
+                    literal.append('"').append(value[i].toString().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+                }
+            }
+            return literal.append('}').toString();
+        }
+
+        @Override
+        public Object[] fromString(String string) {
+            if (!string.startsWith("{") || !string.endsWith("}")) {
+                throw new IllegalArgumentException("Not an array literal: " + string);
+            }
+            final Function<String, Object> parser = ELEMENT_PARSERS.getOrDefault(elementType, value -> value);
+            final int end = string.length() - 1;
+            final List<Object> elements = new ArrayList<>();
+            int i = 1;
+            while (i < end) {
+                if (string.startsWith("NULL", i)) {
+                    elements.add(null);
+                    i += 4;
+                } else if (string.charAt(i) == '"') {
+                    final StringBuilder element = new StringBuilder();
+                    for (i++; i < end && string.charAt(i) != '"'; i++) {
+                        element.append(string.charAt(i) == '\\' && i + 1 < end ? string.charAt(++i) : string.charAt(i));
+                    }
+                    if (i++ >= end) {
+                        throw new IllegalArgumentException("Unterminated array element: " + string);
+                    }
+                    elements.add(parser.apply(element.toString()));
+                } else {
+                    throw new IllegalArgumentException("Not an array literal: " + string);
+                }
+                if (i < end && (string.charAt(i++) != ',' || i == end)) {
+                    throw new IllegalArgumentException("Not an array literal: " + string);
+                }
+            }
+            return elements.toArray();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <X> X unwrap(Object[] value, Class<X> type, WrapperOptions options) {
+            if (value == null || type.isInstance(value)) {
+                return (X) value;
+            }
+            throw unknownUnwrap(type);
+        }
+
+        @Override
+        public <X> Object[] wrap(X value, WrapperOptions options) {
+            if (value == null || value instanceof Object[]) {
+                return (Object[]) value;
+            }
+            throw unknownWrap(value.getClass());
+        }
+    }
+
+    private static class ArraySqlTypeDescriptor implements SqlTypeDescriptor {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String elementType;
+
+        ArraySqlTypeDescriptor(String elementType) {
+            this.elementType = elementType;
+        }
+
+        @Override
+        public int getSqlType() {
+            return Types.ARRAY;
+        }
+
+        @Override
+        public boolean canBeRemapped() {
+            return false;
+        }
+
+        @Override
+        public <X> ValueBinder<X> getBinder(JavaTypeDescriptor<X> javaTypeDescriptor) {
+            return new BasicBinder<X>(javaTypeDescriptor, this) {
+                @Override
+                protected void doBind(PreparedStatement st, X value, int index, WrapperOptions options) throws SQLException {
+                    st.setArray(index, st.getConnection().createArrayOf(elementType, javaTypeDescriptor.unwrap(value, Object[].class, options)));
+                }
+
+                @Override
+                protected void doBind(CallableStatement st, X value, String name, WrapperOptions options) throws SQLException {
+                    st.setObject(name, st.getConnection().createArrayOf(elementType, javaTypeDescriptor.unwrap(value, Object[].class, options)));
+                }
+            };
+        }
+
+        @Override
+        public <X> ValueExtractor<X> getExtractor(JavaTypeDescriptor<X> javaTypeDescriptor) {
+            return new BasicExtractor<X>(javaTypeDescriptor, this) {
+                @Override
+                protected X doExtract(ResultSet rs, String name, WrapperOptions options) throws SQLException {
+                    return javaTypeDescriptor.wrap(toArray(rs.getArray(name)), options);
+                }
+
+                @Override
+                protected X doExtract(CallableStatement statement, int index, WrapperOptions options) throws SQLException {
+                    return javaTypeDescriptor.wrap(toArray(statement.getArray(index)), options);
+                }
+
+                @Override
+                protected X doExtract(CallableStatement statement, String name, WrapperOptions options) throws SQLException {
+                    return javaTypeDescriptor.wrap(toArray(statement.getArray(name)), options);
+                }
+            };
+        }
+
+        private static Object toArray(Array array) throws SQLException {
+            return array == null ? null : array.getArray();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.bislan.dynamicquery.library;
+
+import java.sql.Connection;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * What the transaction of a call lets it share with other callers: a Spring managed transaction, the transaction the
+ * entity manager joined otherwise, e.g. the resource-local one of an {@link AsyncQueryExecutor}, or none.
+ */
+final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * Whether the call cannot have written anything it expects to read back: it runs outside of a transaction, in a
+     * read-only Spring transaction, or in one whose session loads its entities read-only.
+     */
+    static boolean isReadOnly(EntityManager entityManager) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return !entityManager.isJoinedToTransaction() || entityManager.unwrap(Session.class).isDefaultReadOnly();
+    }
+
+    /**
+     * Whether the call sees the rows other callers see: it runs outside of a transaction, or in a read committed one. A
+     * transaction of the default isolation runs at the one of its connection.
+     */
+    static boolean isReadCommitted(EntityManager entityManager) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive() && !entityManager.isJoinedToTransaction()) {
+            return true;
+        }
+        Integer isolation = TransactionSynchronizationManager.getCurrentTransactionIsolationLevel();
+        if (isolation == null) {
+            isolation = entityManager.unwrap(Session.class).doReturningWork(Connection::getTransactionIsolation);
+        }
+        return isolation <= Connection.TRANSACTION_READ_COMMITTED;
+    }
+}
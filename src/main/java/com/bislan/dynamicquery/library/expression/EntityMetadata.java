@@ -0,0 +1,54 @@
+package com.bislan.dynamicquery.library.expression;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.util.StringUtils;
+
+public class EntityMetadata {
+
+    private final Class<?> type;
+    private final String name;
+    private final PathBuilder<?> entityPath;
+    private final Map<String, PropertyMetadata> properties;
+    private final String idProperty;
+
+    EntityMetadata(Class<?> type, Map<String, PropertyMetadata> properties, String idProperty) {
+        this.type = type;
+        this.name = StringUtils.uncapitalize(type.getSimpleName());
+        this.entityPath = new PathBuilder<>(type, name);
+        this.properties = Collections.unmodifiableMap(properties);
+        this.idProperty = idProperty;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * The root alias used for this type in generated queries.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public PathBuilder<?> getEntityPath() {
+        return entityPath;
+    }
+
+    public PropertyMetadata getProperty(String property) {
+        return properties.get(property);
+    }
+
+    public Map<String, PropertyMetadata> getProperties() {
+        return properties;
+    }
+
+    /**
+     * The single identifier property, or {@code null} for composite ids and non-entity types.
+     */
+    public PropertyMetadata getId() {
+        return idProperty != null ? properties.get(idProperty) : null;
+    }
+}
@@ -0,0 +1,239 @@
+package com.bislan.dynamicquery.library.expression;
+
+import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.IdentifiableType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.convert.Property;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.util.StringUtils;
+
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+
+/**
+ * Resolves the property graph of entity and embeddable types once and keeps it for the lifetime of the application.
+ * Types are either seeded from a JPA {@link Metamodel} or introspected lazily on first access. The metamodel wins:
+ * an introspected type is replaced when a metamodel that knows it is registered.
+ */
+public class EntityMetadataRegistry {
+
+    private static final Map<Class<?>, EntityMetadata> REGISTRY = new ConcurrentHashMap<>();
+    private static final Set<Class<?>> SEEDED = ConcurrentHashMap.newKeySet();
+    private static final Set<Metamodel> METAMODELS = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private EntityMetadataRegistry() {
+    }
+
+    public static EntityMetadata get(Class<?> type) {
+        return REGISTRY.computeIfAbsent(type, EntityMetadataRegistry::introspect);
+    }
+
+    /**
+     * Same as {@link #get(Class)}, but seeds the registry from the given metamodel unless the type already came from
+     * one, so that a type introspected before is re-seeded.
+     */
+    public static EntityMetadata get(Class<?> type, Supplier<Metamodel> metamodel) {
+        if (SEEDED.contains(type)) {
+            return REGISTRY.get(type);
+        }
+        final Metamodel model = metamodel.get();
+        if (METAMODELS.add(model)) {
+            register(model);
+        }
+        return get(type);
+    }
+
+    /**
+     * Resolves a dotted property path, e.g. {@code customer.name}, starting at the given type. Returns {@code null}
+     * when a segment does not exist.
+     */
+    public static PropertyMetadata resolve(Class<?> type, String propertyPath) {
+        EntityMetadata metadata = get(type);
+        PropertyMetadata property = null;
+        for (String part : StringUtils.tokenizeToStringArray(propertyPath, ".")) {
+            if (property != null) {
+                metadata = get(property.getTargetType());
+            }
+            property = metadata.getProperty(part);
+            if (property == null) {
+                return null;
+            }
+        }
+        return property;
+    }
+
+    /**
+     * Seeds the types of the metamodel, replacing those that were introspected. Several persistence units may map the
+     * same type, e.g. a primary and its read replicas, but only the same way.
+     *
+     * @throws RuntimeException when a type was seeded from another metamodel with different properties
+     */
+    public static void register(Metamodel metamodel) {
+        for (ManagedType<?> managedType : metamodel.getManagedTypes()) {
+            Class<?> type = managedType.getJavaType();
+            if (type == null) {
+                continue;
+            }
+            Map<String, PropertyMetadata> properties = new HashMap<>();
+            for (Attribute<?, ?> attribute : managedType.getAttributes()) {
+                properties.put(attribute.getName(), toPropertyMetadata(attribute));
+            }
+            final EntityMetadata seeded = new EntityMetadata(type, properties, getIdProperty(managedType));
+            REGISTRY.compute(type, (key, existing) -> {
+                if (existing == null || !SEEDED.contains(type)) {
+                    return seeded;
+                }
+                if (!isSameMapping(existing, seeded)) {
+                    throw new RuntimeException("Conflicting mappings of " + type.getName() + " in different metamodels");
+                }
+                return existing;
+            });
+            SEEDED.add(type);
+        }
+    }
+
+    public static void clear() {
+        REGISTRY.clear();
+        SEEDED.clear();
+        METAMODELS.clear();
+    }
+
+    private static boolean isSameMapping(EntityMetadata existing, EntityMetadata seeded) {
+        if (!existing.getProperties().keySet().equals(seeded.getProperties().keySet())
+                || !Objects.equals(existing.getId() == null ? null : existing.getId().getName(),
+                        seeded.getId() == null ? null : seeded.getId().getName())) {
+            return false;
+        }
+        for (PropertyMetadata property : existing.getProperties().values()) {
+            final PropertyMetadata other = seeded.getProperty(property.getName());
+            if (property.getType() != other.getType() || property.getTargetType() != other.getTargetType()
+                    || property.getRelationType() != other.getRelationType()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getIdProperty(ManagedType<?> managedType) {
+        if (!(managedType instanceof IdentifiableType)) {
+            return null;
+        }
+        IdentifiableType<?> identifiableType = (IdentifiableType<?>) managedType;
+        if (!identifiableType.hasSingleIdAttribute() || identifiableType.getIdType() == null) {
+            return null;
+        }
+        try {
+            return identifiableType.getId(identifiableType.getIdType().getJavaType()).getName();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String getIdProperty(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class) || field.isAnnotationPresent(EmbeddedId.class)) {
+                    return field.getName();
+                }
+            }
+        }
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+            Method readMethod = descriptor.getReadMethod();
+            if (readMethod != null && (AnnotationUtils.findAnnotation(readMethod, Id.class) != null
+                    || AnnotationUtils.findAnnotation(readMethod, EmbeddedId.class) != null)) {
+                return descriptor.getName();
+            }
+        }
+        return null;
+    }
+
+    private static PropertyMetadata toPropertyMetadata(Attribute<?, ?> attribute) {
+        Class<?> type = attribute.getJavaType();
+        Class<?> elementType = attribute instanceof PluralAttribute
+                ? ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType()
+                : null;
+        RelationType relationType = null;
+        switch (attribute.getPersistentAttributeType()) {
+            case MANY_TO_ONE:
+            case ONE_TO_ONE:
+                relationType = RelationType.SINGLE;
+                break;
+            case EMBEDDED:
+                relationType = RelationType.EMBEDDED;
+                break;
+            case ONE_TO_MANY:
+            case MANY_TO_MANY:
+                if (Iterable.class.isAssignableFrom(type)) {
+                    relationType = RelationType.COLLECTION;
+                }
+                break;
+            default:
+                break;
+        }
+        return PropertyMetadata.of(attribute.getName(), type, elementType, relationType);
+    }
+
+    private static EntityMetadata introspect(Class<?> type) {
+        Map<String, PropertyMetadata> properties = new HashMap<>();
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+            if ("class".equals(descriptor.getName())
+                    || (descriptor.getReadMethod() == null && descriptor.getWriteMethod() == null)) {
+                continue;
+            }
+            TypeDescriptor prop = new TypeDescriptor(
+                    new Property(type, descriptor.getReadMethod(), descriptor.getWriteMethod(), descriptor.getName()));
+            properties.put(descriptor.getName(), toPropertyMetadata(descriptor.getName(), prop));
+        }
+        return new EntityMetadata(type, properties, getIdProperty(type));
+    }
+
+    private static PropertyMetadata toPropertyMetadata(String name, TypeDescriptor prop) {
+        Class<?> propertyType = prop.getType();
+        if (Iterable.class.isAssignableFrom(propertyType)) {
+            Class<?> genericType = prop.getElementTypeDescriptor() != null
+                    ? prop.getElementTypeDescriptor().getType()
+                    : GenericTypeResolver.resolveTypeArgument(propertyType, Collection.class);
+            RelationType relationType = genericType != null && classHasAnnotation(genericType, Entity.class)
+                    ? RelationType.COLLECTION
+                    : null;
+            return PropertyMetadata.of(name, propertyType, genericType, relationType);
+        } else if (classHasAnnotation(propertyType, Entity.class)) {
+            return PropertyMetadata.of(name, propertyType, null, RelationType.SINGLE);
+        } else if (classHasAnnotation(propertyType, Embeddable.class)) {
+            return PropertyMetadata.of(name, propertyType, null, RelationType.EMBEDDED);
+        }
+        return PropertyMetadata.of(name, propertyType, null, null);
+    }
+
+    private static boolean classHasAnnotation(Class<?> propertyType, Class<? extends Annotation> annotation) {
+
+        if (propertyType.isAnnotationPresent(annotation)) {
+            return true;
+        }
+
+        Annotation inheritedAnnotation = AnnotationUtils.findAnnotation(propertyType, annotation);
+        return inheritedAnnotation != null;
+    }
+}
@@ -7,15 +7,25 @@ public class ExpressionEntries {
 
     private final ExpressionType type;
     private final List<PredicateEntry> predicates;
+    private final boolean unsatisfiable;
 
     public ExpressionEntries(ExpressionType type, List<PredicateEntry> predicates) {
+        this(type, predicates, false);
+    }
+
+    /**
+     * @param unsatisfiable whether the filters are known to match nothing, so that no query needs to run
+     */
+    public ExpressionEntries(ExpressionType type, List<PredicateEntry> predicates, boolean unsatisfiable) {
         this.type = type;
         this.predicates = predicates;
+        this.unsatisfiable = unsatisfiable;
     }
 
     public ExpressionEntries() {
         this.type = ExpressionType.ALLOF;
         this.predicates = new ArrayList<>();
+        this.unsatisfiable = false;
     }
 
     public ExpressionType getType() {
@@ -25,4 +35,8 @@ public class ExpressionEntries {
     public List<PredicateEntry> getPredicates() {
         return predicates;
     }
+
+    public boolean isUnsatisfiable() {
+        return unsatisfiable;
+    }
 }
@@ -1,42 +1,36 @@
 package com.bislan.dynamicquery.library.expression;
 
-import java.lang.annotation.Annotation;
-import java.math.BigDecimal;
-import java.time.Instant;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import javax.persistence.Embeddable;
-import javax.persistence.Entity;
-
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
-import org.springframework.core.GenericTypeResolver;
-import org.springframework.core.annotation.AnnotationUtils;
-import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.util.StringUtils;
 
 import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
 import com.bislan.dynamicquery.library.expression.operator.RelationType;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class ExpressionFactory {
 
     public static ExpressionEntries createFromParams(Class<?> entity, Map<String, String> params) {
+        return createFromParams(entity, params, QueryPolicy.unrestricted());
+    }
+
+    /**
+     * @throws QueryRejectedException when the filters break the policy
+     */
+    public static ExpressionEntries createFromParams(Class<?> entity, Map<String, String> params, QueryPolicy policy) {
         if (params.isEmpty()) {
             return new ExpressionEntries();
         }
-        Map<String, String> searchParams = new HashMap<>(params);
+        // sorted, so that the same keys always produce the predicates in the same order
+        Map<String, String> searchParams = new TreeMap<>(params);
         final ExpressionType exprType = extractExpressionType(searchParams);
         List<PredicateEntry> predicates = searchParams.entrySet()
                 .stream()
@@ -46,7 +40,9 @@ public class ExpressionFactory {
                 .map(Optional::get)
                 .collect(Collectors.toList());
 
-        return new ExpressionEntries(exprType, predicates);
+        final ExpressionEntries entries = new ExpressionEntries(exprType, predicates);
+        policy.checkFilters(entity, entries);
+        return entries;
     }
 
     private static Optional<PredicateEntry> create(Class<?> entity, String key, String value) {
@@ -58,15 +54,15 @@ public class ExpressionFactory {
             return Optional.empty();
         }
 
-        BeanWrapper beanIntro = new BeanWrapperImpl(entity);
+        EntityMetadata metadata = EntityMetadataRegistry.get(entity);
+        final String parentName = metadata.getName();
         final List<PredicatePath> paths = new ArrayList<>();
         String property = null;
         Class<?> propertyType = null;
-        final StringBuilder pathBuilder =
-                new StringBuilder(com.querydsl.core.util.StringUtils.uncapitalize(entity.getSimpleName()));
+        final StringBuilder pathBuilder = new StringBuilder(parentName);
         while (keyParts.hasNext()) {
             String part = keyParts.next();
-            TypeDescriptor prop = beanIntro.getPropertyTypeDescriptor(part);
+            PropertyMetadata prop = metadata.getProperty(part);
 
             if (prop == null) {
                 return Optional.empty();
@@ -74,19 +70,15 @@ public class ExpressionFactory {
 
             propertyType = prop.getType();
 
-            if (Iterable.class.isAssignableFrom(propertyType)) {
-                Class<?> genericType = GenericTypeResolver.resolveTypeArgument(prop.getType(), Collection.class);
-
-                if (genericType == null) {
-                    throw new RuntimeException("Cannot get generic type of collection '" + prop.getName() + "'");
+            if (prop.isIterable()) {
+                if (prop.getElementType() == null) {
+                    throw new RuntimeException("Cannot get generic type of collection '" + part + "'");
                 }
-                if (classHasAnnotation(genericType, Entity.class)) {
-                    beanIntro = updatePathAndGetNextBeanIntro(paths, genericType, part, pathBuilder, RelationType.COLLECTION);
+                if (prop.getRelationType() == RelationType.COLLECTION) {
+                    metadata = updatePathAndGetNextMetadata(paths, prop, pathBuilder);
                 }
-            } else if (classHasAnnotation(propertyType, Entity.class)) {
-                beanIntro = updatePathAndGetNextBeanIntro(paths, propertyType, part, pathBuilder, RelationType.SINGLE);
-            } else if (classHasAnnotation(propertyType, Embeddable.class)) {
-                beanIntro = updatePathAndGetNextBeanIntro(paths, propertyType, part, pathBuilder, RelationType.EMBEDDED);
+            } else if (prop.getRelationType() != null) {
+                metadata = updatePathAndGetNextMetadata(paths, prop, pathBuilder);
             } else {
                 final StringBuilder sb = new StringBuilder();
                 sb.append(part);
@@ -98,27 +90,14 @@ public class ExpressionFactory {
             throw new RuntimeException("The final property must be a simple field: " + key);
         }
         final OperatorAndValues opAndVals = extractOpAndValues(propertyType, value);
-        return Optional.of(new PredicateEntry(opAndVals.op, paths,
-                com.querydsl.core.util.StringUtils.uncapitalize(entity.getSimpleName()),
-                propertyType, property, opAndVals.values));
+        return Optional.of(new PredicateEntry(opAndVals.op, paths, parentName, propertyType, property, opAndVals.values));
     }
 
-    private static BeanWrapper updatePathAndGetNextBeanIntro(List<PredicatePath> paths, Class<?> propertyType,
-            String propName, StringBuilder pathBuilder,
-            RelationType relationType) {
-        paths.add(PredicatePath.of(propertyType, propName, pathBuilder.toString(), relationType));
-        pathBuilder.append('_').append(propName);
-        return new BeanWrapperImpl(propertyType);
-    }
-
-    private static boolean classHasAnnotation(Class<?> propertyType, Class<? extends Annotation> annotation) {
-
-        if (propertyType.isAnnotationPresent(annotation)) {
-            return true;
-        }
-
-        Annotation inheritedAnnotation = AnnotationUtils.findAnnotation(propertyType, annotation);
-        return inheritedAnnotation != null;
+    private static EntityMetadata updatePathAndGetNextMetadata(List<PredicatePath> paths, PropertyMetadata prop,
+            StringBuilder pathBuilder) {
+        paths.add(PredicatePath.of(prop.getTargetType(), prop.getName(), pathBuilder.toString(), prop.getRelationType()));
+        pathBuilder.append('_').append(prop.getName());
+        return EntityMetadataRegistry.get(prop.getTargetType());
     }
 
     private static OperatorAndValues extractOpAndValues(Class<?> propertyType, String value) {
@@ -149,31 +128,8 @@ public class ExpressionFactory {
     private static Object[] toTypedValues(final Class<?> type, final String[] values) {
         if (type == String.class) {
             return values;
-        } else if (type == Long.class) {
-            return convertValues(values, Long::valueOf);
-        } else if (type == Integer.class) {
-            return convertValues(values, Integer::valueOf);
-        } else if (type == BigDecimal.class) {
-            return convertValues(values, BigDecimal::new);
-        } else if (type == Boolean.class) {
-            return convertValues(values, Boolean::parseBoolean);
-        } else if (type == Double.class) {
-            return convertValues(values, Double::valueOf);
-        } else if (type == LocalDate.class) {
-            return convertValues(values, LocalDate::parse);
-        } else if (type == Instant.class) {
-            return convertValues(values, Instant::parse);
-        } else if (type == Float.class) {
-            return convertValues(values, Float::valueOf);
-        } else if (type == Short.class) {
-            return convertValues(values, Short::valueOf);
-        } else if (type == Byte.class) {
-            return convertValues(values, Byte::valueOf);
-        } else if (type == Character.class) {
-            return convertValues(values, str -> str.charAt(0));
-        } else {
-            return convertValues(values, type);
         }
+        return convertValues(values, ValueConverterRegistry.get(type));
     }
 
     private static Object[] convertValues(String[] values, Function<String, Object> mapper) {
@@ -183,13 +139,6 @@ public class ExpressionFactory {
                 .toArray(Object[]::new);
     }
 
-    private static Object[] convertValues(String[] values, Class<?> type) {
-        return Stream.of(values)
-                .map(str -> new ObjectMapper().convertValue(str, type))
-                .distinct()
-                .toArray(Object[]::new);
-    }
-
     private static ExpressionType extractExpressionType(Map<String, String> params) {
         ExpressionType exprType = ExpressionType.ALLOF; // default
         String type = params.remove(ExpressionType.TypeKey);
@@ -1,9 +1,11 @@
 package com.bislan.dynamicquery.library.expression;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+import com.querydsl.jpa.JPQLTemplates;
 
 public class PredicateEntry {
 
@@ -50,6 +52,17 @@ public class PredicateEntry {
         return property;
     }
 
+    /**
+     * The dotted property path relative to the root entity, e.g. {@code customer.name}.
+     */
+    public String getPropertyPath() {
+        final StringBuilder sb = new StringBuilder();
+        for (PredicatePath predicatePath : path) {
+            sb.append(predicatePath.getProperty()).append('.');
+        }
+        return sb.append(property).toString();
+    }
+
     public Class<?> getPropertyType() {
         return propertyType;
     }
@@ -69,4 +82,18 @@ public class PredicateEntry {
     public void setValues(Object[] values) {
         this.values = values;
     }
+
+    /**
+     * The escape character of a like pattern: the second value of {@code like_escape} and {@code like_escape_ic},
+     * {@code !} otherwise. A {@code like_ic} pattern has none.
+     */
+    public char getEscape() {
+        if (op != PredicateOperator.LIKE_ESCAPE && op != PredicateOperator.LIKE_ESCAPE_IC) {
+            return JPQLTemplates.DEFAULT_ESCAPE;
+        }
+        if (values.length != 2 || values[1].toString().length() != 1) {
+            throw new RuntimeException("Expected a pattern and a single escape character for " + op + ": " + Arrays.toString(values));
+        }
+        return values[1].toString().charAt(0);
+    }
 }
@@ -0,0 +1,379 @@
+package com.bislan.dynamicquery.library.expression;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+
+/**
+ * A rewrite of the parsed filters that keeps their result but sends less to the database. The rewrites work on the
+ * filters of one property path at a time and leave at least one filter on a path they keep, so they never change the
+ * joins of a query; filters that cannot match skip the query altogether.
+ * <p>
+ * Values are only compared in Java where the database compares them the same way: numbers, local dates and times,
+ * instants, booleans, uuids and enums. Strings depend on the collation, so their filters are only ever united, never
+ * intersected.
+ */
+public enum PredicateRewrite {
+
+    /**
+     * Drops filters that repeat another filter on the same path.
+     */
+    REMOVE_DUPLICATES {
+        @Override
+        public ExpressionEntries apply(ExpressionEntries entries) {
+            final Set<List<Object>> seen = new HashSet<>();
+            final List<PredicateEntry> result = new ArrayList<>();
+            for (PredicateEntry entry : entries.getPredicates()) {
+                if (seen.add(Arrays.asList(entry.getPropertyPath(), entry.getOp(), Arrays.asList(entry.getValues())))) {
+                    result.add(entry);
+                }
+            }
+            return rebuild(entries, result);
+        }
+    },
+
+    /**
+     * {@code in} with a single value becomes {@code eq}, {@code not_in} with a single value becomes {@code ne}.
+     */
+    COLLAPSE_SINGLE_VALUE_LISTS {
+        @Override
+        public ExpressionEntries apply(ExpressionEntries entries) {
+            final List<PredicateEntry> result = new ArrayList<>();
+            for (PredicateEntry entry : entries.getPredicates()) {
+                if (entry.getOp() == PredicateOperator.IN && entry.getValues().length == 1) {
+                    result.add(copy(entry, PredicateOperator.EQ, entry.getValues()));
+                } else if (entry.getOp() == PredicateOperator.NOT_IN && entry.getValues().length == 1) {
+                    result.add(copy(entry, PredicateOperator.NE, entry.getValues()));
+                } else {
+                    result.add(entry);
+                }
+            }
+            return rebuild(entries, result);
+        }
+    },
+
+    /**
+     * Under {@code ALLOF}, {@code is_null} together with any other filter on the path cannot match, and
+     * {@code is_not_null} is implied by any filter on a value.
+     */
+    RESOLVE_NULL_CHECKS {
+        @Override
+        public ExpressionEntries apply(ExpressionEntries entries) {
+            if (entries.getType() != ExpressionType.ALLOF) {
+                return entries;
+            }
+            return rewritePaths(entries, (path, group) -> {
+                final boolean isNull = group.stream().anyMatch(entry -> entry.getOp() == PredicateOperator.IS_NULL);
+                final boolean hasValue = group.stream().anyMatch(entry -> entry.getOp() != PredicateOperator.IS_NULL
+                        && entry.getOp() != PredicateOperator.IS_NOT_NULL);
+                if (isNull && group.stream().anyMatch(entry -> entry.getOp() != PredicateOperator.IS_NULL)) {
+                    return null;
+                }
+                if (hasValue) {
+                    group.removeIf(entry -> entry.getOp() == PredicateOperator.IS_NOT_NULL);
+                }
+                return group;
+            });
+        }
+    },
+
+    /**
+     * Under {@code ANYOF}, the {@code eq} and {@code in} filters of a path are united into one {@code in}. Under
+     * {@code ALLOF}, they are intersected and the {@code ne} and {@code not_in} values removed from the result, which
+     * cannot match when it is empty; {@code ne} and {@code not_in} filters alone are united into one {@code not_in}.
+     */
+    MERGE_EQUALITIES {
+        @Override
+        public ExpressionEntries apply(ExpressionEntries entries) {
+            return rewritePaths(entries, entries.getType() == ExpressionType.ANYOF ? PredicateRewrite::uniteEqualities
+                    : PredicateRewrite::intersectEqualities);
+        }
+    },
+
+    /**
+     * Under {@code ALLOF}, the {@code gt}, {@code goe}, {@code lt}, {@code loe} and {@code between} filters of a path
+     * are intersected into at most one lower and one upper bound, or a {@code between}. Values of {@code eq} and
+     * {@code in} filters outside the range are dropped together with the range. An empty range cannot match.
+     */
+    INTERSECT_RANGES {
+        @Override
+        public ExpressionEntries apply(ExpressionEntries entries) {
+            if (entries.getType() != ExpressionType.ALLOF) {
+                return entries;
+            }
+            return rewritePaths(entries, PredicateRewrite::intersectRanges);
+        }
+    };
+
+    private static final Set<PredicateOperator> EQUALITIES = EnumSet.of(PredicateOperator.EQ, PredicateOperator.IN);
+    private static final Set<PredicateOperator> INEQUALITIES = EnumSet.of(PredicateOperator.NE, PredicateOperator.NOT_IN);
+    private static final Set<PredicateOperator> RANGES = EnumSet.of(PredicateOperator.GT, PredicateOperator.GOE,
+            PredicateOperator.LT, PredicateOperator.LOE, PredicateOperator.BETWEEN);
+
+    /**
+     * Rewrites the filters, or returns them unchanged.
+     */
+    public abstract ExpressionEntries apply(ExpressionEntries entries);
+
+    /**
+     * Applies the rewrites in their declaration order, stopping once the filters cannot match.
+     */
+    public static ExpressionEntries optimize(ExpressionEntries entries, Collection<PredicateRewrite> rewrites) {
+        for (PredicateRewrite rewrite : values()) {
+            if (entries.isUnsatisfiable()) {
+                break;
+            }
+            if (rewrites.contains(rewrite)) {
+                entries = rewrite.apply(entries);
+            }
+        }
+        return entries;
+    }
+
+    private static List<PredicateEntry> uniteEqualities(String path, List<PredicateEntry> group) {
+        final List<PredicateEntry> equalities = select(group, entry -> EQUALITIES.contains(entry.getOp()));
+        if (equalities.size() < 2) {
+            return group;
+        }
+        final List<Object> values = new ArrayList<>();
+        equalities.forEach(entry -> addDistinct(values, entry.getValues()));
+        return replace(group, equalities, toEquality(equalities.get(0), values));
+    }
+
+    private static List<PredicateEntry> intersectEqualities(String path, List<PredicateEntry> group) {
+        final List<PredicateEntry> equalities = select(group, entry -> EQUALITIES.contains(entry.getOp()));
+        final List<PredicateEntry> inequalities = select(group, entry -> INEQUALITIES.contains(entry.getOp()));
+        if (equalities.size() + inequalities.size() < 2) {
+            return group;
+        }
+        final List<Object> excluded = new ArrayList<>();
+        inequalities.forEach(entry -> addDistinct(excluded, entry.getValues()));
+        if (equalities.isEmpty()) {
+            return replace(group, inequalities, copy(inequalities.get(0), PredicateOperator.NOT_IN, excluded.toArray()));
+        }
+        if (!isExact(equalities.get(0).getPropertyType())) {
+            return group;
+        }
+        List<Object> values = new ArrayList<>();
+        addDistinct(values, equalities.get(0).getValues());
+        for (PredicateEntry entry : equalities.subList(1, equalities.size())) {
+            values.removeIf(value -> !contains(Arrays.asList(entry.getValues()), value));
+        }
+        values.removeIf(value -> contains(excluded, value));
+        if (values.isEmpty()) {
+            return null;
+        }
+        final List<PredicateEntry> replaced = new ArrayList<>(equalities);
+        replaced.addAll(inequalities);
+        return replace(group, replaced, toEquality(equalities.get(0), values));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static List<PredicateEntry> intersectRanges(String path, List<PredicateEntry> group) {
+        final List<PredicateEntry> ranges = select(group, entry -> RANGES.contains(entry.getOp()));
+        if (ranges.isEmpty() || !isOrdered(ranges.get(0).getPropertyType())) {
+            return group;
+        }
+        final List<PredicateEntry> equalities = select(group, entry -> EQUALITIES.contains(entry.getOp()));
+        if (ranges.size() < 2 && equalities.isEmpty()) {
+            return group;
+        }
+        Comparable lower = null;
+        Comparable upper = null;
+        boolean lowerStrict = false;
+        boolean upperStrict = false;
+        for (PredicateEntry entry : ranges) {
+            final Object[] values = entry.getValues();
+            final PredicateOperator op = entry.getOp();
+            if (op == PredicateOperator.GT || op == PredicateOperator.GOE || op == PredicateOperator.BETWEEN) {
+                final Comparable value = (Comparable) values[0];
+                final boolean strict = op == PredicateOperator.GT;
+                final int cmp = lower == null ? 1 : value.compareTo(lower);
+                if (cmp > 0 || cmp == 0 && strict) {
+                    lower = value;
+                    lowerStrict = strict;
+                }
+            }
+            if (op == PredicateOperator.LT || op == PredicateOperator.LOE || op == PredicateOperator.BETWEEN) {
+                final Comparable value = (Comparable) values[op == PredicateOperator.BETWEEN ? 1 : 0];
+                final boolean strict = op == PredicateOperator.LT;
+                final int cmp = upper == null ? -1 : value.compareTo(upper);
+                if (cmp < 0 || cmp == 0 && strict) {
+                    upper = value;
+                    upperStrict = strict;
+                }
+            }
+        }
+        if (lower != null && upper != null) {
+            final int cmp = lower.compareTo(upper);
+            if (cmp > 0 || cmp == 0 && (lowerStrict || upperStrict)) {
+                return null;
+            }
+        }
+        final PredicateEntry first = ranges.get(0);
+        if (!equalities.isEmpty()) {
+            final List<PredicateEntry> result = new ArrayList<>();
+            for (PredicateEntry entry : group) {
+                if (EQUALITIES.contains(entry.getOp())) {
+                    final List<Object> values = new ArrayList<>();
+                    for (Object value : entry.getValues()) {
+                        if (inRange((Comparable) value, lower, lowerStrict, upper, upperStrict)) {
+                            values.add(value);
+                        }
+                    }
+                    if (values.isEmpty()) {
+                        return null;
+                    }
+                    result.add(toEquality(entry, values));
+                } else if (!RANGES.contains(entry.getOp())) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+        final List<PredicateEntry> bounds = new ArrayList<>();
+        if (lower != null && upper != null && !lowerStrict && !upperStrict) {
+            bounds.add(lower.compareTo(upper) == 0 ? copy(first, PredicateOperator.EQ, new Object[] { lower })
+                    : copy(first, PredicateOperator.BETWEEN, new Object[] { lower, upper }));
+        } else {
+            if (lower != null) {
+                bounds.add(copy(first, lowerStrict ? PredicateOperator.GT : PredicateOperator.GOE, new Object[] { lower }));
+            }
+            if (upper != null) {
+                bounds.add(copy(first, upperStrict ? PredicateOperator.LT : PredicateOperator.LOE, new Object[] { upper }));
+            }
+        }
+        return replace(group, ranges, bounds.toArray(new PredicateEntry[0]));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static boolean inRange(Comparable value, Comparable lower, boolean lowerStrict, Comparable upper, boolean upperStrict) {
+        if (lower != null) {
+            final int cmp = value.compareTo(lower);
+            if (cmp < 0 || cmp == 0 && lowerStrict) {
+                return false;
+            }
+        }
+        if (upper != null) {
+            final int cmp = value.compareTo(upper);
+            return cmp < 0 || cmp == 0 && !upperStrict;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the rewrite to the filters of each property path, keeping the filters in place of the first one of the
+     * path. A {@code null} group means the filters of the path cannot match.
+     */
+    private static ExpressionEntries rewritePaths(ExpressionEntries entries,
+            BiFunction<String, List<PredicateEntry>, List<PredicateEntry>> rewrite) {
+        final Map<String, List<PredicateEntry>> groups = new LinkedHashMap<>();
+        for (PredicateEntry entry : entries.getPredicates()) {
+            groups.computeIfAbsent(entry.getPropertyPath(), key -> new ArrayList<>()).add(entry);
+        }
+        final List<PredicateEntry> result = new ArrayList<>();
+        for (Map.Entry<String, List<PredicateEntry>> group : groups.entrySet()) {
+            final List<PredicateEntry> rewritten = rewrite.apply(group.getKey(), new ArrayList<>(group.getValue()));
+            if (rewritten == null) {
+                return new ExpressionEntries(entries.getType(), new ArrayList<>(), true);
+            }
+            result.addAll(rewritten);
+        }
+        return rebuild(entries, result);
+    }
+
+    private static ExpressionEntries rebuild(ExpressionEntries entries, List<PredicateEntry> result) {
+        if (result.equals(entries.getPredicates())) {
+            return entries;
+        }
+        return new ExpressionEntries(entries.getType(), result);
+    }
+
+    private static List<PredicateEntry> select(List<PredicateEntry> group, Predicate<PredicateEntry> filter) {
+        final List<PredicateEntry> selected = new ArrayList<>();
+        for (PredicateEntry entry : group) {
+            if (filter.test(entry)) {
+                selected.add(entry);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Replaces the given filters of the group with the replacements, at the position of the first one.
+     */
+    private static List<PredicateEntry> replace(List<PredicateEntry> group, List<PredicateEntry> replaced,
+            PredicateEntry... replacements) {
+        final List<PredicateEntry> result = new ArrayList<>();
+        boolean inserted = false;
+        for (PredicateEntry entry : group) {
+            if (!replaced.contains(entry)) {
+                result.add(entry);
+            } else if (!inserted) {
+                result.addAll(Arrays.asList(replacements));
+                inserted = true;
+            }
+        }
+        return result;
+    }
+
+    private static PredicateEntry toEquality(PredicateEntry entry, List<Object> values) {
+        return copy(entry, values.size() == 1 ? PredicateOperator.EQ : PredicateOperator.IN, values.toArray());
+    }
+
+    private static PredicateEntry copy(PredicateEntry entry, PredicateOperator op, Object[] values) {
+        return new PredicateEntry(op, entry.getPath(), entry.getParentName(), entry.getPropertyType(), entry.getProperty(), values);
+    }
+
+    private static void addDistinct(List<Object> values, Object[] added) {
+        for (Object value : added) {
+            if (!contains(values, value)) {
+                values.add(value);
+            }
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static boolean contains(List<Object> values, Object value) {
+        for (Object candidate : values) {
+            if (candidate.equals(value) || candidate instanceof Comparable && candidate.getClass() == value.getClass()
+                    && ((Comparable) candidate).compareTo(value) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the database finds two values of the type equal exactly when Java does. Strings are not, their equality
+     * depends on the collation.
+     */
+    public static boolean isExact(Class<?> type) {
+        return isOrdered(type) || type == boolean.class || type == Boolean.class || type == UUID.class || type.isEnum();
+    }
+
+    /**
+     * Whether the database orders values of the type like their {@link Comparable} implementation does.
+     */
+    private static boolean isOrdered(Class<?> type) {
+        return type.isPrimitive() && type != boolean.class && type != char.class || Number.class.isAssignableFrom(type)
+                || type == LocalDate.class || type == LocalDateTime.class || type == LocalTime.class || type == Instant.class
+                || Date.class.isAssignableFrom(type);
+    }
+}
@@ -0,0 +1,56 @@
+package com.bislan.dynamicquery.library.expression;
+
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+
+public class PropertyMetadata {
+
+    private final String name;
+    private final Class<?> type;
+    private final Class<?> elementType;
+    private final RelationType relationType;
+
+    private PropertyMetadata(String name, Class<?> type, Class<?> elementType, RelationType relationType) {
+        this.name = name;
+        this.type = type;
+        this.elementType = elementType;
+        this.relationType = relationType;
+    }
+
+    static PropertyMetadata of(String name, Class<?> type, Class<?> elementType, RelationType relationType) {
+        return new PropertyMetadata(name, type, elementType, relationType);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Class<?> getElementType() {
+        return elementType;
+    }
+
+    /**
+     * The type the next path segment is resolved against: the element type for collections, the property type otherwise.
+     */
+    public Class<?> getTargetType() {
+        return relationType == RelationType.COLLECTION ? elementType : type;
+    }
+
+    /**
+     * {@code null} for basic properties and for collections of non-entity elements.
+     */
+    public RelationType getRelationType() {
+        return relationType;
+    }
+
+    public boolean isIterable() {
+        return Iterable.class.isAssignableFrom(type);
+    }
+
+    public boolean isEmbeddable() {
+        return relationType == RelationType.EMBEDDED;
+    }
+}
@@ -0,0 +1,254 @@
+package com.bislan.dynamicquery.library.expression;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.bislan.dynamicquery.library.expression.QueryRejectedException.Rule;
+import com.bislan.dynamicquery.library.expression.QueryRejectedException.Violation;
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+
+/**
+ * Limits what query parameters may ask for, since they usually come straight from a request. A policy is immutable,
+ * every {@code with} method returns a copy. Property patterns are dotted paths relative to the entity, where a trailing
+ * {@code *} matches every path below, e.g. {@code customer.*}.
+ */
+public class QueryPolicy {
+
+    /**
+     * The operators that put a wildcard in front of the value, so that an index on the column cannot be used.
+     */
+    public static final Set<PredicateOperator> LEADING_WILDCARD_OPERATORS = EnumSet.of(PredicateOperator.ENDS_WITH,
+            PredicateOperator.ENDS_WITH_IC, PredicateOperator.STRING_CONTAINS, PredicateOperator.STRING_CONTAINS_IC,
+            PredicateOperator.MATCHES, PredicateOperator.MATCHES_IC);
+
+    private static final QueryPolicy UNRESTRICTED = new QueryPolicy();
+
+    private int maxPredicates = Integer.MAX_VALUE;
+    private int maxJoinDepth = Integer.MAX_VALUE;
+    private int maxJoins = Integer.MAX_VALUE;
+    private int maxListValues = Integer.MAX_VALUE;
+    private boolean restrictLeadingWildcards;
+    private final Map<Class<?>, Set<String>> allowedFilters = new HashMap<>();
+    private final Map<Class<?>, Set<String>> deniedFilters = new HashMap<>();
+    private final Map<Class<?>, Set<String>> allowedSorts = new HashMap<>();
+    private final Map<Class<?>, Set<String>> deniedSorts = new HashMap<>();
+    private final Map<Class<?>, Set<String>> leadingWildcards = new HashMap<>();
+
+    private QueryPolicy() {
+    }
+
+    public static QueryPolicy unrestricted() {
+        return UNRESTRICTED;
+    }
+
+    public QueryPolicy withMaxPredicates(int maxPredicates) {
+        final QueryPolicy copy = copy();
+        copy.maxPredicates = maxPredicates;
+        return copy;
+    }
+
+    public int getMaxListValues() {
+        return maxListValues;
+    }
+
+    /**
+     * The maximum number of associations a single filter may traverse, e.g. 2 for {@code lines.product.name}.
+     */
+    public QueryPolicy withMaxJoinDepth(int maxJoinDepth) {
+        final QueryPolicy copy = copy();
+        copy.maxJoinDepth = maxJoinDepth;
+        return copy;
+    }
+
+    /**
+     * The maximum number of distinct associations all filters together may join.
+     */
+    public QueryPolicy withMaxJoins(int maxJoins) {
+        final QueryPolicy copy = copy();
+        copy.maxJoins = maxJoins;
+        return copy;
+    }
+
+    public QueryPolicy withMaxListValues(int maxListValues) {
+        final QueryPolicy copy = copy();
+        copy.maxListValues = maxListValues;
+        return copy;
+    }
+
+    /**
+     * Restricts the {@link #LEADING_WILDCARD_OPERATORS}, and {@code like} patterns starting with a wildcard, to the
+     * properties allowed by {@link #withLeadingWildcards(Class, String...)}.
+     */
+    public QueryPolicy withRestrictedLeadingWildcards() {
+        final QueryPolicy copy = copy();
+        copy.restrictLeadingWildcards = true;
+        return copy;
+    }
+
+    public QueryPolicy withLeadingWildcards(Class<?> entityType, String... properties) {
+        return with(policy -> policy.leadingWildcards, entityType, properties);
+    }
+
+    /**
+     * Only the given properties of the entity may be filtered on.
+     */
+    public QueryPolicy withAllowedFilters(Class<?> entityType, String... properties) {
+        return with(policy -> policy.allowedFilters, entityType, properties);
+    }
+
+    public QueryPolicy withDeniedFilters(Class<?> entityType, String... properties) {
+        return with(policy -> policy.deniedFilters, entityType, properties);
+    }
+
+    /**
+     * Only the given properties of the entity may be sorted on.
+     */
+    public QueryPolicy withAllowedSorts(Class<?> entityType, String... properties) {
+        return with(policy -> policy.allowedSorts, entityType, properties);
+    }
+
+    public QueryPolicy withDeniedSorts(Class<?> entityType, String... properties) {
+        return with(policy -> policy.deniedSorts, entityType, properties);
+    }
+
+    /**
+     * @throws QueryRejectedException listing every rule the filters break
+     */
+    public void checkFilters(Class<?> entityType, ExpressionEntries entries) {
+        if (this == UNRESTRICTED) {
+            return;
+        }
+        final List<Violation> violations = new ArrayList<>();
+        final List<PredicateEntry> predicates = entries.getPredicates();
+        if (predicates.size() > maxPredicates) {
+            violations.add(Violation.of(Rule.MAX_PREDICATES, null, maxPredicates, predicates.size()));
+        }
+        final Set<String> joins = new HashSet<>();
+        for (PredicateEntry entry : predicates) {
+            final String property = entry.getPropertyPath();
+            int depth = 0;
+            for (PredicatePath path : entry.getPath()) {
+                if (path.getRelationType() != RelationType.EMBEDDED) {
+                    depth++;
+                    joins.add(path.getFullPath());
+                }
+            }
+            if (depth > maxJoinDepth) {
+                violations.add(Violation.of(Rule.MAX_JOIN_DEPTH, property, maxJoinDepth, depth));
+            }
+            if (entry.getValues().length > maxListValues) {
+                violations.add(Violation.of(Rule.MAX_LIST_VALUES, property, maxListValues, entry.getValues().length));
+            }
+            if (!isAllowed(allowedFilters, deniedFilters, entityType, property)) {
+                violations.add(Violation.of(Rule.FILTER_NOT_ALLOWED, property));
+            }
+            if (restrictLeadingWildcards && hasLeadingWildcard(entry)
+                    && !matches(leadingWildcards.get(entityType), property)) {
+                violations.add(Violation.of(Rule.LEADING_WILDCARD, property));
+            }
+        }
+        if (joins.size() > maxJoins) {
+            violations.add(Violation.of(Rule.MAX_JOINS, null, maxJoins, joins.size()));
+        }
+        reject(entityType, violations);
+    }
+
+    /**
+     * @throws QueryRejectedException listing the properties that may not be sorted on
+     */
+    public void checkSorts(Class<?> entityType, Collection<String> properties) {
+        if (this == UNRESTRICTED) {
+            return;
+        }
+        final List<Violation> violations = new ArrayList<>();
+        for (String property : properties) {
+            if (!isAllowed(allowedSorts, deniedSorts, entityType, property)) {
+                violations.add(Violation.of(Rule.SORT_NOT_ALLOWED, property));
+            }
+        }
+        reject(entityType, violations);
+    }
+
+    private static void reject(Class<?> entityType, List<Violation> violations) {
+        if (!violations.isEmpty()) {
+            throw new QueryRejectedException(entityType, violations);
+        }
+    }
+
+    /**
+     * Whether the filter matches a pattern that starts with a wildcard, which no ordinary index can serve.
+     */
+    public static boolean hasLeadingWildcard(PredicateEntry entry) {
+        if (LEADING_WILDCARD_OPERATORS.contains(entry.getOp())) {
+            return true;
+        }
+        if (entry.getOp() == PredicateOperator.LIKE || entry.getOp() == PredicateOperator.LIKE_IC
+                || entry.getOp() == PredicateOperator.LIKE_ESCAPE || entry.getOp() == PredicateOperator.LIKE_ESCAPE_IC) {
+            for (Object value : entry.getValues()) {
+                final String pattern = String.valueOf(value);
+                if (pattern.startsWith("%") || pattern.startsWith("_")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAllowed(Map<Class<?>, Set<String>> allowed, Map<Class<?>, Set<String>> denied,
+            Class<?> entityType, String property) {
+        final Set<String> allowedPatterns = allowed.get(entityType);
+        if (allowedPatterns != null && !matches(allowedPatterns, property)) {
+            return false;
+        }
+        return !matches(denied.get(entityType), property);
+    }
+
+    private static boolean matches(Set<String> patterns, String property) {
+        if (patterns == null) {
+            return false;
+        }
+        if (patterns.contains(property)) {
+            return true;
+        }
+        for (String pattern : patterns) {
+            if (pattern.endsWith("*") && property.startsWith(pattern.substring(0, pattern.length() - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private QueryPolicy with(Function<QueryPolicy, Map<Class<?>, Set<String>>> rules, Class<?> entityType,
+            String... properties) {
+        final QueryPolicy copy = copy();
+        rules.apply(copy).computeIfAbsent(entityType, type -> new HashSet<>()).addAll(List.of(properties));
+        return copy;
+    }
+
+    private QueryPolicy copy() {
+        final QueryPolicy copy = new QueryPolicy();
+        copy.maxPredicates = maxPredicates;
+        copy.maxJoinDepth = maxJoinDepth;
+        copy.maxJoins = maxJoins;
+        copy.maxListValues = maxListValues;
+        copy.restrictLeadingWildcards = restrictLeadingWildcards;
+        copyRules(allowedFilters, copy.allowedFilters);
+        copyRules(deniedFilters, copy.deniedFilters);
+        copyRules(allowedSorts, copy.allowedSorts);
+        copyRules(deniedSorts, copy.deniedSorts);
+        copyRules(leadingWildcards, copy.leadingWildcards);
+        return copy;
+    }
+
+    private static void copyRules(Map<Class<?>, Set<String>> from, Map<Class<?>, Set<String>> to) {
+        from.forEach((type, properties) -> to.put(type, new HashSet<>(properties)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.bislan.dynamicquery.library.expression;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Thrown when query parameters break the {@link QueryPolicy}, before any SQL is run. Lists every violation, so that
+ * they can be reported to the client together, e.g. as a 400 response.
+ */
+public class QueryRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Rule {
+        MAX_PREDICATES, MAX_JOIN_DEPTH, MAX_JOINS, MAX_LIST_VALUES, FILTER_NOT_ALLOWED, SORT_NOT_ALLOWED, LEADING_WILDCARD
+    }
+
+    public static class Violation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Rule rule;
+        private final String property;
+        private final long limit;
+        private final long actual;
+
+        private Violation(Rule rule, String property, long limit, long actual) {
+            this.rule = rule;
+            this.property = property;
+            this.limit = limit;
+            this.actual = actual;
+        }
+
+        public static Violation of(Rule rule, String property, long limit, long actual) {
+            return new Violation(rule, property, limit, actual);
+        }
+
+        public static Violation of(Rule rule, String property) {
+            return new Violation(rule, property, -1, -1);
+        }
+
+        public Rule getRule() {
+            return rule;
+        }
+
+        /**
+         * The offending property path, or {@code null} for limits on the whole query.
+         */
+        public String getProperty() {
+            return property;
+        }
+
+        /**
+         * The configured limit, or {@code -1} for rules without one.
+         */
+        public long getLimit() {
+            return limit;
+        }
+
+        public long getActual() {
+            return actual;
+        }
+
+        @Override
+        public String toString() {
+            return rule + (property != null ? " on '" + property + "'" : "") + (limit >= 0 ? " (" + actual + " > " + limit + ")" : "");
+        }
+    }
+
+    private final Class<?> entityType;
+    private final List<Violation> violations;
+
+    public QueryRejectedException(Class<?> entityType, List<Violation> violations) {
+        super("Query on " + entityType.getSimpleName() + " rejected: "
+                + violations.stream().map(Violation::toString).collect(Collectors.joining(", ")));
+        this.entityType = entityType;
+        this.violations = List.copyOf(violations);
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    public List<Violation> getViolations() {
+        return violations;
+    }
+}
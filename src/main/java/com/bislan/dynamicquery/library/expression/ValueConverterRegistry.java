@@ -0,0 +1,133 @@
+package com.bislan.dynamicquery.library.expression;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Converts filter values from their string form to the type of the filtered property. The converter of a type is
+ * resolved once and reused: user-registered and built-in converters first, then enum constants, then the
+ * {@link ConversionService} and finally a shared {@link ObjectMapper}.
+ */
+public class ValueConverterRegistry {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<Class<?>, Function<String, ?>> BUILT_IN = new HashMap<>();
+    private static final Map<Class<?>, Function<String, ?>> REGISTERED = new ConcurrentHashMap<>();
+    // replaced rather than cleared, so that a resolution running concurrently cannot put a stale converter back
+    private static volatile Map<Class<?>, Function<String, ?>> resolved = new ConcurrentHashMap<>();
+    private static volatile ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+    static {
+        builtIn(String.class, Function.identity());
+        builtIn(Long.class, Long::valueOf, long.class);
+        builtIn(Integer.class, Integer::valueOf, int.class);
+        builtIn(Short.class, Short::valueOf, short.class);
+        builtIn(Byte.class, Byte::valueOf, byte.class);
+        builtIn(Double.class, Double::valueOf, double.class);
+        builtIn(Float.class, Float::valueOf, float.class);
+        builtIn(Boolean.class, Boolean::parseBoolean, boolean.class);
+        builtIn(Character.class, str -> str.charAt(0), char.class);
+        builtIn(BigDecimal.class, BigDecimal::new);
+        builtIn(BigInteger.class, BigInteger::new);
+        builtIn(UUID.class, UUID::fromString);
+        builtIn(LocalDate.class, LocalDate::parse);
+        builtIn(LocalTime.class, LocalTime::parse);
+        builtIn(LocalDateTime.class, LocalDateTime::parse);
+        builtIn(OffsetDateTime.class, OffsetDateTime::parse);
+        builtIn(ZonedDateTime.class, ZonedDateTime::parse);
+        builtIn(Instant.class, Instant::parse);
+    }
+
+    private ValueConverterRegistry() {
+    }
+
+    private static <T> void builtIn(Class<T> type, Function<String, ? extends T> converter, Class<?>... aliases) {
+        BUILT_IN.put(type, converter);
+        for (Class<?> alias : aliases) {
+            BUILT_IN.put(alias, converter);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Function<String, Object> get(Class<?> type) {
+        return (Function<String, Object>) resolved.computeIfAbsent(type, ValueConverterRegistry::resolve);
+    }
+
+    public static <T> void register(Class<T> type, Function<String, ? extends T> converter) {
+        REGISTERED.put(type, converter);
+        resolved = new ConcurrentHashMap<>();
+    }
+
+    public static void setConversionService(ConversionService service) {
+        conversionService = service;
+        resolved = new ConcurrentHashMap<>();
+    }
+
+    private static Function<String, ?> resolve(Class<?> type) {
+        Function<String, ?> converter = REGISTERED.get(type);
+        if (converter == null) {
+            converter = BUILT_IN.get(type);
+        }
+        if (converter != null) {
+            return converter;
+        }
+        if (type.isEnum()) {
+            return enumConverter(type);
+        }
+        final ConversionService service = conversionService;
+        if (service.canConvert(String.class, type)) {
+            return str -> service.convert(str, type);
+        }
+        return str -> MAPPER.convertValue(str, type);
+    }
+
+    /**
+     * Accepts the constant names and, like the {@link ObjectMapper}, the values of {@code @JsonValue} and
+     * {@code @JsonProperty}, which win over a name. Anything else goes to the mapper, e.g. for a {@code @JsonCreator}.
+     */
+    private static Function<String, ?> enumConverter(Class<?> type) {
+        final Map<String, Object> constants = new HashMap<>();
+        for (Object constant : type.getEnumConstants()) {
+            constants.put(((Enum<?>) constant).name(), constant);
+        }
+        for (Object constant : type.getEnumConstants()) {
+            try {
+                constants.put(MAPPER.convertValue(constant, String.class), constant);
+            } catch (IllegalArgumentException e) {
+                // not serialized as a scalar, only the name applies
+            }
+        }
+        final Map<String, Object> byValue = Collections.unmodifiableMap(constants);
+        return str -> {
+            Object constant = byValue.get(str);
+            if (constant == null) {
+                try {
+                    constant = MAPPER.convertValue(str, type);
+                } catch (IllegalArgumentException e) {
+                    constant = null;
+                }
+            }
+            if (constant == null) {
+                throw new RuntimeException("Invalid value '" + str + "' for enum " + type.getSimpleName());
+            }
+            return constant;
+        };
+    }
+}
@@ -0,0 +1,287 @@
+package com.bislan.dynamicquery.library.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import com.bislan.dynamicquery.library.CollectionPredicateMode;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.ExpressionType;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.PredicatePath;
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPQLTemplates;
+
+/**
+ * Compiles parsed filters into a {@link Predicate} on loaded objects, with the semantics of the query the
+ * {@link com.bislan.dynamicquery.library.QuerydslPredicateBuilder} generates for them:
+ * <ul>
+ * <li>associations are inner joined, so a {@code null} association or an empty collection on a filtered path does not
+ * match, and the filters on one path test the same collection element;</li>
+ * <li>a {@code null} value only matches {@code is_null}, like a comparison with SQL {@code null};</li>
+ * <li>like patterns use {@code !} as escape character, {@code like_escape} the one of its second value, and
+ * {@code matches} takes the like form of the regex.</li>
+ * </ul>
+ * Strings are compared with {@link String#compareTo} and {@link String#toLowerCase()}, which may differ from the
+ * collation of the database. A compiled predicate holds no state and can be shared.
+ */
+public final class InMemoryPredicates {
+
+    private InMemoryPredicates() {
+    }
+
+    public static <T> Predicate<T> compile(Class<T> type, ExpressionEntries entries) {
+        return compile(type, entries, CollectionPredicateMode.JOIN);
+    }
+
+    /**
+     * @param collectionMode the mode the filters would be translated with; under {@code ANYOF}, the joins of
+     *        {@link CollectionPredicateMode#JOIN} drop the objects an association on any filtered path is missing for
+     */
+    public static <T> Predicate<T> compile(Class<T> type, ExpressionEntries entries, CollectionPredicateMode collectionMode) {
+        if (entries.isUnsatisfiable()) {
+            return target -> false;
+        }
+        if (entries.getPredicates().isEmpty()) {
+            return target -> true;
+        }
+        final Node root = new Node(null, false, false);
+        for (PredicateEntry entry : entries.getPredicates()) {
+            Node node = root;
+            Class<?> owner = type;
+            final List<String> embedded = new ArrayList<>();
+            boolean grouped = false;
+            for (PredicatePath path : entry.getPath()) {
+                if (path.getRelationType() == RelationType.EMBEDDED) {
+                    embedded.add(path.getProperty());
+                } else {
+                    final Function<Object, Object> accessor = accessor(owner, embedded, path.getProperty());
+                    final boolean collection = path.getRelationType() == RelationType.COLLECTION;
+                    final boolean group = !grouped && collection && embedded.isEmpty()
+                            && collectionMode == CollectionPredicateMode.EXISTS;
+                    grouped |= group;
+                    node = node.children.computeIfAbsent(path.getFullPath(), key -> new Node(accessor, collection, group));
+                    embedded.clear();
+                    owner = path.getType();
+                }
+            }
+            node.leaves.add(leaf(entry, accessor(owner, embedded, entry.getProperty())));
+        }
+        if (entries.getType() == ExpressionType.ANYOF) {
+            return target -> target != null && root.anyMatch(target);
+        }
+        return target -> target != null && root.allMatch(target);
+    }
+
+    private static Function<Object, Object> accessor(Class<?> owner, List<String> embedded, String property) {
+        final StringBuilder path = new StringBuilder();
+        embedded.forEach(part -> path.append(part).append('.'));
+        return PropertyAccessors.getPath(owner, path.append(property).toString());
+    }
+
+    private static Predicate<Object> leaf(PredicateEntry entry, Function<Object, Object> accessor) {
+        if (entry.getOp() == PredicateOperator.IS_NULL) {
+            return target -> isNull(accessor.apply(target));
+        }
+        if (entry.getOp() == PredicateOperator.IS_NOT_NULL) {
+            return target -> !isNull(accessor.apply(target));
+        }
+        final Predicate<Object> test = test(entry);
+        return target -> {
+            final Object value = accessor.apply(target);
+            if (value instanceof Collection) {
+                // a collection of basic values is joined, so any element may match
+                return ((Collection<?>) value).stream().anyMatch(element -> element != null && test.test(element));
+            }
+            return value != null && test.test(value);
+        };
+    }
+
+    private static boolean isNull(Object value) {
+        return value == null || value instanceof Collection && ((Collection<?>) value).isEmpty();
+    }
+
+    /**
+     * The test of a non-null value.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Predicate<Object> test(PredicateEntry entry) {
+        final Object[] values = entry.getValues();
+        final PredicateOperator op = entry.getOp();
+        switch (op) {
+            case EQ:
+                return value -> same(value, values[0]);
+            case NE:
+                return value -> !same(value, values[0]);
+            case IN:
+                return value -> Arrays.stream(values).anyMatch(candidate -> same(value, candidate));
+            case NOT_IN:
+                return value -> Arrays.stream(values).noneMatch(candidate -> same(value, candidate));
+            case GT:
+                return value -> ((Comparable) value).compareTo(values[0]) > 0;
+            case GOE:
+                return value -> ((Comparable) value).compareTo(values[0]) >= 0;
+            case LT:
+                return value -> ((Comparable) value).compareTo(values[0]) < 0;
+            case LOE:
+                return value -> ((Comparable) value).compareTo(values[0]) <= 0;
+            case BETWEEN:
+                return value -> ((Comparable) value).compareTo(values[0]) >= 0 && ((Comparable) value).compareTo(values[1]) <= 0;
+            case STRING_IS_EMPTY:
+                return value -> value.toString().isEmpty();
+            case EQ_IGNORE_CASE:
+                return value -> value.toString().toLowerCase().equals(values[0].toString().toLowerCase());
+            case STARTS_WITH:
+                return value -> value.toString().startsWith(values[0].toString());
+            case STARTS_WITH_IC:
+                return value -> value.toString().toLowerCase().startsWith(values[0].toString().toLowerCase());
+            case ENDS_WITH:
+                return value -> value.toString().endsWith(values[0].toString());
+            case ENDS_WITH_IC:
+                return value -> value.toString().toLowerCase().endsWith(values[0].toString().toLowerCase());
+            case STRING_CONTAINS:
+                return value -> value.toString().contains(values[0].toString());
+            case STRING_CONTAINS_IC:
+                return value -> value.toString().toLowerCase().contains(values[0].toString().toLowerCase());
+            case LIKE:
+            case LIKE_ESCAPE:
+                return like(values[0].toString(), entry.getEscape(), false);
+            case LIKE_IC:
+                // its template has no escape
+                return like(values[0].toString(), null, true);
+            case LIKE_ESCAPE_IC:
+                return like(values[0].toString(), entry.getEscape(), true);
+            case MATCHES:
+            case MATCHES_IC:
+                // translated to like, the same way as for the database
+                final String pattern = ExpressionUtils.regexToLike(Expressions.constant(values[0].toString())).toString();
+                return like(pattern, JPQLTemplates.DEFAULT_ESCAPE, op == PredicateOperator.MATCHES_IC);
+            default:
+                throw new RuntimeException("Unsupported operator: " + op);
+        }
+    }
+
+    /**
+     * @param escape {@code null} for a pattern without escapes
+     */
+    private static Predicate<Object> like(String pattern, Character escape, boolean ignoreCase) {
+        final StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            final char ch = pattern.charAt(i);
+            if (escape != null && ch == escape && i + 1 < pattern.length()) {
+                regex.append(literal(pattern.charAt(++i), ignoreCase));
+            } else if (ch == '%') {
+                regex.append(".*");
+            } else if (ch == '_') {
+                regex.append('.');
+            } else {
+                regex.append(literal(ch, ignoreCase));
+            }
+        }
+        final Pattern compiled = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        return value -> compiled.matcher(ignoreCase ? value.toString().toLowerCase() : value.toString()).matches();
+    }
+
+    /**
+     * A quoted character. Only the character is lower cased, lower casing the quoted form would break the quotes.
+     */
+    private static String literal(char ch, boolean ignoreCase) {
+        final String str = String.valueOf(ch);
+        return Pattern.quote(ignoreCase ? str.toLowerCase() : str);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static boolean same(Object value, Object candidate) {
+        if (value.equals(candidate)) {
+            return true;
+        }
+        return value instanceof Comparable && value.getClass() == candidate.getClass()
+                && ((Comparable) value).compareTo(candidate) == 0;
+    }
+
+    /**
+     * An alias of the generated query: the root, a joined association or, in
+     * {@link CollectionPredicateMode#EXISTS}, the collection of an {@code exists} subquery.
+     */
+    private static class Node {
+        private final Function<Object, Object> accessor;
+        private final boolean collection;
+        private final boolean exists;
+        private final List<Predicate<Object>> leaves = new ArrayList<>();
+        private final Map<String, Node> children = new LinkedHashMap<>();
+
+        Node(Function<Object, Object> accessor, boolean collection, boolean exists) {
+            this.accessor = accessor;
+            this.collection = collection;
+            this.exists = exists;
+        }
+
+        Collection<?> values(Object owner) {
+            final Object value = accessor.apply(owner);
+            if (value == null) {
+                return Collections.emptyList();
+            }
+            return collection ? (Collection<?>) value : Collections.singletonList(value);
+        }
+
+        /**
+         * Whether there is a row of the joins below, in which all the filters hold.
+         */
+        boolean allMatch(Object target) {
+            for (Predicate<Object> leaf : leaves) {
+                if (!leaf.test(target)) {
+                    return false;
+                }
+            }
+            for (Node child : children.values()) {
+                if (child.values(target).stream().noneMatch(child::allMatch)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Whether there is a row of the joins below, in which any of the filters holds.
+         */
+        boolean anyMatch(Object target) {
+            if (!hasRows(target)) {
+                return false;
+            }
+            for (Predicate<Object> leaf : leaves) {
+                if (leaf.test(target)) {
+                    return true;
+                }
+            }
+            for (Node child : children.values()) {
+                if (child.values(target).stream().anyMatch(child::anyMatch)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Whether the inner joins below have a row; the collections of {@code exists} subqueries are not joined.
+         */
+        private boolean hasRows(Object target) {
+            for (Node child : children.values()) {
+                if (!child.exists && child.values(target).stream().noneMatch(child::hasRows)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
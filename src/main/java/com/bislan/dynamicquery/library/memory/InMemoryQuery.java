@@ -0,0 +1,141 @@
+package com.bislan.dynamicquery.library.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import com.bislan.dynamicquery.library.CollectionPredicateMode;
+import com.bislan.dynamicquery.library.QueryParameters;
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.ExpressionFactory;
+import com.bislan.dynamicquery.library.expression.PredicateRewrite;
+import com.bislan.dynamicquery.library.expression.QueryPolicy;
+import com.querydsl.core.NonUniqueResultException;
+
+/**
+ * Runs {@link QueryParameters} against objects already in memory, e.g. a cached reference table, with the semantics
+ * of {@link InMemoryPredicates}. The parameters are parsed and compiled once, so a query can be kept and run against
+ * every new snapshot of the data.
+ */
+public class InMemoryQuery<T> {
+
+    private final Class<T> type;
+    private final Predicate<T> predicate;
+
+    private InMemoryQuery(Class<T> type, Predicate<T> predicate) {
+        this.type = type;
+        this.predicate = predicate;
+    }
+
+    public static <T> InMemoryQuery<T> of(Class<T> type, QueryParameters params) {
+        return of(type, params, CollectionPredicateMode.JOIN, QueryPolicy.unrestricted());
+    }
+
+    /**
+     * @throws com.bislan.dynamicquery.library.expression.QueryRejectedException when the filters break the policy
+     */
+    public static <T> InMemoryQuery<T> of(Class<T> type, QueryParameters params, CollectionPredicateMode collectionMode,
+            QueryPolicy policy) {
+        final ExpressionEntries entries = PredicateRewrite.optimize(
+                ExpressionFactory.createFromParams(type, params.getParameters(), policy), EnumSet.allOf(PredicateRewrite.class));
+        return new InMemoryQuery<>(type, InMemoryPredicates.compile(type, entries, collectionMode));
+    }
+
+    public Predicate<T> getPredicate() {
+        return predicate;
+    }
+
+    public boolean test(T target) {
+        return predicate.test(target);
+    }
+
+    public List<T> findAll(Collection<? extends T> source) {
+        return source.stream().filter(predicate).collect(Collectors.toList());
+    }
+
+    public List<T> findAll(Collection<? extends T> source, Sort sort) {
+        final List<T> result = findAll(source);
+        if (sort.isSorted()) {
+            result.sort(comparator(type, sort));
+        }
+        return result;
+    }
+
+    public Page<T> findAll(Collection<? extends T> source, Pageable pageable) {
+        final List<T> result = findAll(source, pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(result, pageable, result.size());
+        }
+        return new PageImpl<>(window(result, pageable, pageable.getPageSize()), pageable, result.size());
+    }
+
+    public Slice<T> findSlice(Collection<? extends T> source, Pageable pageable) {
+        final List<T> result = findAll(source, pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(result, pageable, false);
+        }
+        final List<T> window = window(result, pageable, pageable.getPageSize() + 1);
+        final boolean hasNext = window.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? window.subList(0, pageable.getPageSize()) : window, pageable, hasNext);
+    }
+
+    /**
+     * @throws NonUniqueResultException when more than one object matches
+     */
+    public Optional<T> findOne(Collection<? extends T> source) {
+        final List<T> result = source.stream().filter(predicate).limit(2).collect(Collectors.toList());
+        if (result.size() > 1) {
+            throw new NonUniqueResultException();
+        }
+        return result.stream().findFirst();
+    }
+
+    public long count(Collection<? extends T> source) {
+        return source.stream().filter(predicate).count();
+    }
+
+    private static <T> List<T> window(List<T> result, Pageable pageable, int size) {
+        final int from = (int) Math.min(pageable.getOffset(), result.size());
+        return new ArrayList<>(result.subList(from, Math.min(from + size, result.size())));
+    }
+
+    /**
+     * Orders objects like the database orders the rows for the sort: properties are dotted paths, a missing
+     * association sorts like a {@code null} value and {@link Sort.NullHandling#NATIVE} sorts {@code null} first in
+     * ascending order.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static <T> Comparator<T> comparator(Class<T> type, Sort sort) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            final Function<Object, Object> accessor = PropertyAccessors.getPath(type, order.getProperty());
+            Comparator<Comparable> values = Comparator.naturalOrder();
+            if (order.isDescending()) {
+                values = values.reversed();
+            }
+            final boolean nullsFirst = order.getNullHandling() == Sort.NullHandling.NULLS_FIRST
+                    || order.getNullHandling() == Sort.NullHandling.NATIVE && order.isAscending();
+            values = nullsFirst ? Comparator.nullsFirst(values) : Comparator.nullsLast(values);
+            final Comparator<Comparable> byValue = values;
+            final boolean ignoreCase = order.isIgnoreCase();
+            comparator = comparator.thenComparing(target -> {
+                final Object value = accessor.apply(target);
+                return (Comparable) (ignoreCase && value instanceof String ? ((String) value).toLowerCase() : value);
+            }, byValue);
+        }
+        return comparator;
+    }
+}
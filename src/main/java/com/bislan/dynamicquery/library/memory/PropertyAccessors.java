@@ -0,0 +1,95 @@
+package com.bislan.dynamicquery.library.memory;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.StringUtils;
+
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+
+/**
+ * Reads properties through method handles resolved once per type and property: the getter when there is one, which
+ * also initializes lazy proxies, the field otherwise.
+ */
+final class PropertyAccessors {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final Map<Class<?>, Map<String, Function<Object, Object>>> ACCESSORS = new ConcurrentHashMap<>();
+
+    private PropertyAccessors() {
+    }
+
+    static Function<Object, Object> get(Class<?> type, String property) {
+        return ACCESSORS.computeIfAbsent(type, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(property, key -> resolve(type, key));
+    }
+
+    /**
+     * An accessor for a dotted path of properties starting at the type, which returns {@code null} as soon as a
+     * segment is {@code null}.
+     */
+    static Function<Object, Object> getPath(Class<?> type, String propertyPath) {
+        final List<Function<Object, Object>> accessors = new ArrayList<>();
+        Class<?> current = type;
+        for (String part : StringUtils.tokenizeToStringArray(propertyPath, ".")) {
+            accessors.add(get(current, part));
+            final PropertyMetadata property = EntityMetadataRegistry.get(current).getProperty(part);
+            current = property != null ? property.getTargetType() : Object.class;
+        }
+        if (accessors.size() == 1) {
+            return accessors.get(0);
+        }
+        return target -> {
+            Object value = target;
+            for (int i = 0; i < accessors.size() && value != null; i++) {
+                value = accessors.get(i).apply(value);
+            }
+            return value;
+        };
+    }
+
+    private static Function<Object, Object> resolve(Class<?> type, String property) {
+        final MethodHandle handle;
+        try {
+            handle = findHandle(type, property).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Cannot access property '" + property + "' of " + type.getName(), e);
+        }
+        return target -> {
+            try {
+                return (Object) handle.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Cannot read property '" + property + "' of " + type.getName(), e);
+            }
+        };
+    }
+
+    private static MethodHandle findHandle(Class<?> type, String property) throws IllegalAccessException {
+        final PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, property);
+        if (descriptor != null && descriptor.getReadMethod() != null) {
+            final Method getter = descriptor.getReadMethod();
+            return MethodHandles.privateLookupIn(getter.getDeclaringClass(), MethodHandles.lookup()).unreflect(getter);
+        }
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(property)) {
+                    return MethodHandles.privateLookupIn(current, MethodHandles.lookup()).unreflectGetter(field);
+                }
+            }
+        }
+        throw new RuntimeException("Unknown property '" + property + "' of " + type.getName());
+    }
+}
@@ -0,0 +1,85 @@
+package com.bislan.dynamicquery.library.metrics;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A table that a recorded filter and sort combination reads without a usable index, and the composite index suggested
+ * for it: the equality columns first, then one range or the sort columns.
+ */
+public class IndexAdvice {
+
+    private final Class<?> entityType;
+    private final String shape;
+    private final String table;
+    private final List<String> suggestedColumns;
+    private final List<String> unindexableFilters;
+    private final long count;
+    private final long totalNanos;
+
+    private IndexAdvice(Class<?> entityType, String shape, String table, List<String> suggestedColumns,
+            List<String> unindexableFilters, long count, long totalNanos) {
+        this.entityType = entityType;
+        this.shape = shape;
+        this.table = table;
+        this.suggestedColumns = suggestedColumns;
+        this.unindexableFilters = unindexableFilters;
+        this.count = count;
+        this.totalNanos = totalNanos;
+    }
+
+    static IndexAdvice of(Class<?> entityType, String shape, String table, List<String> suggestedColumns,
+            List<String> unindexableFilters, long count, long totalNanos) {
+        return new IndexAdvice(entityType, shape, table, suggestedColumns, unindexableFilters, count, totalNanos);
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * The filtered properties with their operators and the sorted properties, e.g. {@code status:EQ,created:GT|sort:id}.
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public List<String> getSuggestedColumns() {
+        return suggestedColumns;
+    }
+
+    /**
+     * The filters no plain index can serve, e.g. leading wildcards or case-insensitive matches.
+     */
+    public List<String> getUnindexableFilters() {
+        return unindexableFilters;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Duration getTotalDuration() {
+        return Duration.ofNanos(totalNanos);
+    }
+
+    public Duration getAverageDuration() {
+        return Duration.ofNanos(count > 0 ? totalNanos / count : 0);
+    }
+
+    public String toDdl() {
+        return "create index idx_" + table + "_" + String.join("_", suggestedColumns) + " on " + table + " ("
+                + String.join(", ", suggestedColumns) + ")";
+    }
+
+    @Override
+    public String toString() {
+        return entityType.getSimpleName() + " [" + shape + "] " + count + " queries, avg "
+                + getAverageDuration().toMillis() + "ms: " + toDdl()
+                + (unindexableFilters.isEmpty() ? "" : ", unindexable " + unindexableFilters);
+    }
+}
@@ -0,0 +1,332 @@
+package com.bislan.dynamicquery.library.metrics;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.sql.DataSource;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+import com.bislan.dynamicquery.library.expression.EntityMetadata;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+import com.bislan.dynamicquery.library.expression.QueryPolicy;
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+
+/**
+ * Counts how often, and how slowly, each combination of filtered and sorted properties is queried, and compares the
+ * combinations with the indexes of the tables: the ones declared by {@code @Table(indexes = ...)} and, given a
+ * {@link DataSource}, the ones of the live schema. Register it as (part of) the {@link QueryListener} of the
+ * executors. The mapping of properties to columns relies on Hibernate.
+ */
+public class IndexAdvisor implements QueryListener {
+
+    private static final Set<PredicateOperator> EQUALITY = EnumSet.of(PredicateOperator.EQ, PredicateOperator.IN,
+            PredicateOperator.IS_NULL);
+    private static final Set<PredicateOperator> RANGE = EnumSet.of(PredicateOperator.GT, PredicateOperator.GOE,
+            PredicateOperator.LT, PredicateOperator.LOE, PredicateOperator.BETWEEN, PredicateOperator.STARTS_WITH,
+            PredicateOperator.LIKE, PredicateOperator.LIKE_ESCAPE);
+
+    private final Map<String, Usage> usages = new ConcurrentHashMap<>();
+
+    @Override
+    public void onQuery(QueryEvent event) {
+        final ExpressionEntries filters = event.getFilters();
+        final Sort sort = event.getSort();
+        if ((filters == null || filters.getPredicates().isEmpty()) && sort.isUnsorted()) {
+            return;
+        }
+        final Map<String, Set<Condition>> filtered = new TreeMap<>();
+        if (filters != null) {
+            for (PredicateEntry entry : filters.getPredicates()) {
+                filtered.computeIfAbsent(entry.getPropertyPath(), path -> new TreeSet<>()).add(Condition.of(entry));
+            }
+        }
+        final List<String> sorted = sort.stream().map(Sort.Order::getProperty).collect(Collectors.toList());
+        final String shape = filtered.entrySet().stream()
+                .flatMap(entry -> entry.getValue().stream().map(condition -> entry.getKey() + ":" + condition))
+                .collect(Collectors.joining(",")) + (sorted.isEmpty() ? "" : "|sort:" + String.join(",", sorted));
+        usages.computeIfAbsent(event.getEntityType().getName() + "|" + shape,
+                key -> new Usage(event.getEntityType(), shape, filtered, sorted))
+                .record(event.getDurationNanos());
+    }
+
+    public void clear() {
+        usages.clear();
+    }
+
+    /**
+     * Same as {@link #report(EntityManagerFactory, DataSource)}, with the declared indexes only.
+     */
+    public List<IndexAdvice> report(EntityManagerFactory entityManagerFactory) {
+        return report(entityManagerFactory, null);
+    }
+
+    /**
+     * Lists, hottest first by total time, the tables each recorded combination reads without an index whose leading
+     * column it filters or sorts on.
+     */
+    public List<IndexAdvice> report(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        final MetamodelImplementor metamodel = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMetamodel();
+        final Map<String, List<List<String>>> indexes = declaredIndexes(metamodel);
+        if (dataSource != null) {
+            liveIndexes(dataSource, indexes);
+        }
+        final List<Usage> hottest = new ArrayList<>(usages.values());
+        hottest.sort(Comparator.comparingLong((Usage usage) -> usage.nanos.sum()).reversed());
+        final List<IndexAdvice> advice = new ArrayList<>();
+        for (Usage usage : hottest) {
+            final Map<String, TableAccess> tables = usage.toTableAccess(metamodel);
+            for (TableAccess access : tables.values()) {
+                final List<String> suggested = access.suggest();
+                if (!suggested.isEmpty() && !access.isServedBy(indexes.getOrDefault(normalize(access.table), List.of()))) {
+                    advice.add(IndexAdvice.of(usage.entityType, usage.shape, access.table, suggested,
+                            new ArrayList<>(access.unindexable), usage.count.sum(), usage.nanos.sum()));
+                }
+            }
+        }
+        return advice;
+    }
+
+    private static Map<String, List<List<String>>> declaredIndexes(MetamodelImplementor metamodel) {
+        final Map<String, List<List<String>>> indexes = new HashMap<>();
+        for (EntityPersister persister : metamodel.entityPersisters().values()) {
+            if (!(persister instanceof AbstractEntityPersister)) {
+                continue;
+            }
+            final AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+            final List<List<String>> tableIndexes =
+                    indexes.computeIfAbsent(normalize(entityPersister.getTableName()), table -> new ArrayList<>());
+            tableIndexes.add(normalize(List.of(entityPersister.getIdentifierColumnNames())));
+            final Class<?> mappedClass = entityPersister.getMappedClass();
+            final Table table = mappedClass.getAnnotation(Table.class);
+            if (table != null) {
+                for (Index index : table.indexes()) {
+                    tableIndexes.add(Stream.of(StringUtils.tokenizeToStringArray(index.columnList(), ","))
+                            .map(column -> StringUtils.tokenizeToStringArray(column, " ")[0])
+                            .map(IndexAdvisor::normalize)
+                            .collect(Collectors.toList()));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static void liveIndexes(DataSource dataSource, Map<String, List<List<String>>> indexes) {
+        try (Connection connection = dataSource.getConnection()) {
+            final DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : new ArrayList<>(indexes.keySet())) {
+                for (String name : new LinkedHashSet<>(List.of(table, table.toUpperCase(Locale.ROOT)))) {
+                    final Map<String, Map<Short, String>> columns = new LinkedHashMap<>();
+                    try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), name, false, true)) {
+                        while (rs.next()) {
+                            final String index = rs.getString("INDEX_NAME");
+                            final String column = rs.getString("COLUMN_NAME");
+                            if (index != null && column != null) {
+                                columns.computeIfAbsent(index, key -> new TreeMap<>())
+                                        .put(rs.getShort("ORDINAL_POSITION"), normalize(column));
+                            }
+                        }
+                    }
+                    columns.values().forEach(index -> indexes.get(table).add(new ArrayList<>(index.values())));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot read the indexes of the schema", e);
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.replace("\"", "").replace("`", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> normalize(List<String> names) {
+        return names.stream().map(IndexAdvisor::normalize).collect(Collectors.toList());
+    }
+
+    private static class Usage {
+        private final Class<?> entityType;
+        private final String shape;
+        private final Map<String, Set<Condition>> filters;
+        private final List<String> sorts;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private Usage(Class<?> entityType, String shape, Map<String, Set<Condition>> filters, List<String> sorts) {
+            this.entityType = entityType;
+            this.shape = shape;
+            this.filters = filters;
+            this.sorts = sorts;
+        }
+
+        private void record(long durationNanos) {
+            count.increment();
+            nanos.add(durationNanos);
+        }
+
+        /**
+         * Walks every filter to the table of its column. Each association on the way adds its join columns as an
+         * equality on the table that holds them.
+         */
+        private Map<String, TableAccess> toTableAccess(MetamodelImplementor metamodel) {
+            final Map<String, TableAccess> tables = new LinkedHashMap<>();
+            final AbstractEntityPersister root = (AbstractEntityPersister) metamodel.entityPersister(entityType);
+            filters.forEach((path, conditions) -> walk(metamodel, root, path, conditions, tables));
+            for (String sort : sorts) {
+                if (EntityMetadataRegistry.resolve(entityType, sort) != null && !sort.contains(".")) {
+                    access(tables, root.getPropertyTableName(sort)).sorts.addAll(columns(root, sort));
+                }
+            }
+            return tables;
+        }
+
+        private void walk(MetamodelImplementor metamodel, AbstractEntityPersister root, String path, Set<Condition> conditions,
+                Map<String, TableAccess> tables) {
+            AbstractEntityPersister persister = root;
+            EntityMetadata metadata = EntityMetadataRegistry.get(entityType);
+            String prefix = "";
+            final String[] parts = StringUtils.tokenizeToStringArray(path, ".");
+            for (int i = 0; i < parts.length; i++) {
+                final PropertyMetadata property = metadata.getProperty(parts[i]);
+                if (property == null) {
+                    return;
+                }
+                final String propertyPath = prefix + parts[i];
+                if (property.getRelationType() == null) {
+                    final TableAccess access = access(tables, persister.getPropertyTableName(propertyPath));
+                    for (Condition condition : conditions) {
+                        if (EQUALITY.contains(condition.op)) {
+                            access.equalities.addAll(columns(persister, propertyPath));
+                        } else if (RANGE.contains(condition.op) && !condition.leadingWildcard) {
+                            access.ranges.addAll(columns(persister, propertyPath));
+                        } else {
+                            access.unindexable.add(path + ":" + condition);
+                        }
+                    }
+                    return;
+                } else if (property.getRelationType() == RelationType.EMBEDDED) {
+                    prefix = propertyPath + ".";
+                } else if (property.getRelationType() == RelationType.SINGLE) {
+                    access(tables, persister.getPropertyTableName(propertyPath)).equalities
+                            .addAll(columns(persister, propertyPath));
+                    persister = (AbstractEntityPersister) metamodel.entityPersister(property.getTargetType());
+                    prefix = "";
+                } else {
+                    final AbstractCollectionPersister collection = (AbstractCollectionPersister) metamodel
+                            .collectionPersister(persister.getEntityName() + "." + propertyPath);
+                    access(tables, collection.getTableName()).equalities.addAll(normalize(List.of(collection.getKeyColumnNames())));
+                    persister = (AbstractEntityPersister) metamodel.entityPersister(property.getTargetType());
+                    prefix = "";
+                }
+                metadata = EntityMetadataRegistry.get(property.getTargetType());
+            }
+        }
+
+        private static List<String> columns(AbstractEntityPersister persister, String propertyPath) {
+            return normalize(List.of(persister.getPropertyColumnNames(propertyPath)));
+        }
+
+        private static TableAccess access(Map<String, TableAccess> tables, String table) {
+            return tables.computeIfAbsent(normalize(table), TableAccess::new);
+        }
+    }
+
+    /**
+     * How a filter reads its column: its operator and, for a pattern, whether the pattern starts with a wildcard.
+     */
+    private static final class Condition implements Comparable<Condition> {
+        private final PredicateOperator op;
+        private final boolean leadingWildcard;
+
+        private Condition(PredicateOperator op, boolean leadingWildcard) {
+            this.op = op;
+            this.leadingWildcard = leadingWildcard;
+        }
+
+        static Condition of(PredicateEntry entry) {
+            return new Condition(entry.getOp(), RANGE.contains(entry.getOp()) && QueryPolicy.hasLeadingWildcard(entry));
+        }
+
+        @Override
+        public int compareTo(Condition other) {
+            return toString().compareTo(other.toString());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Condition && ((Condition) other).op == op && ((Condition) other).leadingWildcard == leadingWildcard;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(op, leadingWildcard);
+        }
+
+        @Override
+        public String toString() {
+            return leadingWildcard ? op + "(%...)" : op.toString();
+        }
+    }
+
+    private static class TableAccess {
+        private final String table;
+        private final Set<String> equalities = new LinkedHashSet<>();
+        private final Set<String> ranges = new LinkedHashSet<>();
+        private final Set<String> sorts = new LinkedHashSet<>();
+        private final Set<String> unindexable = new LinkedHashSet<>();
+
+        private TableAccess(String table) {
+            this.table = table;
+        }
+
+        private List<String> suggest() {
+            final List<String> columns = new ArrayList<>(equalities);
+            if (!ranges.isEmpty()) {
+                columns.add(ranges.iterator().next());
+            } else {
+                sorts.stream().filter(column -> !columns.contains(column)).forEach(columns::add);
+            }
+            return columns;
+        }
+
+        private boolean isServedBy(List<List<String>> indexes) {
+            final Set<String> leading = new LinkedHashSet<>(equalities);
+            leading.addAll(ranges);
+            if (leading.isEmpty()) {
+                leading.addAll(sorts);
+            }
+            return indexes.stream().anyMatch(index -> !index.isEmpty() && leading.contains(index.get(0)));
+        }
+    }
+}
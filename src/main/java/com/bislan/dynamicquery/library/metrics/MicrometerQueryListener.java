@@ -0,0 +1,48 @@
+package com.bislan.dynamicquery.library.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records a {@code dynamicquery.phase} timer per phase and a {@code dynamicquery.query} timer and
+ * {@code dynamicquery.rows} summary per query, tagged by entity and query shape. Micrometer is an optional
+ * dependency; this class is only usable when it is on the classpath.
+ */
+public class MicrometerQueryListener implements QueryListener {
+
+    private final MeterRegistry registry;
+
+    public MicrometerQueryListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void onPhase(QueryEvent event) {
+        Timer.builder("dynamicquery.phase")
+                .tag("entity", event.getEntityType().getSimpleName())
+                .tag("shape", event.getShape())
+                .tag("phase", event.getPhase().name().toLowerCase())
+                .register(registry)
+                .record(event.getDurationNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onQuery(QueryEvent event) {
+        final String entity = event.getEntityType().getSimpleName();
+        Timer.builder("dynamicquery.query")
+                .tag("entity", entity)
+                .tag("shape", event.getShape())
+                .register(registry)
+                .record(event.getDurationNanos(), TimeUnit.NANOSECONDS);
+        if (event.getRows() >= 0) {
+            DistributionSummary.builder("dynamicquery.rows")
+                    .tag("entity", entity)
+                    .tag("shape", event.getShape())
+                    .register(registry)
+                    .record(event.getRows());
+        }
+    }
+}
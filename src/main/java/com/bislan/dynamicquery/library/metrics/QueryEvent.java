@@ -0,0 +1,84 @@
+package com.bislan.dynamicquery.library.metrics;
+
+import java.time.Duration;
+
+import org.springframework.data.domain.Sort;
+
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+
+/**
+ * A completed phase, or a completed query when the phase is {@code null}.
+ */
+public class QueryEvent {
+
+    private final Class<?> entityType;
+    private final String shape;
+    private final ExpressionEntries filters;
+    private final Sort sort;
+    private final QueryPhase phase;
+    private final long durationNanos;
+    private final long rows;
+
+    private QueryEvent(Class<?> entityType, String shape, ExpressionEntries filters, Sort sort, QueryPhase phase,
+            long durationNanos, long rows) {
+        this.entityType = entityType;
+        this.shape = shape;
+        this.filters = filters;
+        this.sort = sort;
+        this.phase = phase;
+        this.durationNanos = durationNanos;
+        this.rows = rows;
+    }
+
+    public static QueryEvent of(Class<?> entityType, String shape, ExpressionEntries filters, Sort sort, QueryPhase phase,
+            long durationNanos, long rows) {
+        return new QueryEvent(entityType, shape, filters, sort, phase, durationNanos, rows);
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * The normalized shape of the query: the filtered property paths and operators, without the values.
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    /**
+     * The parsed filters, or {@code null} when the query was given as a predicate.
+     */
+    public ExpressionEntries getFilters() {
+        return filters;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public QueryPhase getPhase() {
+        return phase;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Duration getDuration() {
+        return Duration.ofNanos(durationNanos);
+    }
+
+    /**
+     * The number of rows returned, or {@code -1} when it is not known, e.g. for streams.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return entityType.getSimpleName() + (phase != null ? " " + phase : "") + " [" + shape + "] rows=" + rows
+                + " duration=" + getDuration().toMillis() + "ms";
+    }
+}
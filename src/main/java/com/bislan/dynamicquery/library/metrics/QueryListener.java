@@ -0,0 +1,37 @@
+package com.bislan.dynamicquery.library.metrics;
+
+import java.util.List;
+
+/**
+ * Receives the timings of the queries of an executor. Listeners are called on the querying thread and should return
+ * quickly.
+ */
+public interface QueryListener {
+
+    /**
+     * Does nothing, and tells the executor not to take any timings at all.
+     */
+    QueryListener NOOP = new QueryListener() {
+    };
+
+    default void onPhase(QueryEvent event) {
+    }
+
+    default void onQuery(QueryEvent event) {
+    }
+
+    static QueryListener composite(QueryListener... listeners) {
+        final List<QueryListener> delegates = List.of(listeners);
+        return new QueryListener() {
+            @Override
+            public void onPhase(QueryEvent event) {
+                delegates.forEach(listener -> listener.onPhase(event));
+            }
+
+            @Override
+            public void onQuery(QueryEvent event) {
+                delegates.forEach(listener -> listener.onQuery(event));
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.bislan.dynamicquery.library.metrics;
+
+/**
+ * The timed phases of a query. JPA executes the SQL and hydrates the entities in one call, so {@link #EXECUTE}
+ * covers both.
+ */
+public enum QueryPhase {
+    /**
+     * Parsing the query parameters into filters.
+     */
+    PARSE,
+    /**
+     * Building, or taking from the cache, the predicate and joins and binding the values.
+     */
+    BUILD,
+    /**
+     * Running the main query and hydrating its rows.
+     */
+    EXECUTE,
+    /**
+     * Loading the entities of a page by id, when a fetch plan includes collections.
+     */
+    FETCH,
+    /**
+     * Running the count query of a page.
+     */
+    COUNT
+}
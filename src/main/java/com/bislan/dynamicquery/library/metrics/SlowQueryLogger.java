@@ -0,0 +1,28 @@
+package com.bislan.dynamicquery.library.metrics;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs a warning with the shape, row count and duration of every query slower than the threshold.
+ */
+public class SlowQueryLogger implements QueryListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLogger.class);
+
+    private final long thresholdNanos;
+
+    public SlowQueryLogger(Duration threshold) {
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    @Override
+    public void onQuery(QueryEvent event) {
+        if (event.getDurationNanos() >= thresholdNanos) {
+            logger.warn("Slow query on {} took {} ms, {} rows: {}", event.getEntityType().getSimpleName(),
+                    event.getDuration().toMillis(), event.getRows(), event.getShape());
+        }
+    }
+}
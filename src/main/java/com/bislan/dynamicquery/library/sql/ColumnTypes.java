@@ -0,0 +1,110 @@
+package com.bislan.dynamicquery.library.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+import org.hibernate.metamodel.model.convert.spi.BasicValueConverter;
+import org.hibernate.type.CustomType;
+import org.hibernate.type.EnumType;
+import org.hibernate.type.PostgresUUIDType;
+import org.hibernate.type.Type;
+import org.hibernate.type.UUIDBinaryType;
+import org.hibernate.type.UUIDCharType;
+import org.hibernate.type.descriptor.converter.AttributeConverterTypeAdapter;
+import org.hibernate.type.descriptor.java.UUIDTypeDescriptor;
+
+import com.querydsl.sql.types.AbstractType;
+import com.querydsl.sql.types.EnumByNameType;
+import com.querydsl.sql.types.EnumByOrdinalType;
+import com.querydsl.sql.types.UtilUUIDType;
+
+/**
+ * The querydsl-sql column types for the Hibernate mappings whose column value differs from the property value:
+ * enums, UUIDs and attribute converters. Other types keep the querydsl-sql defaults.
+ */
+class ColumnTypes {
+
+    private ColumnTypes() {
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static com.querydsl.sql.types.Type<?> of(Type type) {
+        if (type instanceof CustomType && ((CustomType) type).getUserType() instanceof EnumType) {
+            final EnumType enumType = (EnumType) ((CustomType) type).getUserType();
+            return enumType.isOrdinal() ? new EnumByOrdinalType(enumType.returnedClass())
+                    : new EnumByNameType(enumType.returnedClass());
+        }
+        if (type instanceof AttributeConverterTypeAdapter) {
+            final AttributeConverterTypeAdapter<?> adapter = (AttributeConverterTypeAdapter<?>) type;
+            return new ConvertedType(adapter.getModelType(), adapter.getJdbcType(), adapter.getAttributeConverter());
+        }
+        if (type instanceof UUIDBinaryType) {
+            return new UUIDBinaryColumnType();
+        }
+        if (type instanceof UUIDCharType) {
+            return new UtilUUIDType(true);
+        }
+        if (type instanceof PostgresUUIDType) {
+            return new UtilUUIDType(false);
+        }
+        return null;
+    }
+
+    private static class UUIDBinaryColumnType extends AbstractType<UUID> {
+
+        UUIDBinaryColumnType() {
+            super(Types.BINARY);
+        }
+
+        @Override
+        public Class<UUID> getReturnedClass() {
+            return UUID.class;
+        }
+
+        @Override
+        public UUID getValue(ResultSet rs, int startIndex) throws SQLException {
+            final byte[] bytes = rs.getBytes(startIndex);
+            return bytes != null ? UUIDTypeDescriptor.ToBytesTransformer.INSTANCE.parse(bytes) : null;
+        }
+
+        @Override
+        public void setValue(PreparedStatement st, int startIndex, UUID value) throws SQLException {
+            st.setBytes(startIndex, UUIDTypeDescriptor.ToBytesTransformer.INSTANCE.transform(value));
+        }
+    }
+
+    /**
+     * Applies the {@link javax.persistence.AttributeConverter} of the property to the values bound and read.
+     */
+    private static class ConvertedType<O, R> extends AbstractType<O> {
+
+        private final Class<O> modelType;
+        private final Class<R> jdbcType;
+        private final BasicValueConverter<O, R> converter;
+
+        ConvertedType(Class<O> modelType, Class<R> jdbcType, BasicValueConverter<O, R> converter) {
+            super(Types.OTHER);
+            this.modelType = modelType;
+            this.jdbcType = jdbcType;
+            this.converter = converter;
+        }
+
+        @Override
+        public Class<O> getReturnedClass() {
+            return modelType;
+        }
+
+        @Override
+        public O getValue(ResultSet rs, int startIndex) throws SQLException {
+            return converter.toDomainValue(rs.getObject(startIndex, jdbcType));
+        }
+
+        @Override
+        public void setValue(PreparedStatement st, int startIndex, O value) throws SQLException {
+            st.setObject(startIndex, converter.toRelationalValue(value));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.bislan.dynamicquery.library.sql;
+
+import java.lang.reflect.RecordComponent;
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import com.bislan.dynamicquery.library.QueryParameters;
+import com.bislan.dynamicquery.library.QuerydslHelper;
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.ExpressionFactory;
+import com.bislan.dynamicquery.library.expression.PredicateRewrite;
+import com.bislan.dynamicquery.library.expression.QueryPolicy;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.StatementOptions;
+
+/**
+ * Runs the same {@link QueryParameters} as
+ * {@link com.bislan.dynamicquery.library.DynamicQuerydslPredicateExecutor} as SQL through querydsl-sql, for
+ * read-only endpoints: no entity is hydrated or tracked by the persistence context, the rows go straight into
+ * tuples, maps, records or a row callback. The tables and columns come from the {@link SqlMetamodel}.
+ * <p>
+ * The queries take the connection of the current transaction, if any, but do not flush the persistence context.
+ * Filters on collections always run as {@code exists} subqueries.
+ */
+public class NativeQueryExecutor<T> {
+
+    private static final int FETCH_SIZE = 500;
+
+    private final Class<T> entityType;
+    private final SqlMetamodel metamodel;
+    private final DataSource dataSource;
+    private final QueryPolicy policy;
+
+    public NativeQueryExecutor(Class<T> entityType, SqlMetamodel metamodel, DataSource dataSource) {
+        this(entityType, metamodel, dataSource, QueryPolicy.unrestricted());
+    }
+
+    public NativeQueryExecutor(Class<T> entityType, SqlMetamodel metamodel, DataSource dataSource, QueryPolicy policy) {
+        this.entityType = entityType;
+        this.metamodel = metamodel;
+        this.dataSource = dataSource;
+        this.policy = policy;
+    }
+
+    /**
+     * Selects the given properties, e.g. {@code customer.name}. Associations the filters did not join are left joined.
+     */
+    public List<Tuple> findTuples(QueryParameters params, List<String> fields, Sort sort) {
+        return run(params, fields, Projections::tuple, sort, null, SQLQuery::fetch, Collections.emptyList());
+    }
+
+    /**
+     * Selects the properties listed by the {@link QueryParameters#FieldsKey} parameter, keyed by property path.
+     */
+    public List<Map<String, Object>> findFields(QueryParameters params, Sort sort) {
+        final List<String> fields = params.getFields();
+        return findTuples(params, fields, sort).stream()
+                .map(tuple -> toMap(fields, tuple))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Projects into {@code type} through its constructor. The constructor arguments are the properties listed by the
+     * {@link QueryParameters#FieldsKey} parameter or, if there is none, the components of a record type.
+     */
+    public <R> List<R> findAll(QueryParameters params, Class<R> type, Sort sort) {
+        return run(params, getFields(params, type), exprs -> Projections.constructor(type, exprs), sort, null, SQLQuery::fetch,
+                Collections.emptyList());
+    }
+
+    public <R> Page<R> findAll(QueryParameters params, Class<R> type, Pageable pageable) {
+        return run(params, getFields(params, type), exprs -> Projections.constructor(type, exprs), pageable.getSort(), pageable,
+                query -> {
+                    final long total = query.clone().fetchCount();
+                    return new PageImpl<>(query.fetch(), pageable, total);
+                }, new PageImpl<>(Collections.emptyList(), pageable, 0));
+    }
+
+    public long count(QueryParameters params) {
+        return run(params, null, null, Sort.unsorted(), null, SQLQuery::fetchCount, 0L);
+    }
+
+    /**
+     * Hands the rows to the callback while they are read, so that no result list is built.
+     */
+    public void forEach(QueryParameters params, List<String> fields, Sort sort, Consumer<Tuple> callback) {
+        run(params, fields, Projections::tuple, sort, null, query -> {
+            query.setStatementOptions(StatementOptions.builder().setFetchSize(FETCH_SIZE).build());
+            try (Stream<Tuple> rows = query.stream()) {
+                rows.forEach(callback);
+            }
+            return null;
+        }, null);
+    }
+
+    private <P, R> R run(QueryParameters params, List<String> fields, Function<Expression<?>[], Expression<P>> projection,
+            Sort sort, Pageable pageable, Function<SQLQuery<P>, R> execution, R unsatisfiable) {
+        policy.checkSorts(entityType, sort.stream().map(Sort.Order::getProperty).collect(Collectors.toList()));
+        final ExpressionEntries entries = PredicateRewrite.optimize(
+                ExpressionFactory.createFromParams(entityType, params.getParameters(), policy), EnumSet.allOf(PredicateRewrite.class));
+        if (entries.isUnsatisfiable()) {
+            return unsatisfiable;
+        }
+        final SqlPredicateBuilder builder = new SqlPredicateBuilder(metamodel, entityType);
+        final Predicate predicate = builder.build(entries);
+        final Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            final SQLQuery<P> query = select(new SQLQuery<Void>(connection, metamodel.getConfiguration()), builder, fields, projection);
+            for (Sort.Order order : sort) {
+                query.orderBy(toOrderSpecifier(order, builder.resolve(order.getProperty())));
+            }
+            builder.applyJoins(query);
+            query.where(predicate);
+            if (pageable != null && pageable.isPaged()) {
+                query.offset(pageable.getOffset()).limit(pageable.getPageSize());
+            }
+            return execution.apply(query);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <P> SQLQuery<P> select(SQLQuery<Void> query, SqlPredicateBuilder builder, List<String> fields,
+            Function<Expression<?>[], Expression<P>> projection) {
+        query.from(builder.getRoot());
+        if (projection == null) {
+            return (SQLQuery<P>) query;
+        }
+        if (fields.isEmpty()) {
+            throw new RuntimeException("No fields to select, use the " + QueryParameters.FieldsKey + " parameter");
+        }
+        return query.select(projection.apply(fields.stream()
+                .map(builder::resolve)
+                .toArray(Expression<?>[]::new)));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static OrderSpecifier<?> toOrderSpecifier(Sort.Order sortOrder, Expression<?> column) {
+        Expression<?> target = column;
+        if (sortOrder.isIgnoreCase() && column.getType() == String.class) {
+            target = ExpressionUtils.operation(String.class, Ops.LOWER, column);
+        }
+        return new OrderSpecifier(sortOrder.isAscending() ? Order.ASC : Order.DESC, target,
+                QuerydslHelper.toNullHandling(sortOrder.getNullHandling()));
+    }
+
+    private static List<String> getFields(QueryParameters params, Class<?> type) {
+        List<String> fields = params.getFields();
+        if (fields.isEmpty() && type.isRecord()) {
+            fields = Stream.of(type.getRecordComponents()).map(RecordComponent::getName).collect(Collectors.toList());
+        }
+        if (fields.isEmpty()) {
+            throw new RuntimeException("No fields to project into " + type.getName());
+        }
+        return fields;
+    }
+
+    private static Map<String, Object> toMap(List<String> fields, Tuple tuple) {
+        final Object[] values = tuple.toArray();
+        final Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            row.put(fields.get(i), values[i]);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,152 @@
+package com.bislan.dynamicquery.library.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.collection.QueryableCollection;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.ComponentType;
+import org.hibernate.type.Type;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.RelationalPathBase;
+import com.querydsl.sql.SQLTemplates;
+import com.querydsl.sql.SQLTemplatesRegistry;
+
+/**
+ * The tables and columns of the entities, read from the Hibernate persisters of an entity manager factory, and the
+ * querydsl-sql {@link Configuration} that converts their values the way Hibernate maps them. Built once per factory.
+ */
+public class SqlMetamodel {
+
+    private final MetamodelImplementor metamodel;
+    private final Configuration configuration;
+
+    private SqlMetamodel(MetamodelImplementor metamodel, SQLTemplates templates) {
+        this.metamodel = metamodel;
+        this.configuration = new Configuration(templates);
+        for (EntityPersister persister : metamodel.entityPersisters().values()) {
+            if (persister instanceof AbstractEntityPersister) {
+                registerColumnTypes((AbstractEntityPersister) persister);
+            }
+        }
+    }
+
+    public static SqlMetamodel of(EntityManagerFactory entityManagerFactory, SQLTemplates templates) {
+        return new SqlMetamodel(entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMetamodel(), templates);
+    }
+
+    /**
+     * Same as {@link #of(EntityManagerFactory, SQLTemplates)}, with the templates detected from the database.
+     */
+    public static SqlMetamodel of(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        final Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return of(entityManagerFactory, new SQLTemplatesRegistry().getTemplates(connection.getMetaData()));
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot detect the SQL dialect", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    AbstractEntityPersister getPersister(Class<?> type) {
+        final EntityPersister persister = metamodel.entityPersister(type);
+        if (!(persister instanceof AbstractEntityPersister)) {
+            throw new RuntimeException("Unsupported persister for " + type.getName());
+        }
+        final AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+        if (entityPersister.isInherited() || entityPersister.hasSubclasses()) {
+            throw new RuntimeException("Native queries do not support inheritance: " + type.getName());
+        }
+        return entityPersister;
+    }
+
+    QueryableCollection getCollectionPersister(AbstractEntityPersister owner, String property) {
+        final CollectionPersister persister = metamodel.collectionPersister(owner.getEntityName() + "." + property);
+        return (QueryableCollection) persister;
+    }
+
+    RelationalPath<Object> getTable(AbstractEntityPersister persister, String alias) {
+        return table(persister.getTableName(), alias);
+    }
+
+    static RelationalPath<Object> table(String qualifiedName, String alias) {
+        final int dot = qualifiedName.lastIndexOf('.');
+        final String schema = dot < 0 ? null : unquote(qualifiedName.substring(0, dot));
+        return new RelationalPathBase<>(Object.class, alias, schema, unquote(qualifiedName.substring(dot + 1)));
+    }
+
+    /**
+     * The single column of a basic property, {@code address.city} for one inside an embeddable.
+     */
+    static String getColumn(AbstractEntityPersister persister, String property) {
+        final String[] columns = persister.getPropertyColumnNames(property);
+        if (columns.length != 1) {
+            throw new RuntimeException("Property '" + property + "' of " + persister.getEntityName()
+                    + " does not map to a single column");
+        }
+        return unquote(columns[0]);
+    }
+
+    static String[] unquote(String[] names) {
+        final String[] unquoted = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            unquoted[i] = unquote(names[i]);
+        }
+        return unquoted;
+    }
+
+    /**
+     * Hibernate keeps quoted names with the quotes of the dialect; querydsl-sql quotes again where its templates need to.
+     */
+    private static String unquote(String name) {
+        if (name.length() > 1 && "\"`[".indexOf(name.charAt(0)) >= 0) {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    private void registerColumnTypes(AbstractEntityPersister persister) {
+        final String table = table(persister.getTableName(), "t").getTableName();
+        final String[] names = persister.getPropertyNames();
+        final Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < names.length; i++) {
+            registerColumnTypes(persister, table, names[i], types[i]);
+        }
+        if (persister.getIdentifierPropertyName() != null) {
+            registerColumnTypes(persister, table, persister.getIdentifierPropertyName(), persister.getIdentifierType());
+        }
+    }
+
+    private void registerColumnTypes(AbstractEntityPersister persister, String table, String property, Type type) {
+        if (type instanceof ComponentType) {
+            final ComponentType component = (ComponentType) type;
+            for (int i = 0; i < component.getPropertyNames().length; i++) {
+                registerColumnTypes(persister, table, property + "." + component.getPropertyNames()[i], component.getSubtypes()[i]);
+            }
+            return;
+        }
+        final com.querydsl.sql.types.Type<?> columnType = ColumnTypes.of(type);
+        if (columnType == null || type.isAssociationType()) {
+            return;
+        }
+        final String[] columns = persister.getPropertyColumnNames(property);
+        if (columns.length == 1) {
+            configuration.register(table, unquote(columns[0]), columnType);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.bislan.dynamicquery.library.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hibernate.persister.collection.QueryableCollection;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.util.StringUtils;
+
+import com.bislan.dynamicquery.library.expression.EntityMetadata;
+import com.bislan.dynamicquery.library.expression.EntityMetadataRegistry;
+import com.bislan.dynamicquery.library.expression.ExpressionEntries;
+import com.bislan.dynamicquery.library.expression.ExpressionType;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.PredicatePath;
+import com.bislan.dynamicquery.library.expression.PropertyMetadata;
+import com.bislan.dynamicquery.library.expression.operator.OperatorType;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadataFactory;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQuery;
+
+/**
+ * Translates the parsed filters into a querydsl-sql predicate over the tables of the entities, with the same aliases
+ * as the JPA backend. Associations become inner joins on their foreign keys; the filters on a collection become one
+ * {@code exists} subquery, so the root rows are never multiplied.
+ */
+class SqlPredicateBuilder {
+
+    private final SqlMetamodel metamodel;
+    private final String rootAlias;
+    private final RelationalPath<Object> root;
+    private final Map<String, Source> sources = new LinkedHashMap<>();
+    private final Map<String, Join> joins = new LinkedHashMap<>();
+
+    SqlPredicateBuilder(SqlMetamodel metamodel, Class<?> rootType) {
+        this.metamodel = metamodel;
+        this.rootAlias = EntityMetadataRegistry.get(rootType).getName();
+        final AbstractEntityPersister persister = metamodel.getPersister(rootType);
+        this.root = metamodel.getTable(persister, rootAlias);
+        sources.put(rootAlias, new Source(rootType, persister, root));
+    }
+
+    RelationalPath<Object> getRoot() {
+        return root;
+    }
+
+    /**
+     * Adds the joins of the associations to the query.
+     */
+    void applyJoins(SQLQuery<?> query) {
+        for (Join join : joins.values()) {
+            if (join.left) {
+                query.leftJoin(join.target).on(join.condition);
+            } else {
+                query.join(join.target).on(join.condition);
+            }
+        }
+    }
+
+    Predicate build(ExpressionEntries entries) {
+        final List<Predicate> predicates = new ArrayList<>();
+        final Map<String, ExistsGroup> groups = new LinkedHashMap<>();
+        for (PredicateEntry entry : entries.getPredicates()) {
+            Source source = sources.get(rootAlias);
+            String embedded = "";
+            ExistsGroup group = null;
+            for (PredicatePath path : entry.getPath()) {
+                if (path.getRelationType() == RelationType.EMBEDDED) {
+                    embedded = embedded + path.getProperty() + ".";
+                    continue;
+                }
+                final String property = embedded + path.getProperty();
+                embedded = "";
+                if (path.getRelationType() == RelationType.COLLECTION && group == null) {
+                    final Source owner = source;
+                    group = groups.computeIfAbsent(path.getFullPath(), alias -> new ExistsGroup(owner, property, alias));
+                    source = group.element;
+                } else if (group != null) {
+                    source = group.join(source, property, path);
+                } else {
+                    source = joinSingle(source, property, path.getFullPath(), false);
+                }
+            }
+            final Predicate predicate = toPredicate(entry, column(source, embedded + entry.getProperty(), entry.getPropertyType()));
+            if (group != null) {
+                group.predicates.add(predicate);
+            } else {
+                predicates.add(predicate);
+            }
+        }
+        groups.values().forEach(group -> predicates.add(group.toExists(entries.getType())));
+        return combine(entries.getType(), predicates);
+    }
+
+    /**
+     * Resolves a dotted property path of a single-valued property, left joining the associations the filters did not
+     * join.
+     */
+    Expression<?> resolve(String propertyPath) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(sources.get(rootAlias).type);
+        Source source = sources.get(rootAlias);
+        String alias = rootAlias;
+        String embedded = "";
+        for (String part : StringUtils.tokenizeToStringArray(propertyPath, ".")) {
+            final PropertyMetadata property = metadata.getProperty(part);
+            if (property == null) {
+                throw new RuntimeException("Unknown property '" + part + "' in path: " + propertyPath);
+            }
+            if (property.getRelationType() == null) {
+                return column(source, embedded + part, property.getType());
+            }
+            if (property.getRelationType() == RelationType.COLLECTION) {
+                throw new RuntimeException("Collection '" + part + "' cannot be used in path: " + propertyPath);
+            }
+            alias = alias + "_" + part;
+            if (property.getRelationType() == RelationType.EMBEDDED) {
+                embedded = embedded + part + ".";
+            } else {
+                source = joinSingle(source, embedded + part, alias, true);
+                embedded = "";
+            }
+            metadata = EntityMetadataRegistry.get(property.getTargetType());
+        }
+        throw new RuntimeException("The path must end with a basic property: " + propertyPath);
+    }
+
+    private Source joinSingle(Source owner, String property, String alias, boolean left) {
+        final Source existing = sources.get(alias);
+        if (existing != null) {
+            return existing;
+        }
+        final Class<?> targetType = owner.persister.getPropertyType(property).getReturnedClass();
+        final Source target = newSource(targetType, alias);
+        joins.put(alias, new Join(target.table, foreignKey(owner, property, target), left));
+        sources.put(alias, target);
+        return target;
+    }
+
+    private Source newSource(Class<?> type, String alias) {
+        final AbstractEntityPersister persister = metamodel.getPersister(type);
+        return new Source(type, persister, metamodel.getTable(persister, alias));
+    }
+
+    /**
+     * {@code target.id = owner.fk} for a to-one association owned by {@code owner}.
+     */
+    private static Predicate foreignKey(Source owner, String property, Source target) {
+        final String[] columns = SqlMetamodel.unquote(owner.persister.getPropertyColumnNames(property));
+        if (columns.length == 0) {
+            throw new RuntimeException("Native queries only support the owning side of '" + property + "'");
+        }
+        return columnsEqual(target.table, SqlMetamodel.unquote(target.persister.getIdentifierColumnNames()), owner.table, columns);
+    }
+
+    private static Predicate columnsEqual(RelationalPath<?> left, String[] leftColumns, RelationalPath<?> right, String[] rightColumns) {
+        final BooleanExpression[] conditions = new BooleanExpression[leftColumns.length];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = Expressions.predicate(Ops.EQ, column(left, leftColumns[i]), column(right, rightColumns[i]));
+        }
+        return Expressions.allOf(conditions);
+    }
+
+    private static Path<Object> column(RelationalPath<?> table, String column) {
+        return Expressions.path(Object.class, PathMetadataFactory.forProperty(table, column));
+    }
+
+    private static Path<?> column(Source source, String property, Class<?> type) {
+        return Expressions.path(type, PathMetadataFactory.forProperty(source.table, SqlMetamodel.getColumn(source.persister, property)));
+    }
+
+    private static Predicate toPredicate(PredicateEntry entry, Path<?> column) {
+        Operator operator = entry.getOp().getOperator();
+        final Object[] values = entry.getValues();
+        if (entry.getOp().getOpType() == OperatorType.LIST) {
+            return Expressions.predicate(operator, column, Expressions.constant(Stream.of(values)
+                    .distinct()
+                    .collect(Collectors.toList())));
+        }
+        final Expression<?>[] args = new Expression<?>[values.length + 1];
+        args[0] = column;
+        for (int i = 0; i < values.length; i++) {
+            args[i + 1] = Expressions.constant(values[i]);
+        }
+        if (operator == Ops.MATCHES || operator == Ops.MATCHES_IC) {
+            // as in JPQL, the regex runs as a like pattern, the same on every database
+            final boolean ignoreCase = operator == Ops.MATCHES_IC;
+            final String regex = ignoreCase ? values[0].toString().toLowerCase() : values[0].toString();
+            args[1] = ExpressionUtils.regexToLike(Expressions.constant(regex));
+            operator = ignoreCase ? Ops.LIKE_IC : Ops.LIKE;
+        }
+        return Expressions.predicate(operator, args);
+    }
+
+    private static Predicate combine(ExpressionType type, List<Predicate> predicates) {
+        final Predicate[] array = predicates.toArray(new Predicate[0]);
+        return type == ExpressionType.ANYOF ? ExpressionUtils.anyOf(array) : ExpressionUtils.allOf(array);
+    }
+
+    private static class Source {
+        private final Class<?> type;
+        private final AbstractEntityPersister persister;
+        private final RelationalPath<Object> table;
+
+        private Source(Class<?> type, AbstractEntityPersister persister, RelationalPath<Object> table) {
+            this.type = type;
+            this.persister = persister;
+            this.table = table;
+        }
+    }
+
+    static class Join {
+        private final RelationalPath<Object> target;
+        private final Predicate condition;
+        private final boolean left;
+
+        private Join(RelationalPath<Object> target, Predicate condition, boolean left) {
+            this.target = target;
+            this.condition = condition;
+            this.left = left;
+        }
+    }
+
+    /**
+     * The filters on one collection of an owner, rendered as
+     * {@code exists (select 1 from element where element.fk = owner.id and ...)}; many-to-many collections go through
+     * their join table.
+     */
+    private class ExistsGroup {
+        private final RelationalPath<Object> link;
+        private final Predicate correlation;
+        private final Source element;
+        private final Map<String, Source> groupSources = new LinkedHashMap<>();
+        private final Map<String, Join> groupJoins = new LinkedHashMap<>();
+        private final List<Predicate> predicates = new ArrayList<>();
+
+        private ExistsGroup(Source owner, String property, String alias) {
+            final QueryableCollection collection = metamodel.getCollectionPersister(owner.persister, property);
+            final String[] ownerId = SqlMetamodel.unquote(owner.persister.getIdentifierColumnNames());
+            final String[] keyColumns = SqlMetamodel.unquote(collection.getKeyColumnNames());
+            final Class<?> elementType = collection.getElementType().getReturnedClass();
+            element = newSource(elementType, alias);
+            if (collection.isOneToMany()) {
+                link = null;
+                correlation = columnsEqual(element.table, keyColumns, owner.table, ownerId);
+            } else if (collection.isManyToMany()) {
+                link = SqlMetamodel.table(collection.getTableName(), alias + "_link");
+                correlation = columnsEqual(link, keyColumns, owner.table, ownerId);
+                groupJoins.put(alias, new Join(element.table, columnsEqual(element.table,
+                        SqlMetamodel.unquote(element.persister.getIdentifierColumnNames()), link,
+                        SqlMetamodel.unquote(collection.getElementColumnNames())), false));
+            } else {
+                throw new RuntimeException("Native queries do not support the collection of values '" + property + "'");
+            }
+            groupSources.put(alias, element);
+        }
+
+        private Source join(Source owner, String property, PredicatePath path) {
+            final String alias = path.getFullPath();
+            final Source existing = groupSources.get(alias);
+            if (existing != null) {
+                return existing;
+            }
+            final Source target;
+            if (path.getRelationType() == RelationType.COLLECTION) {
+                final QueryableCollection collection = metamodel.getCollectionPersister(owner.persister, property);
+                if (!collection.isOneToMany()) {
+                    throw new RuntimeException("Native queries only support nested one-to-many collections: " + property);
+                }
+                target = newSource(collection.getElementType().getReturnedClass(), alias);
+                groupJoins.put(alias, new Join(target.table, columnsEqual(target.table, SqlMetamodel.unquote(collection.getKeyColumnNames()),
+                        owner.table, SqlMetamodel.unquote(owner.persister.getIdentifierColumnNames())), false));
+            } else {
+                target = newSource(owner.persister.getPropertyType(property).getReturnedClass(), alias);
+                groupJoins.put(alias, new Join(target.table, foreignKey(owner, property, target), false));
+            }
+            groupSources.put(alias, target);
+            return target;
+        }
+
+        private BooleanExpression toExists(ExpressionType type) {
+            final SQLQuery<Integer> subQuery = SQLExpressions.selectOne().from(link != null ? link : element.table);
+            for (Join join : groupJoins.values()) {
+                subQuery.join(join.target).on(join.condition);
+            }
+            return subQuery.where(correlation, combine(type, predicates)).exists();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.TestModel.Status;
+import com.bislan.dynamicquery.library.metrics.QueryEvent;
+import com.bislan.dynamicquery.library.metrics.QueryListener;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class AggregationsTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private DynamicQuerydslPredicateExecutor<PurchaseOrder> orders;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+        orders = new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public QueryListener getQueryListener() {
+                return new QueryListener() {
+                    @Override
+                    public void onQuery(QueryEvent event) {
+                        queries.incrementAndGet();
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    void joinedFiltersAggregateEachRootOnce() {
+        // orders 2, 5, ..., 20 have two lines each, which the join repeats
+        final List<Map<String, Object>> rows = orders.findGroups(params("lines.qty", "gt(0)"), List.of("status"),
+                List.of(Aggregate.count(), Aggregate.sum("amount"), Aggregate.count("amount"), Aggregate.avg("amount")),
+                Map.of(DynamicQueryHints.COLLECTION_PREDICATE_MODE, CollectionPredicateMode.JOIN));
+
+        assertEquals(2, rows.size());
+        assertGroup(rows.get(0), Status.PAID, 7, 350);
+        assertGroup(rows.get(1), Status.SHIPPED, 7, 385);
+    }
+
+    @Test
+    void limitsGroups() {
+        final List<Map<String, Object>> rows = orders.findGroups(params(), List.of("status"), List.of(Aggregate.count()),
+                Map.of(DynamicQueryHints.GROUP_LIMIT, 2));
+
+        assertEquals(2, rows.size());
+        assertEquals(Status.NEW, rows.get(0).get("status"));
+        assertEquals(Status.PAID, rows.get(1).get("status"));
+    }
+
+    @Test
+    void countsFacetsTogether() {
+        final Map<String, Map<Object, Long>> facets = orders.findFacets(params(), List.of(Facet.of("status"), Facet.of("code")));
+
+        assertEquals(1, queries.get());
+        assertFacets(facets);
+    }
+
+    @Test
+    void countsFacetsOfManyCombinationsApart() {
+        final Map<String, Map<Object, Long>> facets = orders.findFacets(params(), List.of(Facet.of("status"), Facet.of("code")),
+                Map.of(DynamicQueryHints.GROUP_LIMIT, 5));
+
+        assertEquals(3, queries.get());
+        assertFacets(facets);
+    }
+
+    private static void assertGroup(Map<String, Object> row, Status status, long count, long sum) {
+        assertEquals(status, row.get("status"));
+        assertEquals(count, ((Number) row.get("count")).longValue());
+        assertEquals(sum, ((Number) row.get("sum(amount)")).longValue());
+        assertEquals(count, ((Number) row.get("count(amount)")).longValue());
+        assertEquals((double) sum / count, ((Number) row.get("avg(amount)")).doubleValue(), 1e-9);
+    }
+
+    private static void assertFacets(Map<String, Map<Object, Long>> facets) {
+        assertEquals(Map.of(Status.NEW, 6L, Status.PAID, 7L, Status.SHIPPED, 7L), facets.get("status"));
+        assertEquals(TestData.ORDERS, facets.get("code").size());
+        assertEquals(1L, facets.get("code").get("C1"));
+    }
+}
@@ -0,0 +1,159 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.metrics.QueryEvent;
+import com.bislan.dynamicquery.library.metrics.QueryListener;
+import com.bislan.dynamicquery.library.metrics.QueryPhase;
+
+/**
+ * The queries run on entity managers of their own, so the rows are committed to a database of this test.
+ */
+@SpringBootTest(classes = TestApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:async;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+class AsyncQueryExecutorTest {
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void data() {
+        transaction.executeWithoutResult(status -> TestData.persist(entityManager));
+    }
+
+    @AfterEach
+    void delete() {
+        pool.shutdownNow();
+        transaction.executeWithoutResult(status -> TestData.delete(entityManager));
+    }
+
+    @Test
+    void fetchesPageAndCountInParallel() throws Exception {
+        final CountDownLatch counted = new CountDownLatch(1);
+        // the content waits for the count, which only finishes when it runs at the same time
+        final AsyncQueryExecutor<PurchaseOrder> orders = AsyncQueryExecutor.of(executor(new QueryListener() {
+            @Override
+            public void onPhase(QueryEvent event) {
+                if (event.getPhase() == QueryPhase.COUNT) {
+                    counted.countDown();
+                } else if (event.getPhase() == QueryPhase.EXECUTE) {
+                    await(counted);
+                }
+            }
+        })).withExecutor(pool);
+
+        final Page<PurchaseOrder> page = orders.findAll(params("amount", "gt(20)"), PageRequest.of(1, 5, Sort.by("id")))
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of(10L, 11L, 12L, 13L, 14L), page.getContent().stream().map(PurchaseOrder::getId)
+                .collect(Collectors.toList()));
+        assertEquals(16, page.getTotalElements());
+    }
+
+    @Test
+    void returnsDetachedEntities() throws Exception {
+        final AsyncQueryExecutor<PurchaseOrder> orders = AsyncQueryExecutor.of(executor(QueryListener.NOOP)).withExecutor(pool);
+
+        final Optional<PurchaseOrder> order = orders.findOne(params("code", "eq(C5)")).get(10, TimeUnit.SECONDS);
+
+        assertTrue(order.isPresent());
+        assertThrows(LazyInitializationException.class, () -> order.get().getLines().size());
+        assertEquals(20L, orders.count(params()).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void propagatesFailures() {
+        final AsyncQueryExecutor<PurchaseOrder> orders = AsyncQueryExecutor.of(executor(QueryListener.NOOP)).withExecutor(pool);
+
+        final ExecutionException e = assertThrows(ExecutionException.class,
+                () -> orders.findAll(params("amount", "eq(x)"), Sort.unsorted()).get(10, TimeUnit.SECONDS));
+
+        assertTrue(e.getCause() instanceof RuntimeException);
+    }
+
+    @Test
+    void coalescesItsReadOnlyQueries() throws Exception {
+        final QueryCoalescer coalescer = new QueryCoalescer(Duration.ofSeconds(1));
+        final AsyncQueryExecutor<PurchaseOrder> orders = AsyncQueryExecutor.of(new DynamicQuerydslPredicateExecutor<PurchaseOrder>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public QueryCoalescer getQueryCoalescer() {
+                return coalescer;
+            }
+        }).withExecutor(pool);
+
+        assertEquals(4, orders.findAll(params("amount", "gt(80)"), Sort.by("id")).get(10, TimeUnit.SECONDS).size());
+        assertEquals(1, coalescer.getExecutionCount());
+    }
+
+    private DynamicQuerydslPredicateExecutor<PurchaseOrder> executor(QueryListener listener) {
+        return new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public QueryListener getQueryListener() {
+                return listener;
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("The count did not run while the content was fetched");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
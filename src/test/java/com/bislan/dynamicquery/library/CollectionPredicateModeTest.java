@@ -0,0 +1,118 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestApplication.PurchaseOrderRepository;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+/**
+ * Orders 1, 4, ..., 19 have one line, of quantity 1 on product 1; orders 2, 5, ..., 20 have that line and one of
+ * quantity 2 on product 2; the other orders have none.
+ */
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class CollectionPredicateModeTest {
+
+    private static final Map<String, Object> EXISTS = Map.of(DynamicQueryHints.COLLECTION_PREDICATE_MODE, CollectionPredicateMode.EXISTS);
+    private static final Map<String, Object> JOIN = Map.of(DynamicQueryHints.COLLECTION_PREDICATE_MODE, CollectionPredicateMode.JOIN);
+
+    private static final Pattern EXISTS_CLAUSE = Pattern.compile("exists");
+
+    @Autowired
+    private PurchaseOrderRepository orders;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+    }
+
+    @Test
+    void correlatesTheSubqueryWithTheRoot() {
+        final QueryParameters params = params("lines.qty", "eq(2)");
+
+        assertEquals(List.of(2L, 5L, 8L, 11L, 14L, 17L, 20L), ids(orders.findAll(params, Sort.by("id"), EXISTS)));
+        assertEquals(ids(orders.findAll(params, Sort.by("id"), JOIN)), ids(orders.findAll(params, Sort.by("id"), EXISTS)));
+        assertEquals(1, existsCount(params));
+    }
+
+    @Test
+    void groupsTheFiltersOfACollectionIntoOneSubquery() {
+        // both filters hold on the same line, which no order has
+        final QueryParameters sameLine = params("lines.qty", "eq(2)", "lines.product.name", "eq(prod1)");
+
+        assertEquals(0, orders.count(sameLine, EXISTS));
+        assertEquals(0, orders.count(sameLine, JOIN));
+        assertEquals(1, existsCount(sameLine));
+        assertEquals(7, orders.count(params("lines.qty", "eq(2)", "lines.product.name", "eq(prod2)"), EXISTS));
+        // each collection has a subquery of its own
+        final QueryParameters twoCollections = params("lines.qty", "eq(2)", "tags.name", "eq(even)");
+        assertEquals(List.of(2L, 8L, 14L, 20L), ids(orders.findAll(twoCollections, Sort.by("id"), EXISTS)));
+        assertEquals(2, existsCount(twoCollections));
+    }
+
+    @Test
+    void keepsAnyOfInsideTheSubquery() {
+        final QueryParameters anyOf = params("lines.qty", "eq(2)", "lines.product.name", "eq(prod1)", "EXPR_TYPE", "ANYOF");
+
+        assertEquals(14, orders.count(anyOf, EXISTS));
+        assertEquals(1, existsCount(anyOf));
+        // a root filter is or'ed with the subquery, so orders without lines match it too
+        assertEquals(List.of(2L, 3L, 5L, 8L, 11L, 14L, 17L, 20L), ids(orders.findAll(params("lines.qty", "eq(2)", "code", "eq(C3)",
+                "EXPR_TYPE", "ANYOF"), Sort.by("id"), EXISTS)));
+    }
+
+    @Test
+    void countsEachRootOnce() {
+        final QueryParameters params = params("lines.qty", "gt(0)");
+        final List<Long> exists = ids(orders.findAll(params, Sort.by("id"), EXISTS));
+
+        assertEquals(14, exists.size());
+        assertEquals(exists.stream().distinct().collect(Collectors.toList()), exists);
+        assertEquals(14, orders.count(params, EXISTS));
+        // the join repeats the orders of two lines, its count does not
+        final List<Long> joined = ids(orders.findAll(params, Sort.by("id"), JOIN));
+        assertEquals(21, joined.size());
+        assertEquals(exists, joined.stream().distinct().collect(Collectors.toList()));
+        assertEquals(14, orders.count(params, JOIN));
+
+        final Page<PurchaseOrder> page = orders.findAll(params, PageRequest.of(1, 5, Sort.by("id")), EXISTS);
+        assertEquals(14, page.getTotalElements());
+        assertEquals(List.of(8L, 10L, 11L, 13L, 14L), ids(page.getContent()));
+    }
+
+    private int existsCount(QueryParameters params) {
+        final Matcher matcher = EXISTS_CLAUSE.matcher(new QuerydslPredicateBuilder<>(PurchaseOrder.class, params,
+                CollectionPredicateMode.EXISTS).toQueryPlan().getPredicate().toString());
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static List<Long> ids(List<PurchaseOrder> orders) {
+        return orders.stream().map(PurchaseOrder::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,132 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestModel.OrderLine;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.metrics.QueryEvent;
+import com.bislan.dynamicquery.library.metrics.QueryListener;
+import com.bislan.dynamicquery.library.metrics.QueryPhase;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class FetchPlanTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final List<QueryPhase> phases = new ArrayList<>();
+
+    private DynamicQuerydslPredicateExecutor<PurchaseOrder> orders;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+        entityManager.clear();
+        orders = new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public QueryListener getQueryListener() {
+                return new QueryListener() {
+                    @Override
+                    public void onPhase(QueryEvent event) {
+                        phases.add(event.getPhase());
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    void fetchJoinsToOneAssociations() {
+        // the fetch reuses the join of the filter on the customer
+        final List<PurchaseOrder> result = orders.findAll(params("customer.name", "eq(cust2)", QueryParameters.FetchKey, "customer"),
+                Sort.by("id"));
+
+        assertEquals(List.of(1L, 4L, 7L, 10L, 13L, 16L, 19L), ids(result));
+        assertTrue(result.stream().allMatch(order -> Hibernate.isInitialized(order.getCustomer())));
+        assertEquals("cust2", result.get(0).getCustomer().getName());
+        assertEquals(List.of(QueryPhase.PARSE, QueryPhase.BUILD, QueryPhase.EXECUTE), phases);
+
+        entityManager.clear();
+        final List<PurchaseOrder> hinted = orders.findAll(params("amount", "lt(15)"), Sort.by("id"),
+                Map.of(DynamicQueryHints.FETCH, "customer"));
+        assertEquals(List.of(1L, 2L), ids(hinted));
+        assertTrue(hinted.stream().allMatch(order -> Hibernate.isInitialized(order.getCustomer())));
+    }
+
+    @Test
+    void pagesRootsWhenFetchingCollections() {
+        final Page<PurchaseOrder> page = orders.findAll(params(QueryParameters.FetchKey, "lines.product"),
+                PageRequest.of(1, 4, Sort.by("id")));
+
+        // order 5 has two lines, and is listed once
+        assertEquals(List.of(5L, 6L, 7L, 8L), ids(page.getContent()));
+        assertEquals(20, page.getTotalElements());
+        assertTrue(page.getContent().stream().allMatch(order -> Hibernate.isInitialized(order.getLines())));
+        assertEquals(List.of(2, 0, 1, 2), page.getContent().stream().map(order -> order.getLines().size()).collect(Collectors.toList()));
+        assertTrue(page.getContent().get(0).getLines().stream().map(OrderLine::getProduct).allMatch(Hibernate::isInitialized));
+        assertEquals(1, phases.stream().filter(phase -> phase == QueryPhase.FETCH).count());
+    }
+
+    @Test
+    void keepsTheOrderOfTheIdsAcrossTheReload() {
+        final Sort sort = Sort.by(Sort.Order.asc("customer.name"), Sort.Order.desc("amount"));
+        final List<Long> expected = ids(orders.findAll(params("amount", "lt(50)"), sort));
+
+        assertEquals(List.of(9L, 6L, 3L, 7L, 4L, 1L, 8L, 5L, 2L), expected);
+        assertEquals(expected, ids(orders.findAll(params("amount", "lt(50)", QueryParameters.FetchKey, "lines"), sort)));
+    }
+
+    @Test
+    void reloadsIdsInBatches() {
+        LongStream.rangeClosed(1001, 1000 + DynamicQuerydslPredicateExecutor.FETCH_BATCH_SIZE).forEach(id -> {
+            final PurchaseOrder order = new PurchaseOrder();
+            order.setId(id);
+            order.setCode("C" + id);
+            order.setAmount(0);
+            entityManager.persist(order);
+        });
+        entityManager.flush();
+        entityManager.clear();
+
+        final List<PurchaseOrder> result = orders.findAll(params(QueryParameters.FetchKey, "lines"), Sort.by(Sort.Direction.DESC, "id"));
+
+        assertEquals(TestData.ORDERS + DynamicQuerydslPredicateExecutor.FETCH_BATCH_SIZE, result.size());
+        assertEquals(ids(result).stream().sorted((a, b) -> Long.compare(b, a)).collect(Collectors.toList()), ids(result));
+        assertEquals(2, phases.stream().filter(phase -> phase == QueryPhase.FETCH).count());
+    }
+
+    private static List<Long> ids(List<PurchaseOrder> orders) {
+        return orders.stream().map(PurchaseOrder::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,155 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.jpa.TypedParameterValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.expression.PredicateEntry;
+import com.bislan.dynamicquery.library.expression.operator.PredicateOperator;
+
+@SpringBootTest(classes = TestApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:inlists;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.metadata_builder_contributor=com.bislan.dynamicquery.library.InListFunctions" })
+@Transactional
+class InListOptionsTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private InListOptions options = InListOptions.defaults();
+
+    private final DynamicQuerydslPredicateExecutor<PurchaseOrder> orders = new DynamicQuerydslPredicateExecutor<>() {
+        @Override
+        public EntityManager getEntityManager() {
+            return entityManager;
+        }
+
+        @Override
+        public Class<PurchaseOrder> getEntityClass() {
+            return PurchaseOrder.class;
+        }
+
+        @Override
+        public InListOptions getInListOptions() {
+            return options;
+        }
+    };
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+    }
+
+    @Test
+    void chunksAtTheChunkSize() {
+        final InListOptions chunked = InListOptions.defaults().with(InListStrategy.CHUNKED);
+
+        assertEquals(List.of(1000), sizes(chunked, ids(1, 1000)));
+        assertEquals(List.of(1000, 1), sizes(chunked, ids(1, 1001)));
+        assertEquals(List.of(1000, 1000), sizes(chunked, ids(1, 2000)));
+        assertEquals(List.of(1000, 1000, 1), sizes(chunked, ids(1, 2001)));
+        assertEquals(List.of(3), sizes(chunked, ids(1, 3)));
+        assertEquals(List.of(2, 1), sizes(chunked.withChunkSize(2), ids(1, 3)));
+        // duplicates do not count
+        final List<Long> repeated = new ArrayList<>(ids(1, 1000));
+        repeated.add(1000L);
+        assertEquals(List.of(1000), sizes(chunked, repeated));
+    }
+
+    @Test
+    void padsChunksToPowersOfTwo() {
+        final InListOptions padded = InListOptions.defaults();
+
+        assertEquals(List.of(1), sizes(padded, ids(1, 1)));
+        assertEquals(List.of(2), sizes(padded, ids(1, 2)));
+        assertEquals(List.of(4), sizes(padded, ids(1, 3)));
+        assertEquals(List.of(8), sizes(padded, ids(1, 5)));
+        assertEquals(List.of(512), sizes(padded, ids(1, 512)));
+        assertEquals(List.of(1000), sizes(padded, ids(1, 513)));
+        assertEquals(List.of(1000, 1), sizes(padded, ids(1, 1001)));
+        assertEquals(List.of(1000, 2), sizes(padded, ids(1, 1002)));
+        assertEquals(List.of(1000, 4), sizes(padded, ids(1, 1003)));
+        // the padding repeats the last value
+        assertEquals(List.of(List.of(1L, 2L, 3L, 3L)), Arrays.asList(padded.toBindValues(InListStrategy.PADDED, entry(ids(1, 3)))));
+    }
+
+    @Test
+    void bindsArraysAsOneParameter() {
+        final InListOptions arrays = InListOptions.defaults().with(InListStrategy.ARRAY)
+                .forDialect(entityManager.getEntityManagerFactory());
+        final PredicateEntry entry = entry(ids(1, 2001));
+
+        assertEquals(InListStrategy.ARRAY, arrays.resolve(entry));
+        assertEquals(1, arrays.getParameterCount(InListStrategy.ARRAY, entry.getValues()));
+        final TypedParameterValue value = (TypedParameterValue) arrays.toBindValues(InListStrategy.ARRAY, entry)[0];
+        assertEquals("bigint[]", value.getType().getName());
+        assertArrayEquals(ids(1, 2001).toArray(), (Object[]) value.getValue());
+        // without the function, arrays fall back to padded lists
+        assertEquals(InListStrategy.PADDED, InListOptions.defaults().with(InListStrategy.ARRAY).resolve(entry));
+    }
+
+    @Test
+    void findsValuesOfEveryChunk() {
+        // 1000 ids of no order, then the ids of orders 16 to 25, in the second chunk
+        final List<Long> ids = new ArrayList<>(ids(1001, 2000));
+        ids.addAll(ids(16, 25));
+
+        for (InListStrategy strategy : InListStrategy.values()) {
+            options = InListOptions.defaults().with(strategy);
+            assertEquals(5, orders.count(params("id", "in(" + join(ids) + ")")), strategy.name());
+            assertEquals(15, orders.count(params("id", "not_in(" + join(ids) + ")")), strategy.name());
+        }
+    }
+
+    @Test
+    void parsesArrayLiterals() {
+        final SqlArrayType strings = SqlArrayType.of("varchar");
+        final Object[] values = { "a", "b,c", "d\"e", "f\\g", null, "" };
+
+        assertEquals("{\"a\",\"b,c\",\"d\\\"e\",\"f\\\\g\",NULL,\"\"}", strings.toString(values));
+        assertArrayEquals(values, strings.fromStringValue(strings.toString(values)));
+        assertArrayEquals(new Object[] { 1L, null, 3L }, SqlArrayType.of("bigint").fromStringValue("{\"1\",NULL,\"3\"}"));
+        assertArrayEquals(new Object[0], SqlArrayType.of("bigint").fromStringValue("{}"));
+        assertThrows(IllegalArgumentException.class, () -> strings.fromStringValue("{\"a\""));
+        assertThrows(IllegalArgumentException.class, () -> strings.fromStringValue("{\"a\",}"));
+        assertThrows(IllegalArgumentException.class, () -> strings.fromStringValue("[a]"));
+    }
+
+    private static List<Integer> sizes(InListOptions options, List<Long> ids) {
+        final PredicateEntry entry = entry(ids);
+        final InListStrategy strategy = options.resolve(entry);
+        final Object[] chunks = options.toBindValues(strategy, entry);
+        assertEquals(options.getParameterCount(strategy, entry.getValues()), chunks.length);
+        return Arrays.stream(chunks).map(chunk -> ((List<?>) chunk).size()).collect(Collectors.toList());
+    }
+
+    private static PredicateEntry entry(List<Long> ids) {
+        return new PredicateEntry(PredicateOperator.IN, Collections.emptyList(), null, Long.class, "id", ids.toArray());
+    }
+
+    private static List<Long> ids(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().collect(Collectors.toList());
+    }
+
+    private static String join(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
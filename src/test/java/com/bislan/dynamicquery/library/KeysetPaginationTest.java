@@ -0,0 +1,143 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestApplication.PurchaseOrderRepository;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class KeysetPaginationTest {
+
+    @Autowired
+    private PurchaseOrderRepository orders;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+    }
+
+    @Test
+    void legacyDatesRoundTrip() {
+        final List<Long> expected = LongStream.rangeClosed(1, TestData.ORDERS).map(id -> TestData.ORDERS + 1 - id)
+                .boxed().collect(Collectors.toList());
+
+        assertEquals(expected, forward(Sort.by(Sort.Direction.DESC, "updated"), 3));
+        assertEquals(expected, backward(Sort.by(Sort.Direction.DESC, "updated"), 3));
+    }
+
+    @Test
+    void nullsSortLastUnlessRequestedFirst() {
+        clear("created", 3, 6, 9);
+        final List<Long> nullsLast = new ArrayList<>();
+        LongStream.rangeClosed(1, TestData.ORDERS).filter(id -> id % 3 != 0 || id > 9).forEach(nullsLast::add);
+        nullsLast.addAll(List.of(3L, 6L, 9L));
+
+        assertEquals(nullsLast, forward(Sort.by("created"), 4));
+        assertEquals(nullsLast, backward(Sort.by("created"), 4));
+
+        final List<Long> nullsFirst = new ArrayList<>(nullsLast.subList(nullsLast.size() - 3, nullsLast.size()));
+        nullsFirst.addAll(nullsLast.subList(0, nullsLast.size() - 3));
+        final Sort sort = Sort.by(Sort.Order.asc("created").nullsFirst());
+        assertEquals(nullsFirst, forward(sort, 4));
+        assertEquals(nullsFirst, backward(sort, 4));
+    }
+
+    @Test
+    void nullAssociationsSortAsNullValues() {
+        clear("customer", 1, 2);
+        final Sort sort = Sort.by(Sort.Direction.DESC, "customer.name");
+        final List<Long> expected = orders.findAll(params(), sort.and(Sort.by("id"))).stream()
+                .filter(order -> order.getCustomer() != null).map(PurchaseOrder::getId).collect(Collectors.toList());
+        expected.addAll(List.of(1L, 2L));
+
+        assertEquals(expected, forward(sort, 3));
+        assertEquals(expected, backward(sort, 3));
+    }
+
+    @Test
+    void ignoreCaseSeeksLowerCasedValues() {
+        entityManager.createQuery("update PurchaseOrder set code = lower(code) where mod(id, 2) = 0").executeUpdate();
+        entityManager.clear();
+        final Sort sort = Sort.by(Sort.Order.asc("code").ignoreCase());
+        final List<Long> expected = orders.findAll(params()).stream()
+                .sorted(Comparator.comparing((PurchaseOrder order) -> order.getCode().toLowerCase()))
+                .map(PurchaseOrder::getId).collect(Collectors.toList());
+
+        assertEquals(expected, forward(sort, 3));
+        assertEquals(expected, backward(sort, 3));
+    }
+
+    @Test
+    void rejectsForeignCursors() {
+        final String cursor = orders.findKeyset(params(), Sort.by("created"), null, 2).getNextCursor();
+
+        assertThrows(RuntimeException.class, () -> orders.findKeyset(params(), Sort.by("code"), cursor.replace(".", ".x"), 2));
+        assertThrows(RuntimeException.class, () -> orders.findKeyset(params(), Sort.by("created").and(Sort.by("code")), cursor, 2));
+    }
+
+    private void clear(String property, long... ids) {
+        for (long id : ids) {
+            entityManager.createQuery("update PurchaseOrder set " + property + " = null where id = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+        }
+        entityManager.clear();
+    }
+
+    private List<Long> forward(Sort sort, int size) {
+        final List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        KeysetSlice<PurchaseOrder> slice;
+        do {
+            slice = orders.findKeyset(params(), sort, cursor, size);
+            slice.getContent().forEach(order -> ids.add(order.getId()));
+            cursor = slice.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    /**
+     * Walks to the last window, then back to the first through the previous cursors.
+     */
+    private List<Long> backward(Sort sort, int size) {
+        String cursor = null;
+        KeysetSlice<PurchaseOrder> slice;
+        do {
+            slice = orders.findKeyset(params(), sort, cursor, size);
+            cursor = slice.getNextCursor();
+        } while (cursor != null);
+        final List<List<Long>> windows = new ArrayList<>();
+        while (true) {
+            windows.add(slice.getContent().stream().map(PurchaseOrder::getId).collect(Collectors.toList()));
+            if (slice.getPreviousCursor() == null) {
+                break;
+            }
+            slice = orders.findKeyset(params(), sort, slice.getPreviousCursor(), size);
+        }
+        Collections.reverse(windows);
+        return windows.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,76 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestApplication.PurchaseOrderRepository;
+
+@SpringBootTest(classes = TestApplication.class, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ProjectionTest {
+
+    @Autowired
+    private PurchaseOrderRepository orders;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+    }
+
+    @Test
+    void selectsFieldsByPath() {
+        final List<Map<String, Object>> rows = orders.findFields(
+                params("amount", "lt(15)", QueryParameters.FieldsKey, "code,customer.name,customer.address.city"), Sort.by("id"));
+
+        assertEquals(List.of(
+                Map.of("code", "C1", "customer.name", "cust2", "customer.address.city", "Paris"),
+                Map.of("code", "C2", "customer.name", "cust3", "customer.address.city", "Rome")), rows);
+    }
+
+    @Test
+    void countsPagesWithoutTheJoinsOfTheFields() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        final Page<Map<String, Object>> page = orders.findFields(
+                params("amount", "gt(10)", QueryParameters.FieldsKey, "code,customer.name"), PageRequest.of(1, 5, Sort.by("id")));
+
+        assertEquals(18, page.getTotalElements());
+        assertEquals(List.of("C8", "C9", "C10", "C11", "C12"),
+                page.getContent().stream().map(row -> row.get("code")).collect(Collectors.toList()));
+        final List<String> counts = Stream.of(statistics.getQueries()).filter(query -> query.startsWith("select count"))
+                .collect(Collectors.toList());
+        assertEquals(1, counts.size(), counts.toString());
+        assertFalse(counts.get(0).contains("join"), counts.get(0));
+        assertFalse(counts.get(0).contains("distinct"), counts.get(0));
+        assertTrue(Stream.of(statistics.getQueries()).anyMatch(query -> query.contains("left join")));
+    }
+}
@@ -0,0 +1,99 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.metrics.QueryEvent;
+import com.bislan.dynamicquery.library.metrics.QueryListener;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class QueryBatchTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private DynamicQuerydslPredicateExecutor<PurchaseOrder> orders;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+        orders = new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public QueryListener getQueryListener() {
+                return new QueryListener() {
+                    @Override
+                    public void onQuery(QueryEvent event) {
+                        queries.incrementAndGet();
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    void combinesExactLookups() {
+        final List<Page<PurchaseOrder>> pages = orders.findBatch(List.of(
+                BatchRequest.of(params("amount", "eq(10)"), Sort.by("id")),
+                BatchRequest.of(params("amount", "in(15,5,10)"), Sort.by("id")),
+                BatchRequest.of(params("amount", "eq(10)"), Sort.by("id"))));
+
+        assertEquals(1, queries.get());
+        assertEquals(List.of(List.of(2L), List.of(1L, 2L, 3L), List.of(2L)), ids(pages));
+    }
+
+    @Test
+    void runsStringLookupsApart() {
+        final List<Page<PurchaseOrder>> pages = orders.findBatch(List.of(
+                BatchRequest.of(params("code", "eq(C1)")),
+                BatchRequest.of(params("code", "in(C2,C3)"), Sort.unsorted()),
+                BatchRequest.of(params("code", "eq( C1)"))));
+
+        assertEquals(3, queries.get());
+        assertEquals(List.of(List.of(1L), List.of(2L, 3L), List.of()), ids(pages));
+    }
+
+    @Test
+    void runsRequestsOfTheSameTextApart() {
+        // the second request has a single parameter whose value reads like the first one's two
+        final List<Page<PurchaseOrder>> pages = orders.findBatch(List.of(
+                BatchRequest.of(params("code", "eq(C1)", "customer.name", "eq(cust2)")),
+                BatchRequest.of(params("customer.name", "eq(cust2), code=eq(C1)"))));
+
+        assertEquals(2, queries.get());
+        assertEquals(List.of(List.of(1L), List.of()), ids(pages));
+    }
+
+    private static List<List<Long>> ids(List<Page<PurchaseOrder>> pages) {
+        return pages.stream()
+                .map(page -> page.getContent().stream().map(PurchaseOrder::getId).sorted().collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,144 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+/**
+ * The connections of these tests are repeatable read, so that a transaction of the default isolation is too.
+ */
+@SpringBootTest(classes = TestApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:coalescer;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.hikari.transaction-isolation=TRANSACTION_REPEATABLE_READ" })
+class QueryCoalescerTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private QueryCoalescer coalescer;
+
+    private DynamicQuerydslPredicateExecutor<PurchaseOrder> orders;
+
+    @BeforeEach
+    void executor() {
+        coalescer = new QueryCoalescer(Duration.ofSeconds(1));
+        orders = new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public QueryCoalescer getQueryCoalescer() {
+                return coalescer;
+            }
+        };
+    }
+
+    @Test
+    void coalescesOutsideOfTransactions() {
+        orders.findAll(params("amount", "gt(10)"), Sort.by("id"));
+
+        assertEquals(1, coalescer.getExecutionCount());
+    }
+
+    @Test
+    void coalescesReadCommittedReadOnlyTransactions() {
+        transaction(true, TransactionDefinition.ISOLATION_READ_COMMITTED)
+                .executeWithoutResult(status -> orders.findAll(params("amount", "gt(10)"), Sort.by("id")));
+
+        assertEquals(1, coalescer.getExecutionCount());
+    }
+
+    @Test
+    void resolvesTheDefaultIsolationFromTheConnection() {
+        transaction(true, TransactionDefinition.ISOLATION_DEFAULT)
+                .executeWithoutResult(status -> orders.findAll(params("amount", "gt(10)"), Sort.by("id")));
+
+        assertEquals(0, coalescer.getExecutionCount());
+    }
+
+    @Test
+    void runsWritingTransactionsApart() {
+        transaction(false, TransactionDefinition.ISOLATION_READ_COMMITTED)
+                .executeWithoutResult(status -> orders.findAll(params("amount", "gt(10)"), Sort.by("id")));
+
+        assertEquals(0, coalescer.getExecutionCount());
+    }
+
+    @Test
+    void sharesOnlyIdenticalQueries() throws Exception {
+        final ResultCache.Key twoParameters = ResultCache.keyOf(PurchaseOrder.class, "list",
+                params("code", "eq(y)", "name", "eq(x)"), Sort.unsorted(), null, Map.of());
+        final ResultCache.Key oneParameter = ResultCache.keyOf(PurchaseOrder.class, "list",
+                params("code", "eq(y), name=eq(x)"), Sort.unsorted(), null, Map.of());
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            final Future<List<Object>> first = pool.submit(() -> coalescer.execute(twoParameters, () -> {
+                running.countDown();
+                await(release);
+                return List.<Object>of(1L);
+            }, ResultCache.CachedResult::of, ResultCache.CachedResult::getValues));
+            await(running);
+
+            assertEquals(List.of(2L), coalescer.execute(oneParameter, () -> List.<Object>of(2L),
+                    ResultCache.CachedResult::of, ResultCache.CachedResult::getValues));
+            release.countDown();
+            assertEquals(List.of(1L), first.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(2, coalescer.getExecutionCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("The query did not start");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private TransactionTemplate transaction(boolean readOnly, int isolation) {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        transaction.setIsolationLevel(isolation);
+        return transaction;
+    }
+}
@@ -0,0 +1,70 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestApplication.PurchaseOrderRepository;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class QueryPlanTest {
+
+    @Autowired
+    private PurchaseOrderRepository orders;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+    }
+
+    @Test
+    void bindsLikeOperatorsToPlans() {
+        final long hits = QueryPlanCache.getInstance().getHitCount();
+
+        assertEquals(List.of("C1", "C10"), codes("code", "starts_with(C1)", "amount", "lt(55)"));
+        assertEquals(List.of("C1", "C10", "C11", "C12"), codes("code", "string_contains_ic(1)", "amount", "lt(65)"));
+        assertEquals(List.of("C2"), codes("code", "starts_with(C2)", "amount", "lt(30)"));
+        assertTrue(QueryPlanCache.getInstance().getHitCount() > hits);
+    }
+
+    @Test
+    void bindsMatchesAsLikeForm() {
+        assertEquals(11, orders.findAll(params("code", "matches(C1.*)")).size());
+        assertEquals(List.of("C2", "C20"), codes("code", "matches_ic(c2.*)"));
+        // a second shape hit binds the new value to the compiled plan
+        assertEquals(List.of("C3"), codes("code", "matches(C3.*)"));
+        assertEquals(List.of("C5"), codes("code", "matches_ic(c5.*)"));
+    }
+
+    @Test
+    void keepsTheExclamationMarkOfLikeIcLiteral() {
+        entityManager.find(PurchaseOrder.class, 1L).setCode("C!1");
+        entityManager.flush();
+
+        assertEquals(List.of("C!1"), codes("code", "like_ic(c!1)"));
+        // a second shape hit binds the new value to the compiled plan
+        assertEquals(List.of("C!1"), codes("code", "like_ic(c!%)"));
+        assertEquals(List.of(), codes("code", "like_ic(c1!)"));
+    }
+
+    private List<String> codes(String... filter) {
+        return orders.findAll(params(filter)).stream().map(PurchaseOrder::getCode).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,115 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestApplication.PurchaseOrderRepository;
+import com.bislan.dynamicquery.library.TestModel.Customer;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.TestModel.Tag;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class QueryStreamsTest {
+
+    @Autowired
+    private PurchaseOrderRepository orders;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+    }
+
+    @Test
+    void detachesRowsWithTheirEagerAssociations() {
+        final Tag tag = new Tag();
+        tag.setId(99L);
+        final List<Integer> managed = new ArrayList<>();
+        try (Stream<PurchaseOrder> rows = orders.streamAll(params(), Sort.by("id"))) {
+            rows.forEach(order -> {
+                assertTrue(entityManager.contains(order.getBilling()));
+                managed.add(managedEntities());
+                if (order.getId() == 1) {
+                    entityManager.persist(tag);
+                }
+            });
+        }
+
+        assertEquals(TestData.ORDERS, managed.size());
+        // the row and its billing customer, plus the tag the consumer persisted
+        assertEquals(2, (int) managed.get(0));
+        assertTrue(managed.stream().skip(1).allMatch(count -> count == 3), managed.toString());
+        assertTrue(entityManager.contains(tag));
+        assertEquals(1, managedEntities());
+    }
+
+    @Test
+    void keepsTheEntitiesManagedBeforeTheStream() {
+        final Customer billing = entityManager.find(Customer.class, 2L);
+        final List<Integer> managed = new ArrayList<>();
+        try (Stream<PurchaseOrder> rows = orders.streamAll(params("billing.name", "eq(cust2)"), Sort.by("id"))) {
+            rows.forEach(order -> {
+                assertSame(billing, order.getBilling());
+                managed.add(managedEntities());
+            });
+        }
+
+        // the row and the billing customer, which stays managed
+        assertEquals(7, managed.size());
+        assertTrue(managed.stream().allMatch(count -> count == 2), managed.toString());
+        assertTrue(entityManager.contains(billing));
+        assertEquals(1, managedEntities());
+    }
+
+    @Test
+    void detachesBatchesWithTheirEagerAssociations() {
+        final List<Integer> managed = new ArrayList<>();
+        orders.forEachBatch(params(), Sort.by("id"), 6, batch -> managed.add(managedEntities()));
+
+        // the rows of the batch and their billing customers
+        assertEquals(List.of(9, 9, 9, 4), managed);
+        assertEquals(0, managedEntities());
+    }
+
+    @Test
+    void clearsBatchesAtTheInterval() {
+        final List<Integer> managed = new ArrayList<>();
+        final List<PurchaseOrder> first = new ArrayList<>();
+        orders.forEachBatch(params(), Sort.by("id"), 4, batch -> {
+            managed.add(managedEntities());
+            if (first.isEmpty()) {
+                first.addAll(batch);
+            }
+        }, Map.of(DynamicQueryHints.CLEAR_INTERVAL, 10));
+
+        // the orders and the billing customers loaded since the last clear
+        assertEquals(List.of(7, 11, 15, 7, 11), managed);
+        assertFalse(entityManager.contains(first.get(0)));
+    }
+
+    private int managedEntities() {
+        return entityManager.unwrap(SharedSessionContractImplementor.class).getPersistenceContext().getNumberOfManagedEntities();
+    }
+}
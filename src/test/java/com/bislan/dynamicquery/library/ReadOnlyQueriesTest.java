@@ -0,0 +1,122 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestApplication.PurchaseOrderRepository;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class ReadOnlyQueriesTest {
+
+    private static final Map<String, Object> READ_ONLY = Map.of(DynamicQueryHints.READ_ONLY, true);
+    private static final Map<String, Object> STATELESS = Map.of(DynamicQueryHints.STATELESS, true);
+
+    @Autowired
+    private PurchaseOrderRepository orders;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+        entityManager.clear();
+    }
+
+    @Test
+    void loadsResultsReadOnly() {
+        final PurchaseOrder order = orders.findAll(params("id", "eq(1)"), READ_ONLY).get(0);
+        assertTrue(entityManager.unwrap(Session.class).isReadOnly(order));
+
+        order.setCode("X1");
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals("C1", entityManager.find(PurchaseOrder.class, 1L).getCode());
+    }
+
+    @Test
+    void loadsResultsReadOnlyByDefault() {
+        final DynamicQuerydslPredicateExecutor<PurchaseOrder> readOnly = new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public boolean isReadOnly() {
+                return true;
+            }
+        };
+
+        assertTrue(entityManager.unwrap(Session.class).isReadOnly(readOnly.findAll(params("id", "eq(1)")).get(0)));
+        entityManager.clear();
+        assertFalse(entityManager.unwrap(Session.class).isReadOnly(readOnly.findAll(params("id", "eq(1)"),
+                Map.of(DynamicQueryHints.READ_ONLY, false)).get(0)));
+    }
+
+    @Test
+    void seesPendingChangesOfWritingTransactions() {
+        entityManager.find(PurchaseOrder.class, 1L).setCode("X1");
+
+        assertEquals(List.of(1L), ids(orders.findAll(params("code", "eq(X1)"), READ_ONLY)));
+    }
+
+    @Test
+    void streamsStatelessRows() {
+        final PurchaseOrder managed = entityManager.find(PurchaseOrder.class, 17L);
+        final List<PurchaseOrder> rows;
+        try (Stream<PurchaseOrder> stream = orders.streamAll(params("amount", "gt(80)"), Sort.by("id"), STATELESS)) {
+            rows = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(List.of(17L, 18L, 19L, 20L), ids(rows));
+        // the rows are new instances, outside of the persistence context
+        assertTrue(rows.get(0) != managed);
+        assertTrue(rows.stream().noneMatch(entityManager::contains));
+        assertEquals("cust3", rows.get(0).getBilling().getName());
+        // only the order found before and its billing customer
+        assertEquals(2, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void batchesStatelessRows() {
+        final List<List<Long>> batches = new ArrayList<>();
+        orders.forEachBatch(params("amount", "gt(70)"), Sort.by("id"), 4, batch -> {
+            assertTrue(batch.stream().noneMatch(entityManager::contains));
+            batches.add(ids(batch));
+        }, STATELESS);
+
+        assertEquals(List.of(List.of(15L, 16L, 17L, 18L), List.of(19L, 20L)), batches);
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    private static List<Long> ids(List<PurchaseOrder> orders) {
+        return orders.stream().map(PurchaseOrder::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,162 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+/**
+ * Two replica databases hold orders of their own, 101 to 103 and 201 to 203, so that the ids of the results tell
+ * which database a call read. The rows of the primary are committed, for the calls that run on other entity managers.
+ */
+@SpringBootTest(classes = TestApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+class ReadReplicasTest {
+
+    private static final Map<String, Object> REPLICA = Map.of(DynamicQueryHints.REPLICA, true);
+
+    private static EntityManagerFactory replica1;
+    private static EntityManagerFactory replica2;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @BeforeAll
+    static void replicas() {
+        replica1 = replica("replica1", 100);
+        replica2 = replica("replica2", 200);
+    }
+
+    @AfterAll
+    static void close() {
+        replica1.close();
+        replica2.close();
+    }
+
+    @BeforeEach
+    void data() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> TestData.persist(entityManager));
+    }
+
+    @AfterEach
+    void delete() {
+        transaction.executeWithoutResult(status -> TestData.delete(entityManager));
+    }
+
+    @Test
+    void routesCallsThatAllowIt() {
+        final DynamicQuerydslPredicateExecutor<PurchaseOrder> orders = executor(ReadReplicas.of(replica1));
+
+        assertEquals(0, database(orders.findAll(params(), Sort.by("id"))));
+        assertEquals(1, database(orders.findAll(params(), Sort.by("id"), REPLICA)));
+        assertEquals(3, orders.count(params(), REPLICA));
+        assertEquals(0, database(orders.findAll(params(), Sort.by("id"), Map.of(DynamicQueryHints.REPLICA, false))));
+    }
+
+    @Test
+    void readsOwnWritesOnThePrimary() {
+        final DynamicQuerydslPredicateExecutor<PurchaseOrder> orders = executor(ReadReplicas.of(replica1));
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        assertEquals(0, database(transaction.execute(status -> orders.findAll(params(), Sort.by("id"), REPLICA))));
+        assertEquals(1, database(readOnly.execute(status -> orders.findAll(params(), Sort.by("id"), REPLICA))));
+    }
+
+    @Test
+    void skipsLaggingReplicas() {
+        final DynamicQuerydslPredicateExecutor<PurchaseOrder> orders = executor(ReadReplicas.of(replica1, replica2)
+                .withLag(replica -> replica == replica1 ? Duration.ofSeconds(10) : Duration.ZERO));
+        final Map<String, Object> fresh = Map.of(DynamicQueryHints.REPLICA, Duration.ofSeconds(1));
+
+        assertEquals(2, database(orders.findAll(params(), Sort.by("id"), fresh)));
+        assertEquals(2, database(orders.findAll(params(), Sort.by("id"), fresh)));
+        assertEquals(0, database(executor(ReadReplicas.of(replica1).withLag(replica -> Duration.ofSeconds(10)))
+                .findAll(params(), Sort.by("id"), fresh)));
+    }
+
+    @Test
+    void routesAsyncQueries() throws Exception {
+        final AsyncQueryExecutor<PurchaseOrder> orders = AsyncQueryExecutor.of(executor(ReadReplicas.of(replica1)));
+
+        assertEquals(1, database(orders.findAll(params(), Sort.by("id"), REPLICA).get(10, TimeUnit.SECONDS)));
+    }
+
+    private DynamicQuerydslPredicateExecutor<PurchaseOrder> executor(ReadReplicas replicas) {
+        return new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public ReadReplicas getReadReplicas() {
+                return replicas;
+            }
+        };
+    }
+
+    /**
+     * 0 for the primary, else the number of the replica the orders come from.
+     */
+    private static long database(List<PurchaseOrder> orders) {
+        return orders.get(0).getId() / 100;
+    }
+
+    private static EntityManagerFactory replica(String name, long firstId) {
+        final LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE", "sa", ""));
+        factory.setPackagesToScan(TestModel.class.getPackageName());
+        final HibernateJpaVendorAdapter vendor = new HibernateJpaVendorAdapter();
+        vendor.setGenerateDdl(true);
+        factory.setJpaVendorAdapter(vendor);
+        factory.setPersistenceUnitName(name);
+        factory.afterPropertiesSet();
+        final EntityManagerFactory replica = factory.getObject();
+        final EntityManager entityManager = replica.createEntityManager();
+        entityManager.getTransaction().begin();
+        for (long id = firstId + 1; id <= firstId + 3; id++) {
+            final PurchaseOrder order = new PurchaseOrder();
+            order.setId(id);
+            order.setCode("R" + id);
+            order.setAmount((int) id);
+            entityManager.persist(order);
+        }
+        entityManager.getTransaction().commit();
+        entityManager.close();
+        return replica;
+    }
+}
@@ -0,0 +1,149 @@
+package com.bislan.dynamicquery.library;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bislan.dynamicquery.library.TestModel.Customer;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.TestModel.Tag;
+
+/**
+ * Invalidation needs committed writes, so the rows are committed to a database of this test.
+ */
+@SpringBootTest(classes = TestApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:cache;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+class ResultCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // registered once, the listeners stay on the entity manager factory of the context
+    private static ResultCache cache;
+
+    private DynamicQuerydslPredicateExecutor<PurchaseOrder> orders;
+
+    @BeforeEach
+    void data() {
+        transaction.executeWithoutResult(status -> TestData.persist(entityManager));
+        if (cache == null) {
+            cache = new ResultCache(100, Duration.ofMinutes(1)).register(entityManagerFactory);
+        }
+        cache.clear();
+        orders = new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public ResultCache getResultCache() {
+                return cache;
+            }
+        };
+    }
+
+    @AfterEach
+    void delete() {
+        transaction.executeWithoutResult(status -> TestData.delete(entityManager));
+    }
+
+    @Test
+    void sortPathsInvalidate() {
+        final Sort sort = Sort.by("customer.name").and(Sort.by("id"));
+        assertEquals(3L, orders.findAll(params(), sort).get(0).getId());
+        assertEquals(3L, orders.findAll(params(), PageRequest.of(0, 5, sort)).getContent().get(0).getId());
+        assertEquals(2, cache.size());
+
+        transaction.executeWithoutResult(status -> entityManager.find(Customer.class, 1L).setName("z"));
+
+        assertEquals(0, cache.size());
+        assertEquals(1L, orders.findAll(params(), sort).get(0).getId());
+    }
+
+    @Test
+    void keysCompareParametersAsValues() {
+        final ResultCache.Key twoParameters = ResultCache.keyOf(PurchaseOrder.class, "list",
+                params("code", "eq(y)", "name", "eq(x)"), Sort.unsorted(), null, Map.of());
+        final ResultCache.Key oneParameter = ResultCache.keyOf(PurchaseOrder.class, "list",
+                params("code", "eq(y), name=eq(x)"), Sort.unsorted(), null, Map.of());
+
+        assertNotEquals(twoParameters, oneParameter);
+        assertEquals(twoParameters, ResultCache.keyOf(PurchaseOrder.class, "list",
+                params("name", "eq(x)", "code", "eq(y)"), Sort.unsorted(), null, Map.of()));
+    }
+
+    @Test
+    void writingTransactionsBypassTheCache() {
+        assertEquals(List.of(1L), ids(orders.findAll(params("code", "eq(C1)"))));
+        assertEquals(1, cache.size());
+
+        transaction.executeWithoutResult(status -> {
+            entityManager.find(PurchaseOrder.class, 2L).setCode("C1");
+            // reads its own write rather than the cached result, and keeps its results out of the cache
+            assertEquals(List.of(1L, 2L), ids(orders.findAll(params("code", "eq(C1)"))).stream().sorted()
+                    .collect(Collectors.toList()));
+            assertEquals(List.of(2L), ids(orders.findAll(params("amount", "eq(10)"))));
+            assertEquals(1, cache.size());
+            status.setRollbackOnly();
+        });
+
+        // the rolled back write invalidates as well
+        assertEquals(0, cache.size());
+        assertEquals(List.of(1L), ids(orders.findAll(params("code", "eq(C1)"))));
+        assertEquals(1, cache.size());
+        final TransactionTemplate readOnly = new TransactionTemplate(transaction.getTransactionManager());
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> orders.findAll(params("amount", "eq(10)")));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void collectionChangesInvalidateOnCommit() {
+        assertEquals(10, orders.findAll(params("tags.name", "eq(even)")).size());
+        assertEquals(1, cache.size());
+
+        transaction.executeWithoutResult(status -> {
+            entityManager.find(PurchaseOrder.class, 1L).getTags().add(entityManager.find(Tag.class, 1L));
+            entityManager.flush();
+            // still cached until the commit, so that no other transaction reads the change before it is visible
+            assertEquals(1, cache.size());
+        });
+
+        assertEquals(0, cache.size());
+        assertEquals(List.of(1L), ids(orders.findAll(params("tags.name", "eq(even)", "id", "lt(2)"))));
+        assertEquals(11, orders.findAll(params("tags.name", "eq(even)")).size());
+    }
+
+    private static List<Long> ids(List<PurchaseOrder> orders) {
+        return orders.stream().map(PurchaseOrder::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,33 @@
+package com.bislan.dynamicquery.library;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.stereotype.Repository;
+
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+/**
+ * The application the tests run against, over an embedded H2 database configured by {@code application.properties}.
+ */
+@SpringBootApplication
+public class TestApplication {
+
+    @Repository
+    public static class PurchaseOrderRepository implements DynamicQuerydslPredicateExecutor<PurchaseOrder> {
+
+        @PersistenceContext
+        private EntityManager entityManager;
+
+        @Override
+        public EntityManager getEntityManager() {
+            return entityManager;
+        }
+
+        @Override
+        public Class<PurchaseOrder> getEntityClass() {
+            return PurchaseOrder.class;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.bislan.dynamicquery.library;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+
+import com.bislan.dynamicquery.library.TestModel.Address;
+import com.bislan.dynamicquery.library.TestModel.Customer;
+import com.bislan.dynamicquery.library.TestModel.OrderLine;
+import com.bislan.dynamicquery.library.TestModel.Product;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.TestModel.Status;
+import com.bislan.dynamicquery.library.TestModel.Tag;
+
+/**
+ * The rows of the tests. Order {@code n}, for {@code n} from 1 to 20, has the code {@code Cn}, the amount {@code 5n},
+ * the status {@code NEW}, {@code PAID} or {@code SHIPPED} by {@code n % 3}, the creation date {@code 2024-01-01} plus
+ * {@code n} days, the update time {@link #UPDATED} plus {@code n * 1001} ms, the customer and billing customer {@code n % 3 + 1} and
+ * {@code n % 3} lines of quantities 1 and 2 on products 1 and 2. Customers 1 and 3 live in Rome, customer 2 in Paris.
+ * Even orders are tagged {@code even}, every fifth is urgent and the reference of each is {@link #reference}.
+ */
+public final class TestData {
+
+    public static final int ORDERS = 20;
+    // 2024-01-01T00:00:00Z
+    public static final long UPDATED = 1704067200000L;
+
+    private TestData() {
+    }
+
+    public static void persist(EntityManager entityManager) {
+        for (long id = 1; id <= 3; id++) {
+            final Customer customer = new Customer();
+            customer.setId(id);
+            customer.setName("cust" + id);
+            final Address address = new Address();
+            address.setCity(id == 2 ? "Paris" : "Rome");
+            address.setCountry(id == 2 ? "FR" : "IT");
+            customer.setAddress(address);
+            entityManager.persist(customer);
+        }
+        for (long id = 1; id <= 4; id++) {
+            final Product product = new Product();
+            product.setId(id);
+            product.setName("prod" + id);
+            entityManager.persist(product);
+        }
+        final Tag even = new Tag();
+        even.setId(1L);
+        even.setName("even");
+        entityManager.persist(even);
+        long lineId = 1;
+        for (long id = 1; id <= ORDERS; id++) {
+            final PurchaseOrder order = new PurchaseOrder();
+            order.setId(id);
+            order.setCode("C" + id);
+            order.setStatus(Status.values()[(int) (id % 3)]);
+            order.setAmount((int) id * 5);
+            order.setCreated(LocalDate.of(2024, 1, 1).plusDays(id));
+            order.setUpdated(new Date(UPDATED + id * 1001));
+            order.setCustomer(entityManager.find(Customer.class, id % 3 + 1));
+            order.setBilling(order.getCustomer());
+            order.setReference(reference(id));
+            order.setUrgent(id % 5 == 0);
+            if (id % 2 == 0) {
+                order.getTags().add(even);
+            }
+            entityManager.persist(order);
+            for (int n = 0; n < id % 3; n++) {
+                final OrderLine line = new OrderLine();
+                line.setId(lineId++);
+                line.setQty(n + 1);
+                line.setOrder(order);
+                line.setProduct(entityManager.find(Product.class, (long) n + 1));
+                entityManager.persist(line);
+                order.getLines().add(line);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Deletes the rows of {@link #persist}, for tests that commit them.
+     */
+    public static void delete(EntityManager entityManager) {
+        entityManager.createQuery("delete from OrderLine").executeUpdate();
+        entityManager.createNativeQuery("delete from purchase_order_tags").executeUpdate();
+        entityManager.createQuery("delete from PurchaseOrder").executeUpdate();
+        entityManager.createQuery("delete from Tag").executeUpdate();
+        entityManager.createQuery("delete from Product").executeUpdate();
+        entityManager.createQuery("delete from Customer").executeUpdate();
+    }
+
+    public static UUID reference(long id) {
+        return UUID.nameUUIDFromBytes(("order" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The parameters of alternating keys and values.
+     */
+    public static QueryParameters params(String... keysAndValues) {
+        final Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            params.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return new QueryParameters(params);
+    }
+}
@@ -0,0 +1,319 @@
+package com.bislan.dynamicquery.library;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Converter;
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * The entities of the tests: orders with a lazy customer, an eager billing customer, lines and tags, lines with a
+ * product. Orders also have a UUID and a flag stored by an attribute converter.
+ */
+public class TestModel {
+
+    public enum Status {
+        NEW, PAID, SHIPPED, CANCELLED
+    }
+
+    /**
+     * Stores a flag as {@code Y} or {@code N}.
+     */
+    @Converter
+    public static class YesNoConverter implements AttributeConverter<Boolean, String> {
+        @Override
+        public String convertToDatabaseColumn(Boolean attribute) {
+            return attribute == null ? null : attribute ? "Y" : "N";
+        }
+
+        @Override
+        public Boolean convertToEntityAttribute(String dbData) {
+            return dbData == null ? null : "Y".equals(dbData);
+        }
+    }
+
+    @Embeddable
+    public static class Address {
+        private String city;
+        private String country;
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        public void setCountry(String country) {
+            this.country = country;
+        }
+    }
+
+    @Entity(name = "Customer")
+    public static class Customer {
+        @Id
+        private Long id;
+        private String name;
+        @Embedded
+        private Address address;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+
+    @Entity(name = "Product")
+    public static class Product {
+        @Id
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Entity(name = "Tag")
+    public static class Tag {
+        @Id
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Entity(name = "PurchaseOrder")
+    public static class PurchaseOrder {
+        @Id
+        private Long id;
+        private String code;
+        @Enumerated(EnumType.STRING)
+        private Status status;
+        private Integer amount;
+        private LocalDate created;
+        @Temporal(TemporalType.TIMESTAMP)
+        private Date updated;
+        @Column(length = 16)
+        private UUID reference;
+        @Convert(converter = YesNoConverter.class)
+        @Column(length = 1)
+        private Boolean urgent;
+        @ManyToOne(fetch = FetchType.LAZY)
+        private Customer customer;
+        @ManyToOne
+        private Customer billing;
+        @OneToMany(mappedBy = "order")
+        private List<OrderLine> lines = new ArrayList<>();
+        @ManyToMany
+        private Set<Tag> tags = new HashSet<>();
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public Integer getAmount() {
+            return amount;
+        }
+
+        public void setAmount(Integer amount) {
+            this.amount = amount;
+        }
+
+        public LocalDate getCreated() {
+            return created;
+        }
+
+        public void setCreated(LocalDate created) {
+            this.created = created;
+        }
+
+        public Date getUpdated() {
+            return updated;
+        }
+
+        public void setUpdated(Date updated) {
+            this.updated = updated;
+        }
+
+        public UUID getReference() {
+            return reference;
+        }
+
+        public void setReference(UUID reference) {
+            this.reference = reference;
+        }
+
+        public Boolean getUrgent() {
+            return urgent;
+        }
+
+        public void setUrgent(Boolean urgent) {
+            this.urgent = urgent;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(Customer customer) {
+            this.customer = customer;
+        }
+
+        public Customer getBilling() {
+            return billing;
+        }
+
+        public void setBilling(Customer billing) {
+            this.billing = billing;
+        }
+
+        public List<OrderLine> getLines() {
+            return lines;
+        }
+
+        public void setLines(List<OrderLine> lines) {
+            this.lines = lines;
+        }
+
+        public Set<Tag> getTags() {
+            return tags;
+        }
+
+        public void setTags(Set<Tag> tags) {
+            this.tags = tags;
+        }
+    }
+
+    @Entity(name = "OrderLine")
+    public static class OrderLine {
+        @Id
+        private Long id;
+        private Integer qty;
+        @ManyToOne(fetch = FetchType.LAZY)
+        private PurchaseOrder order;
+        @ManyToOne(fetch = FetchType.LAZY)
+        private Product product;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Integer getQty() {
+            return qty;
+        }
+
+        public void setQty(Integer qty) {
+            this.qty = qty;
+        }
+
+        public PurchaseOrder getOrder() {
+            return order;
+        }
+
+        public void setOrder(PurchaseOrder order) {
+            this.order = order;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public void setProduct(Product product) {
+            this.product = product;
+        }
+    }
+}
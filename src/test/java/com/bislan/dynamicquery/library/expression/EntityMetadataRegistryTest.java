@@ -0,0 +1,50 @@
+package com.bislan.dynamicquery.library.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.bislan.dynamicquery.library.TestApplication;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.expression.operator.RelationType;
+
+@SpringBootTest(classes = TestApplication.class)
+class EntityMetadataRegistryTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void clear() {
+        EntityMetadataRegistry.clear();
+    }
+
+    @Test
+    void metamodelReplacesIntrospectedType() {
+        EntityMetadataRegistry.clear();
+        final EntityMetadata introspected = EntityMetadataRegistry.get(PurchaseOrder.class);
+
+        final EntityMetadata seeded = EntityMetadataRegistry.get(PurchaseOrder.class, entityManagerFactory::getMetamodel);
+
+        assertNotSame(introspected, seeded);
+        assertSame(seeded, EntityMetadataRegistry.get(PurchaseOrder.class, entityManagerFactory::getMetamodel));
+        assertEquals(RelationType.COLLECTION, seeded.getProperty("tags").getRelationType());
+        assertEquals("id", seeded.getId().getName());
+    }
+
+    @Test
+    void sameMappingFromAnotherMetamodelIsKept() {
+        final EntityMetadata seeded = EntityMetadataRegistry.get(PurchaseOrder.class, entityManagerFactory::getMetamodel);
+
+        EntityMetadataRegistry.register(entityManagerFactory.getMetamodel());
+
+        assertSame(seeded, EntityMetadataRegistry.get(PurchaseOrder.class));
+    }
+}
@@ -0,0 +1,115 @@
+package com.bislan.dynamicquery.library.expression;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.DynamicQuerydslPredicateExecutor;
+import com.bislan.dynamicquery.library.TestApplication;
+import com.bislan.dynamicquery.library.TestData;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.metrics.QueryEvent;
+import com.bislan.dynamicquery.library.metrics.QueryListener;
+import com.bislan.dynamicquery.library.metrics.QueryPhase;
+
+/**
+ * A path is repeated with a trailing space, which the parser ignores.
+ */
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class PredicateRewriteTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void intersectsRanges() {
+        assertEquals("amount BETWEEN[10, 20]", rewrite(PredicateRewrite.INTERSECT_RANGES,
+                "amount", "gt(5)", "amount ", "goe(10)", "amount  ", "between(0,20)"));
+        assertEquals("amount GT[10], amount LT[20]", rewrite(PredicateRewrite.INTERSECT_RANGES,
+                "amount", "gt(10)", "amount ", "lt(20)", "amount  ", "loe(30)"));
+        assertEquals("amount EQ[10]", rewrite(PredicateRewrite.INTERSECT_RANGES, "amount", "goe(10)", "amount ", "loe(10)"));
+        assertEquals("amount IN[12, 15]", rewrite(PredicateRewrite.INTERSECT_RANGES,
+                "amount", "in(5,12,15,30)", "amount ", "between(10,20)"));
+        // strings compare by the collation of the database
+        assertEquals("code GT[b], code LT[a]", rewrite(PredicateRewrite.INTERSECT_RANGES, "code", "gt(b)", "code ", "lt(a)"));
+    }
+
+    @Test
+    void resolvesNullChecks() {
+        assertEquals("amount GT[3]", rewrite(PredicateRewrite.RESOLVE_NULL_CHECKS, "amount", "is_not_null()", "amount ", "gt(3)"));
+        assertEquals("amount IS_NULL[], amount IS_NOT_NULL[]", rewrite(PredicateRewrite.RESOLVE_NULL_CHECKS,
+                "amount", "is_null()", "amount ", "is_not_null()", "EXPR_TYPE", "ANYOF"));
+        assertEquals("none", rewrite(PredicateRewrite.RESOLVE_NULL_CHECKS, "amount", "is_null()", "amount ", "gt(3)"));
+    }
+
+    @Test
+    void mergesEqualities() {
+        assertEquals("amount IN[5, 6, 7]", rewrite(PredicateRewrite.MERGE_EQUALITIES,
+                "amount", "eq(5)", "amount ", "in(6,7,5)", "EXPR_TYPE", "ANYOF"));
+        assertEquals("amount EQ[6]", rewrite(PredicateRewrite.MERGE_EQUALITIES, "amount", "in(5,6)", "amount ", "in(6,7)"));
+        assertEquals("code EQ[a], code EQ[A]", rewrite(PredicateRewrite.MERGE_EQUALITIES, "code", "eq(a)", "code ", "eq(A)"));
+        assertEquals("none", rewrite(PredicateRewrite.MERGE_EQUALITIES, "amount", "eq(5)", "amount ", "ne(5)"));
+    }
+
+    @Test
+    void unsatisfiableFiltersRunNoQuery() {
+        TestData.persist(entityManager);
+        final List<QueryPhase> phases = new ArrayList<>();
+        final DynamicQuerydslPredicateExecutor<PurchaseOrder> orders = new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public QueryListener getQueryListener() {
+                return new QueryListener() {
+                    @Override
+                    public void onPhase(QueryEvent event) {
+                        phases.add(event.getPhase());
+                    }
+                };
+            }
+        };
+
+        assertTrue(orders.findAll(params("amount", "gt(50)", "amount ", "lt(20)", "customer.name", "eq(cust1)")).isEmpty());
+        assertEquals(0, orders.findAll(params("amount", "eq(5)", "amount ", "eq(10)"), PageRequest.of(1, 5)).getTotalElements());
+        assertTrue(orders.findOne(params("status", "is_null()", "status ", "eq(PAID)")).isEmpty());
+        assertFalse(phases.contains(QueryPhase.EXECUTE));
+        assertFalse(phases.contains(QueryPhase.COUNT));
+
+        assertEquals(1, orders.findAll(params("amount", "in(5,10,15)", "amount ", "gt(12)")).size());
+        assertTrue(phases.contains(QueryPhase.EXECUTE));
+    }
+
+    private static String rewrite(PredicateRewrite rewrite, String... params) {
+        final ExpressionEntries entries = rewrite.apply(
+                ExpressionFactory.createFromParams(PurchaseOrder.class, params(params).getParameters()));
+        if (entries.isUnsatisfiable()) {
+            return "none";
+        }
+        return entries.getPredicates().stream()
+                .map(entry -> entry.getPropertyPath() + " " + entry.getOp() + Arrays.toString(entry.getValues()))
+                .collect(Collectors.joining(", "));
+    }
+}
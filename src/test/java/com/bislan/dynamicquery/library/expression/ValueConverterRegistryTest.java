@@ -0,0 +1,75 @@
+package com.bislan.dynamicquery.library.expression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import com.bislan.dynamicquery.library.TestModel.Status;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+class ValueConverterRegistryTest {
+
+    enum Priority {
+        @JsonProperty("lo") LOW,
+        @JsonProperty("hi") HIGH
+    }
+
+    enum Level {
+        DEBUG("d"), INFO("i");
+
+        private final String code;
+
+        Level(String code) {
+            this.code = code;
+        }
+
+        @JsonValue
+        String getCode() {
+            return code;
+        }
+    }
+
+    static final class Marker {
+        private final String value;
+
+        Marker(String value) {
+            this.value = value;
+        }
+    }
+
+    @Test
+    void parsesEnumNames() {
+        assertEquals(Status.PAID, ValueConverterRegistry.get(Status.class).apply("PAID"));
+        assertThrows(RuntimeException.class, () -> ValueConverterRegistry.get(Status.class).apply("paid"));
+    }
+
+    @Test
+    void parsesJacksonEnumValues() {
+        assertEquals(Priority.HIGH, ValueConverterRegistry.get(Priority.class).apply("hi"));
+        assertEquals(Priority.LOW, ValueConverterRegistry.get(Priority.class).apply("LOW"));
+        assertEquals(Level.INFO, ValueConverterRegistry.get(Level.class).apply("i"));
+        assertThrows(RuntimeException.class, () -> ValueConverterRegistry.get(Level.class).apply("x"));
+    }
+
+    @Test
+    void registrationReplacesResolvedConverter() {
+        final List<CompletableFuture<Void>> lookups = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            lookups.add(CompletableFuture.runAsync(() -> {
+                for (int n = 0; n < 1000; n++) {
+                    ValueConverterRegistry.get(Marker.class);
+                }
+            }));
+        }
+        ValueConverterRegistry.register(Marker.class, Marker::new);
+        lookups.forEach(CompletableFuture::join);
+
+        assertEquals("m", ((Marker) ValueConverterRegistry.get(Marker.class).apply("m")).value);
+    }
+}
@@ -0,0 +1,80 @@
+package com.bislan.dynamicquery.library.memory;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.TestApplication;
+import com.bislan.dynamicquery.library.TestApplication.PurchaseOrderRepository;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.expression.ExpressionFactory;
+
+/**
+ * The compiled predicates are checked against the query of the same filters.
+ */
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class InMemoryPredicatesTest {
+
+    private static final List<String> CODES = List.of("50%", "50_off", "5#0", "Q!1", "q!1", "Qx1");
+
+    @Autowired
+    private PurchaseOrderRepository orders;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void data() {
+        for (int i = 0; i < CODES.size(); i++) {
+            final PurchaseOrder order = new PurchaseOrder();
+            order.setId(i + 1L);
+            order.setCode(CODES.get(i));
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void likeEscapeUsesItsEscapeCharacter() {
+        assertEquals(List.of("50%"), matching("code", "like_escape(50#%,#)"));
+        assertEquals(List.of("5#0"), matching("code", "like_escape(5##0,#)"));
+        assertEquals(List.of("50_off"), matching("code", "like_escape(50$_%,$)"));
+        // like escapes with !
+        assertEquals(List.of("50_off"), matching("code", "like(50!_%)"));
+    }
+
+    @Test
+    void ignoreCaseKeepsQuotedCharacters() {
+        // like_ic has no escape
+        assertEquals(List.of("Q!1", "q!1"), matching("code", "like_ic(q!1)"));
+        assertEquals(List.of(), matching("code", "like_ic(q!!1)"));
+        assertEquals(List.of("Q!1", "q!1"), matching("code", "like_escape_ic(q!1,#)"));
+        assertEquals(List.of("Q!1", "Qx1", "q!1"), matching("code", "like_escape_ic(Q_1,#)"));
+    }
+
+    /**
+     * The codes the compiled predicate matches, after asserting that the database finds the same.
+     */
+    private List<String> matching(String... filter) {
+        final Predicate<PurchaseOrder> predicate = InMemoryPredicates.compile(PurchaseOrder.class,
+                ExpressionFactory.createFromParams(PurchaseOrder.class, params(filter).getParameters()));
+        final List<String> matched = orders.findAll(params()).stream().filter(predicate).map(PurchaseOrder::getCode)
+                .sorted().collect(Collectors.toList());
+        assertEquals(matched, orders.findAll(params(filter)).stream().map(PurchaseOrder::getCode).sorted()
+                .collect(Collectors.toList()));
+        return matched;
+    }
+}
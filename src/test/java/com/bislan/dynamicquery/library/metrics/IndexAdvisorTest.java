@@ -0,0 +1,85 @@
+package com.bislan.dynamicquery.library.metrics;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.DynamicQuerydslPredicateExecutor;
+import com.bislan.dynamicquery.library.TestApplication;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class IndexAdvisorTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final IndexAdvisor advisor = new IndexAdvisor();
+
+    private DynamicQuerydslPredicateExecutor<PurchaseOrder> orders;
+
+    @BeforeEach
+    void executor() {
+        orders = new DynamicQuerydslPredicateExecutor<>() {
+            @Override
+            public EntityManager getEntityManager() {
+                return entityManager;
+            }
+
+            @Override
+            public Class<PurchaseOrder> getEntityClass() {
+                return PurchaseOrder.class;
+            }
+
+            @Override
+            public QueryListener getQueryListener() {
+                return advisor;
+            }
+        };
+    }
+
+    @Test
+    void leadingWildcardIsUnindexable() {
+        orders.findAll(params("code", "like(C1%)"));
+        orders.findAll(params("status", "eq(PAID)", "code", "like(%1)"));
+
+        final IndexAdvice prefix = advice("code:LIKE");
+        assertEquals(List.of("code"), prefix.getSuggestedColumns());
+        assertEquals(List.of(), prefix.getUnindexableFilters());
+        final IndexAdvice infix = advice("code:LIKE(%...),status:EQ");
+        assertEquals(List.of("status"), infix.getSuggestedColumns());
+        assertEquals(List.of("code:LIKE(%...)"), infix.getUnindexableFilters());
+    }
+
+    @Test
+    void keepsEveryOperatorOfAPath() {
+        orders.findAll(params("code", "eq(C1)", "code ", "like(%1)"));
+
+        final IndexAdvice advice = advice("code:EQ,code:LIKE(%...)");
+        assertEquals(List.of("code"), advice.getSuggestedColumns());
+        assertEquals(List.of("code:LIKE(%...)"), advice.getUnindexableFilters());
+    }
+
+    private IndexAdvice advice(String shape) {
+        final List<IndexAdvice> report = advisor.report(entityManagerFactory);
+        return report.stream()
+                .filter(advice -> advice.getShape().equals(shape))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(shape + " not in " + report));
+    }
+}
@@ -0,0 +1,180 @@
+package com.bislan.dynamicquery.library.metrics;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.DynamicQuerydslPredicateExecutor;
+import com.bislan.dynamicquery.library.TestApplication;
+import com.bislan.dynamicquery.library.TestData;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class QueryListenerTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final List<QueryEvent> phases = new ArrayList<>();
+    private final List<QueryEvent> queries = new ArrayList<>();
+
+    private final ListAppender<ILoggingEvent> slowQueries = new ListAppender<>();
+
+    private QueryListener listener = new QueryListener() {
+        @Override
+        public void onPhase(QueryEvent event) {
+            phases.add(event);
+        }
+
+        @Override
+        public void onQuery(QueryEvent event) {
+            queries.add(event);
+        }
+    };
+
+    private final DynamicQuerydslPredicateExecutor<PurchaseOrder> orders = new DynamicQuerydslPredicateExecutor<>() {
+        @Override
+        public EntityManager getEntityManager() {
+            return entityManager;
+        }
+
+        @Override
+        public Class<PurchaseOrder> getEntityClass() {
+            return PurchaseOrder.class;
+        }
+
+        @Override
+        public QueryListener getQueryListener() {
+            return listener;
+        }
+    };
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+        slowQueries.start();
+        ((Logger) LoggerFactory.getLogger(SlowQueryLogger.class)).addAppender(slowQueries);
+    }
+
+    @AfterEach
+    void detach() {
+        ((Logger) LoggerFactory.getLogger(SlowQueryLogger.class)).detachAppender(slowQueries);
+    }
+
+    @Test
+    void reportsEachPhaseAndTheQuery() {
+        final Page<PurchaseOrder> page = orders.findAll(params("amount", "gt(50)"), PageRequest.of(0, 5, Sort.by("id")));
+
+        assertEquals(10, page.getTotalElements());
+        assertEquals(List.of(QueryPhase.PARSE, QueryPhase.BUILD, QueryPhase.EXECUTE, QueryPhase.COUNT),
+                phases.stream().map(QueryEvent::getPhase).collect(Collectors.toList()));
+        assertEquals(5, phases.get(2).getRows());
+        assertEquals(1, queries.size());
+        final QueryEvent query = queries.get(0);
+        assertNull(query.getPhase());
+        assertEquals(PurchaseOrder.class, query.getEntityType());
+        assertEquals(5, query.getRows());
+        assertEquals(Sort.by("id"), query.getSort());
+        assertNotNull(query.getFilters());
+        assertFalse(query.getShape().isEmpty());
+        assertFalse(query.getShape().contains("50"), query.getShape());
+        assertTrue(phases.stream().allMatch(phase -> phase.getShape().equals(query.getShape())));
+        // the query covers its phases
+        assertTrue(query.getDurationNanos() >= phases.stream().mapToLong(QueryEvent::getDurationNanos).sum());
+    }
+
+    @Test
+    void recordsTimersAndRowSummaries() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        listener = new MicrometerQueryListener(registry);
+
+        orders.findAll(params("amount", "gt(50)"));
+        orders.findAll(params("amount", "gt(60)"));
+        try (Stream<PurchaseOrder> rows = orders.streamAll(params("amount", "gt(70)"), Sort.by("id"))) {
+            assertEquals(6, rows.count());
+        }
+
+        // the three calls have the same shape, so they share their meters
+        assertEquals(3, registry.get("dynamicquery.query").tag("entity", "PurchaseOrder").timer().count());
+        assertEquals(3, registry.get("dynamicquery.phase").tag("phase", "parse").timer().count());
+        assertEquals(3, registry.get("dynamicquery.phase").tag("phase", "build").timer().count());
+        assertEquals(3, registry.get("dynamicquery.phase").tag("phase", "execute").timer().count());
+        assertTrue(registry.find("dynamicquery.phase").tag("phase", "count").timers().isEmpty());
+        // the rows of a stream are not known
+        assertEquals(2, registry.get("dynamicquery.rows").summary().count());
+        assertEquals(10 + 8, registry.get("dynamicquery.rows").summary().totalAmount());
+    }
+
+    @Test
+    void logsQueriesFromTheThreshold() {
+        final SlowQueryLogger logger = new SlowQueryLogger(Duration.ofMillis(100));
+
+        logger.onQuery(event(Duration.ofMillis(99)));
+        assertTrue(slowQueries.list.isEmpty());
+        logger.onQuery(event(Duration.ofMillis(100)));
+        logger.onQuery(event(Duration.ofSeconds(2)));
+        assertEquals(List.of("Slow query on PurchaseOrder took 100 ms, 3 rows: code|eq",
+                "Slow query on PurchaseOrder took 2000 ms, 3 rows: code|eq"),
+                slowQueries.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList()));
+        // phases are not logged
+        logger.onPhase(event(Duration.ofSeconds(2)));
+        assertEquals(2, slowQueries.list.size());
+    }
+
+    @Test
+    void logsTheQueriesOfAnExecutor() {
+        listener = QueryListener.composite(new SlowQueryLogger(Duration.ZERO), new SlowQueryLogger(Duration.ofHours(1)));
+
+        orders.findAll(params("amount", "gt(50)"));
+
+        // only the logger without a threshold logs the query
+        assertEquals(1, slowQueries.list.size());
+        final String message = slowQueries.list.get(0).getFormattedMessage();
+        assertTrue(message.startsWith("Slow query on PurchaseOrder took "), message);
+        assertTrue(message.contains(" ms, 10 rows: "), message);
+    }
+
+    @Test
+    void keepsQueriesRunningWhenTheListenerFails() {
+        listener = new QueryListener() {
+            @Override
+            public void onPhase(QueryEvent event) {
+                throw new IllegalStateException("failing listener");
+            }
+        };
+
+        assertEquals(10, orders.findAll(params("amount", "gt(50)")).size());
+    }
+
+    private static QueryEvent event(Duration duration) {
+        return QueryEvent.of(PurchaseOrder.class, "code|eq", null, Sort.unsorted(), null, duration.toNanos(), 3);
+    }
+}
@@ -0,0 +1,107 @@
+package com.bislan.dynamicquery.library.sql;
+
+import static com.bislan.dynamicquery.library.TestData.params;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bislan.dynamicquery.library.QueryParameters;
+import com.bislan.dynamicquery.library.TestApplication;
+import com.bislan.dynamicquery.library.TestData;
+import com.bislan.dynamicquery.library.TestModel.PurchaseOrder;
+import com.bislan.dynamicquery.library.TestModel.Status;
+
+/**
+ * The native queries take the connection of the test transaction, so they read the flushed rows.
+ */
+@SpringBootTest(classes = TestApplication.class)
+@Transactional
+class NativeQueryExecutorTest {
+
+    public record OrderRow(Long id, String code) {
+    }
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private NativeQueryExecutor<PurchaseOrder> orders;
+
+    @BeforeEach
+    void data() {
+        TestData.persist(entityManager);
+        orders = new NativeQueryExecutor<>(PurchaseOrder.class, SqlMetamodel.of(entityManagerFactory, dataSource), dataSource);
+    }
+
+    @Test
+    void joinsAssociationsAndEmbeddedColumns() {
+        final List<Map<String, Object>> rows = orders.findFields(params("customer.name", "eq(cust2)", "amount", "lt(25)",
+                QueryParameters.FieldsKey, "code,customer.address.city,billing.name"), Sort.by("id"));
+
+        assertEquals(List.of(
+                Map.of("code", "C1", "customer.address.city", "Paris", "billing.name", "cust2"),
+                Map.of("code", "C4", "customer.address.city", "Paris", "billing.name", "cust2")), rows);
+    }
+
+    @Test
+    void groupsCollectionFiltersIntoOneExists() {
+        // orders 2, 5, ..., 20 have a line of quantity 2 on product 2 and a line of quantity 1 on product 1
+        assertEquals(7, orders.count(params("lines.qty", "eq(2)")));
+        assertEquals(7, orders.count(params("lines.qty", "eq(2)", "lines.product.name", "eq(prod2)")));
+        assertEquals(0, orders.count(params("lines.qty", "eq(2)", "lines.product.name", "eq(prod1)")));
+        assertEquals(10, orders.count(params("tags.name", "eq(even)")));
+        // counts roots, not lines
+        assertEquals(14, orders.count(params("lines.qty", "gt(0)")));
+    }
+
+    @Test
+    void bindsAndReadsMappedTypes() {
+        final List<Map<String, Object>> rows = orders.findFields(params("status", "eq(PAID)", "urgent", "eq(true)",
+                QueryParameters.FieldsKey, "id,status,reference,urgent"), Sort.by("id"));
+
+        assertEquals(List.of(Map.of("id", 10L, "status", Status.PAID, "reference", TestData.reference(10), "urgent", true)), rows);
+        assertEquals(1, orders.count(params("reference", "eq(" + TestData.reference(7) + ")")));
+        assertEquals(16, orders.count(params("urgent", "eq(false)")));
+    }
+
+    @Test
+    void pagesRecords() {
+        final Page<OrderRow> page = orders.findAll(params("amount", "gt(20)"), OrderRow.class,
+                PageRequest.of(1, 5, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertEquals(16, page.getTotalElements());
+        assertEquals(List.of(15L, 14L, 13L, 12L, 11L), page.getContent().stream().map(OrderRow::id)
+                .collect(Collectors.toList()));
+        assertEquals("C15", page.getContent().get(0).code());
+    }
+
+    @Test
+    void streamsRows() {
+        final List<Object> codes = new ArrayList<>();
+        orders.forEach(params("amount", "lt(20)"), List.of("code"), Sort.by("code"), tuple -> codes.add(tuple.toArray()[0]));
+
+        assertEquals(List.of("C1", "C2", "C3"), codes);
+    }
+}